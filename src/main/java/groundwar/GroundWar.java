@@ -6,6 +6,7 @@ import org.lwjgl.glfw.GLFWErrorCallback;
 import org.lwjgl.glfw.GLFWKeyCallback;
 import org.lwjgl.glfw.GLFWMouseButtonCallback;
 import org.lwjgl.glfw.GLFWVidMode;
+import org.lwjgl.glfw.GLFWWindowRefreshCallback;
 import org.lwjgl.glfw.GLFWWindowSizeCallback;
 import org.lwjgl.opengl.GL;
 import org.lwjgl.opengl.GL11;
@@ -13,8 +14,15 @@ import org.lwjgl.system.MemoryUtil;
 
 import java.io.IOException;
 import java.net.URL;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import groundwar.board.Board;
+import groundwar.board.BoardListener;
+import groundwar.board.CombatOdds;
+import groundwar.board.GameRecord;
+import groundwar.board.unit.Unit;
 import groundwar.render.Renderer;
 import groundwar.render.event.KeyEvent;
 import groundwar.render.event.MouseButtonEvent;
@@ -35,6 +43,7 @@ public class GroundWar {
     private GLFWMouseButtonCallback mouseButtonHandler;
     private GLFWCursorPosCallback cursorPosHandler;
     private GLFWWindowSizeCallback windowResizeHandler;
+    private GLFWWindowRefreshCallback windowRefreshHandler;
 
     private long window;
     private Renderer renderer;
@@ -43,8 +52,19 @@ public class GroundWar {
     private int windowHeight;
     private Point mousePos = new Point();
 
+    /**
+     * Set when something has changed that needs the screen to be drawn again, and cleared just
+     * before each frame is drawn.
+     */
+    private final AtomicBoolean redrawRequested = new AtomicBoolean(true);
+
     private Board board;
 
+    /**
+     * A game record to replay for the first board, or {@code null} to start a new game.
+     */
+    private Path replayPath;
+
     private void run() {
         try {
             initGame(); // Initialize
@@ -99,22 +119,59 @@ public class GroundWar {
         GLFW.glfwSetMouseButtonCallback(window, mouseButtonHandler);
         GLFW.glfwSetCursorPosCallback(window, cursorPosHandler);
         GLFW.glfwSetWindowSizeCallback(window, windowResizeHandler);
+        GLFW.glfwSetWindowRefreshCallback(window, windowRefreshHandler);
 
         renderer = new Renderer();
+        renderer.resize(windowWidth, windowHeight);
+        CombatOdds.load();
         loadNewBoard();
         currentScreen = new MainMenuScreen(); // Initialize the current screen
     }
 
+    /**
+     * Draws frames until the window is closed. A frame is only drawn when something asks for one
+     * (see {@link #requestRedraw()}), or when {@link Constants#IDLE_FPS} calls for one. In between,
+     * the loop sleeps until an event comes in, instead of spinning.
+     */
     private void gameLoop() {
+        double lastFrameTime = GLFW.glfwGetTime();
         while (!GLFW.glfwWindowShouldClose(window)) {
-            GLFW.glfwPollEvents(); // Poll for events (key, mouse, etc.)
+            // Handle events (key, mouse, etc.), waiting for one if there's nothing to draw
+            if (redrawRequested.get()) {
+                GLFW.glfwPollEvents();
+            } else if (Constants.IDLE_FPS <= 0) {
+                GLFW.glfwWaitEvents();
+            } else {
+                final double untilIdleFrame =
+                    lastFrameTime + 1.0 / Constants.IDLE_FPS - GLFW.glfwGetTime();
+                if (untilIdleFrame > 0.0) {
+                    GLFW.glfwWaitEventsTimeout(untilIdleFrame);
+                } else {
+                    GLFW.glfwPollEvents();
+                }
+            }
+
+            final double now = GLFW.glfwGetTime();
+            final boolean idleFrameDue =
+                Constants.IDLE_FPS > 0 && now - lastFrameTime >= 1.0 / Constants.IDLE_FPS;
+            // Cleared before drawing, so anything that asks during the frame gets another one
+            if (!redrawRequested.getAndSet(false) && !idleFrameDue) {
+                continue;
+            }
+            lastFrameTime = now;
+
             GL11.glClear(
                 GL11.GL_COLOR_BUFFER_BIT | GL11.GL_DEPTH_BUFFER_BIT); // Clear the framebuffer
             currentScreen.draw(mousePos.copy());
+            renderer.flush(); // Draw anything the screen left in the batch
             GLFW.glfwSwapBuffers(window); // Swap the color buffers
 
             // Change to the next screen (usually nextScreen() returns the same screen)
+            final MainScreen previousScreen = currentScreen;
             currentScreen = currentScreen.nextScreen();
+            if (currentScreen != previousScreen) {
+                requestRedraw();
+            }
 
             // If the current screen is null, exit the game
             if (currentScreen == null) {
@@ -134,6 +191,7 @@ public class GroundWar {
         mouseButtonHandler.free();
         cursorPosHandler.free();
         windowResizeHandler.free();
+        windowRefreshHandler.free();
         errorCallback.free();
 
         GLFW.glfwTerminate(); // Terminate GLFW
@@ -148,7 +206,22 @@ public class GroundWar {
      */
     public Board loadNewBoard() {
         try {
-            board = new Board();
+            if (replayPath != null) {
+                board = GameRecord.load(replayPath).replay();
+                replayPath = null; // Only replay the first game
+            } else {
+                board = new Board();
+            }
+            board.addBoardListener(new BoardListener() {
+                @Override
+                public void onCombat(Unit attacker, Unit defender, int attackerDamage,
+                                     int defenderDamage) {
+                    System.out.printf("Attacking %s %s took %d damage!\n", attacker.getOwner(),
+                                      attacker.getDisplayName(), attackerDamage);
+                    System.out.printf("Defending %s %s took %d damage!\n", defender.getOwner(),
+                                      defender.getDisplayName(), defenderDamage);
+                }
+            });
         } catch (IOException e) {
             System.err.printf("Error loading board");
             e.printStackTrace();
@@ -160,6 +233,16 @@ public class GroundWar {
         return renderer;
     }
 
+    /**
+     * Asks for the screen to be drawn again soon, because something on it has changed. The game
+     * loop is woken up if it's waiting for events. Can be called from any thread.
+     */
+    public void requestRedraw() {
+        if (!redrawRequested.getAndSet(true)) {
+            GLFW.glfwPostEmptyEvent();
+        }
+    }
+
     /**
      * Exits the game gracefully.
      */
@@ -167,7 +250,16 @@ public class GroundWar {
         GLFW.glfwSetWindowShouldClose(window, true);
     }
 
+    /**
+     * Starts the game. If a path to a game record is given, the first game starts from where that
+     * game left off.
+     *
+     * @param args the path of a game record to replay (optional)
+     */
     public static void main(String[] args) {
+        if (args.length > 0) {
+            groundWar.replayPath = Paths.get(args[0]);
+        }
         groundWar.run();
     }
 
@@ -182,6 +274,7 @@ public class GroundWar {
             public void invoke(long window, int key, int scancode, int action, int mods) {
                 if (action == GLFW.GLFW_RELEASE) {
                     currentScreen.onKey(new KeyEvent(window, key, scancode, mods));
+                    requestRedraw();
                 }
             }
         };
@@ -191,6 +284,7 @@ public class GroundWar {
             public void invoke(long window, int button, int action, int mods) {
                 if (action == GLFW.GLFW_RELEASE && currentScreen.contains(mousePos)) {
                     currentScreen.onClick(new MouseButtonEvent(window, button, mods, mousePos));
+                    requestRedraw();
                 }
             }
         };
@@ -201,6 +295,7 @@ public class GroundWar {
                 // Scale the cursor coordinates to fit the coords that everything is drawn at.
                 mousePos = new Point((int) (xPos * Constants.RES_WIDTH / windowWidth),
                                      (int) (yPos * Constants.RES_HEIGHT / windowHeight));
+                requestRedraw(); // For the mouse-over highlights
             }
         };
 
@@ -209,7 +304,15 @@ public class GroundWar {
             public void invoke(long window, int width, int height) {
                 windowWidth = width;
                 windowHeight = height;
-                GL11.glViewport(0, 0, windowWidth, windowHeight);
+                renderer.resize(windowWidth, windowHeight);
+                requestRedraw();
+            }
+        };
+
+        windowRefreshHandler = new GLFWWindowRefreshCallback() {
+            @Override
+            public void invoke(long window) {
+                requestRedraw(); // The window was uncovered, so its contents may be gone
             }
         };
     }
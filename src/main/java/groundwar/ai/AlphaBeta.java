@@ -0,0 +1,441 @@
+package groundwar.ai;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+import groundwar.board.Action;
+import groundwar.board.Board;
+import groundwar.board.CombatOdds;
+import groundwar.board.MoveGenerator;
+import groundwar.board.Player;
+import groundwar.board.unit.Unit;
+
+/**
+ * Searches for the best action for the current player of a board, using iterative-deepening
+ * alpha-beta search. Depth is measured in actions, not turns: a player keeps moving until they
+ * choose to end their turn, so the sign of the score only flips when an action hands the turn to
+ * the other player.
+ *
+ * The search plays actions on the board with {@link Board#applyAction} and takes them back with
+ * {@link Board#undoAction}, so it should be given a board that nothing else is using, such as a
+ * copy.
+ *
+ * The search never uses the board's random number generator, since that would tell it how each
+ * attack is really going to turn out. Instead, an attack is a chance node: each result that
+ * {@link CombatOdds} gives at least {@link #MIN_RESULT_PROBABILITY} of happening (attacker dies,
+ * defender dies, both or neither) is played with {@link Board#applyAttack}, and the attack scores
+ * the average of their scores, weighted by how likely each one is. A unit that survives takes
+ * the damage it's most likely to take. Since the results are part of the position, the positions
+ * in the {@link TranspositionTable} never depend on the state of the random number generator.
+ *
+ * Actions are searched in the order given by the {@link MoveGenerator} (attacks first), except
+ * that the best action found for a position in an earlier search is always tried first.
+ *
+ * Many searches can share one {@link TranspositionTable} and search the same position at once, on
+ * their own copies of the board (see {@link LazySmp}). Helper searches skip some depths, so that
+ * the searches spread out over different depths instead of all doing the same work.
+ */
+public class AlphaBeta {
+
+    private static final int MAX_DEPTH = 64;
+    private static final int INFINITY = Evaluator.WIN_SCORE + 1;
+
+    /**
+     * Scores beyond this are wins or losses, which are adjusted by how far away they are.
+     */
+    private static final int WIN_THRESHOLD = Evaluator.WIN_SCORE - MAX_DEPTH;
+
+    /**
+     * How many nodes are searched between checks of the clock. Some positions take tens of
+     * microseconds each, so this is kept small enough that a search never runs far past its time.
+     */
+    private static final int CLOCK_CHECK_INTERVAL = 256;
+
+    /**
+     * Results of an attack that are less likely than this aren't searched.
+     */
+    private static final float MIN_RESULT_PROBABILITY = 0.02f;
+
+    private static final int COMBAT_OUTCOMES = 4;
+
+    /**
+     * Which depths each helper skips, by helper index. Helper {@code i} skips a depth if {@code
+     * ((depth + SKIP_PHASES[i]) / SKIP_SIZES[i]) % 2 != 0}, so helpers skip blocks of depths of
+     * different sizes, starting at different depths.
+     */
+    private static final int[] SKIP_SIZES = {1, 1, 2, 2, 2, 2, 3, 3, 3, 3, 3, 3, 4, 4, 4, 4, 4, 4,
+                                             4, 4};
+    private static final int[] SKIP_PHASES = {0, 1, 0, 1, 2, 3, 0, 1, 2, 3, 4, 5, 0, 1, 2, 3, 4,
+                                              5, 6, 7};
+
+    private final Board board;
+    private final MoveGenerator generator;
+    private final Evaluator evaluator;
+    private final TranspositionTable table;
+
+    /**
+     * One list of actions for each ply, so that generating actions doesn't allocate. Each list is
+     * created the first time its ply is reached.
+     */
+    private final int[][] actions = new int[MAX_DEPTH + 1][];
+
+    /**
+     * The index of this search among the helpers of a {@link LazySmp} search, or -1 if this is
+     * the main search.
+     */
+    private int helperIndex = -1;
+
+    private long deadline;
+    private boolean aborted;
+    private volatile boolean stopped;
+    private long nodes;
+    private int rootBestAction;
+    private int bestAction = TranspositionTable.NO_ACTION;
+    private int completedDepth;
+    private int score;
+
+    /**
+     * The time taken to finish each depth of the last search, in nanoseconds from the start.
+     */
+    private final long[] depthTimes = new long[MAX_DEPTH + 1];
+
+    /**
+     * Constructs a new search on the given board.
+     *
+     * @param board the board to search (non-null)
+     * @param table the table to use for positions that have already been searched (non-null)
+     * @throws NullPointerException if {@code board == null} or {@code table == null}
+     */
+    public AlphaBeta(Board board, TranspositionTable table) {
+        Objects.requireNonNull(board);
+        Objects.requireNonNull(table);
+        this.board = board;
+        this.table = table;
+        generator = new MoveGenerator(board);
+        evaluator = new Evaluator(board);
+    }
+
+    /**
+     * Makes this search a helper, which skips some depths. Each helper of the same position should
+     * have a different index.
+     *
+     * @param helperIndex the index of this helper (non-negative)
+     */
+    void setHelperIndex(int helperIndex) {
+        this.helperIndex = helperIndex % SKIP_SIZES.length;
+    }
+
+    private boolean skipsDepth(int depth) {
+        return helperIndex >= 0
+               && (depth + SKIP_PHASES[helperIndex]) / SKIP_SIZES[helperIndex] % 2 != 0;
+    }
+
+    private int[] getActions(int ply) {
+        if (actions[ply] == null) {
+            actions[ply] = new int[generator.getMaxActions()];
+        }
+        return actions[ply];
+    }
+
+    /**
+     * Finds the best action for the current player, searching deeper and deeper until the time
+     * runs out. The first depth is always searched completely, however long it takes, so there is
+     * always an action to return. If {@link #stop()} has been called since the last {@link
+     * #reset()}, the search returns straight away.
+     *
+     * @param timeLimit the time to search for, in nanoseconds
+     * @return the best action, or {@link TranspositionTable#NO_ACTION} if there are no legal
+     * actions
+     */
+    public int search(long timeLimit) {
+        final long start = System.nanoTime();
+        nodes = 0;
+        completedDepth = 0;
+        score = 0;
+        Arrays.fill(depthTimes, 0L);
+
+        final int[] rootActions = getActions(0);
+        final int count = generator.generate(rootActions);
+        bestAction = count > 0 ? rootActions[0] : TranspositionTable.NO_ACTION;
+        if (count <= 1) {
+            return bestAction;
+        }
+
+        for (int depth = 1; depth <= MAX_DEPTH; depth++) {
+            if (depth > 1 && skipsDepth(depth)) {
+                continue;
+            }
+
+            // Never give up on the first depth, or there would be nothing to return
+            deadline = depth == 1 ? Long.MAX_VALUE : start + timeLimit;
+            aborted = stopped;
+            final int depthScore = search(depth, 0, -INFINITY, INFINITY);
+            if (aborted) {
+                break;
+            }
+
+            bestAction = rootBestAction;
+            completedDepth = depth;
+            score = depthScore;
+            depthTimes[depth] = System.nanoTime() - start;
+            if (Math.abs(depthScore) > WIN_THRESHOLD) {
+                break; // The game is decided, so searching deeper won't change anything
+            }
+        }
+        return bestAction;
+    }
+
+    /**
+     * Stops the current search as soon as possible, and makes any later search return straight
+     * away, until {@link #reset()} is called. Can be called from any thread.
+     */
+    public void stop() {
+        stopped = true;
+    }
+
+    /**
+     * Allows searching again after {@link #stop()} was called. This must not be called while a
+     * search is running.
+     */
+    public void reset() {
+        stopped = false;
+    }
+
+    /**
+     * Gets the best action found by the last search.
+     *
+     * @return the action, or {@link TranspositionTable#NO_ACTION} if there were no legal actions
+     */
+    public int getBestAction() {
+        return bestAction;
+    }
+
+    /**
+     * Gets how long it took the last search to finish the given depth.
+     *
+     * @param depth the depth (in [1, {@link #getCompletedDepth()}])
+     * @return the time from the start of the search, in nanoseconds, or 0 if the depth was skipped
+     */
+    public long getDepthTime(int depth) {
+        return depthTimes[depth];
+    }
+
+    /**
+     * Gets the amount of positions visited by the last search.
+     *
+     * @return the amount of positions
+     */
+    public long getNodes() {
+        return nodes;
+    }
+
+    /**
+     * Gets the deepest depth that the last search finished.
+     *
+     * @return the depth
+     */
+    public int getCompletedDepth() {
+        return completedDepth;
+    }
+
+    /**
+     * Gets the score of the best action from the last search, from the point of view of the player
+     * who was searched for.
+     *
+     * @return the score
+     */
+    public int getScore() {
+        return score;
+    }
+
+    private int search(int depth, int ply, int alpha, int beta) {
+        // Stopping is checked at every node, so that it takes effect right away
+        if (++nodes % CLOCK_CHECK_INTERVAL == 0 && System.nanoTime() > deadline || stopped) {
+            aborted = true;
+        }
+        if (aborted) {
+            return 0;
+        }
+
+        final Player player = board.getCurrentPlayer();
+        if (board.isGameOver()) {
+            // The game always ends on the winner's action, so they are still the current player
+            return board.getWinner() == player ? Evaluator.WIN_SCORE - ply
+                                               : -(Evaluator.WIN_SCORE - ply);
+        }
+        if (depth == 0 || ply == MAX_DEPTH) {
+            return evaluator.evaluate(player);
+        }
+
+        // Check for a previous search of this position
+        final long hash = board.getHash();
+        final long entry = table.probe(hash);
+        int tableAction = TranspositionTable.NO_ACTION;
+        if (entry != 0L) {
+            tableAction = TranspositionTable.getAction(entry);
+            if (TranspositionTable.getDepth(entry) >= depth && ply > 0) {
+                final int tableScore = fromTable(TranspositionTable.getScore(entry), ply);
+                switch (TranspositionTable.getBound(entry)) {
+                    case TranspositionTable.EXACT:
+                        return tableScore;
+                    case TranspositionTable.LOWER:
+                        alpha = Math.max(alpha, tableScore);
+                        break;
+                    case TranspositionTable.UPPER:
+                        beta = Math.min(beta, tableScore);
+                        break;
+                }
+                if (alpha >= beta) {
+                    return tableScore;
+                }
+            }
+        }
+
+        final int[] list = getActions(ply);
+        final int count = generator.generate(list);
+        moveToFront(list, count, tableAction);
+
+        final int originalAlpha = alpha;
+        int bestScore = -INFINITY;
+        int bestAction = list[0];
+        for (int i = 0; i < count; i++) {
+            final int action = list[i];
+            final int actionScore;
+            if (Action.getKind(action) == Action.ATTACK) {
+                actionScore = searchAttack(action, depth - 1, ply + 1, player);
+            } else {
+                board.applyAction(action);
+                actionScore = board.getCurrentPlayer() == player
+                              ? search(depth - 1, ply + 1, alpha, beta)
+                              : -search(depth - 1, ply + 1, -beta, -alpha);
+                board.undoAction();
+            }
+            if (aborted) {
+                return 0;
+            }
+
+            if (actionScore > bestScore) {
+                bestScore = actionScore;
+                bestAction = action;
+                if (ply == 0) {
+                    rootBestAction = action;
+                }
+                if (actionScore > alpha) {
+                    alpha = actionScore;
+                    if (alpha >= beta) {
+                        break;
+                    }
+                }
+            }
+        }
+
+        final int bound;
+        if (bestScore <= originalAlpha) {
+            bound = TranspositionTable.UPPER;
+        } else if (bestScore >= beta) {
+            bound = TranspositionTable.LOWER;
+        } else {
+            bound = TranspositionTable.EXACT;
+        }
+        table.store(hash, TranspositionTable.pack(bestAction, toTable(bestScore, ply), depth,
+                                                  bound));
+        return bestScore;
+    }
+
+    /**
+     * Searches each likely result of the given attack, and averages their scores, weighted by how
+     * likely each result is. Every result is searched with a full window, since no one result can
+     * decide whether the average is inside the window.
+     *
+     * @param action the attack
+     * @param depth  the depth to search each result to
+     * @param ply    the ply of the positions after the attack
+     * @param player the player making the attack
+     * @return the average score, from the point of view of {@code player}
+     */
+    private int searchAttack(int action, int depth, int ply, Player player) {
+        final Unit attacker = board.getTileGrid().get(Action.getSource(action)).getUnit();
+        final Unit defender = board.getTileGrid().get(Action.getTarget(action)).getUnit();
+        final int attackerHealth = attacker.getHealth();
+        final int defenderHealth = defender.getHealth();
+        final int index = CombatOdds.indexOf(attacker.getType(), defender.getType(),
+                                             attackerHealth, defenderHealth);
+        final int attackerSurvivingDamage =
+            CombatOdds.getLikeliestAttackerDamage(attacker.getType(), defender.getType(),
+                                                  attackerHealth);
+        final int defenderSurvivingDamage =
+            CombatOdds.getLikeliestDefenderDamage(attacker.getType(), defender.getType(),
+                                                  defenderHealth);
+
+        double total = 0.0;
+        double weight = 0.0;
+        for (int outcome = 0; outcome < COMBAT_OUTCOMES; outcome++) {
+            final float probability = CombatOdds.getProbability(index, outcome);
+            if (probability < MIN_RESULT_PROBABILITY) {
+                continue;
+            }
+            final boolean attackerDies =
+                outcome == CombatOdds.ATTACKER_DIES || outcome == CombatOdds.BOTH_DIE;
+            final boolean defenderDies =
+                outcome == CombatOdds.DEFENDER_DIES || outcome == CombatOdds.BOTH_DIE;
+            board.applyAttack(action, attackerDies ? attackerHealth : attackerSurvivingDamage,
+                              defenderDies ? defenderHealth : defenderSurvivingDamage);
+            final int resultScore = board.getCurrentPlayer() == player
+                                    ? search(depth, ply, -INFINITY, INFINITY)
+                                    : -search(depth, ply, -INFINITY, INFINITY);
+            board.undoAction();
+            if (aborted) {
+                return 0;
+            }
+            total += probability * resultScore;
+            weight += probability;
+        }
+        return (int) Math.round(total / weight);
+    }
+
+    /**
+     * Moves the given action to the front of the list, if it is in the list.
+     */
+    private static void moveToFront(int[] list, int count, int action) {
+        if (action == TranspositionTable.NO_ACTION) {
+            return;
+        }
+        for (int i = 0; i < count; i++) {
+            if (list[i] == action) {
+                System.arraycopy(list, 0, list, 1, i);
+                list[0] = action;
+                return;
+            }
+        }
+    }
+
+    /**
+     * Converts a score to be stored in the table. Wins and losses are stored relative to the
+     * position, rather than to the root of the search, so they're still right when the same
+     * position is reached at a different ply.
+     */
+    private static int toTable(int score, int ply) {
+        if (score > WIN_THRESHOLD) {
+            return score + ply;
+        }
+        if (score < -WIN_THRESHOLD) {
+            return score - ply;
+        }
+        return score;
+    }
+
+    private static int fromTable(int score, int ply) {
+        if (score > WIN_THRESHOLD) {
+            return score - ply;
+        }
+        if (score < -WIN_THRESHOLD) {
+            return score + ply;
+        }
+        return score;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("depth %d, score %d, %d nodes", completedDepth, score, nodes);
+    }
+}
@@ -0,0 +1,271 @@
+package groundwar.ai;
+
+import java.io.IOException;
+import java.util.Objects;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import groundwar.board.Action;
+import groundwar.board.Board;
+import groundwar.board.CombatOdds;
+import groundwar.util.Constants;
+
+/**
+ * A computer opponent, which picks actions for a player using a {@link Searcher}: by default
+ * {@link LazySmp} alpha-beta search, or {@link MonteCarlo} tree search, on every available
+ * processor. The search runs on background threads, against a copy of the board, so the board can
+ * keep being drawn while the computer thinks. The copy's random number generator is given a new,
+ * unpredictable state, so that the computer can't find out how its attacks will really turn out.
+ *
+ * Each turn has a budget of thinking time, shared between every action in the turn, which counts
+ * everything from a request being made to the decision being ready. Each action gets half of what's
+ * left of the budget, and once less than a twentieth of the budget is left, the computer ends its
+ * turn. Searches can run a little over their time, so that last twentieth is kept back to keep
+ * the whole turn within the budget.
+ *
+ * All methods except {@link #shutdown()} must be called on the thread that the board is used on.
+ */
+public class ComputerPlayer {
+
+    private static final Decision THINKING = new Decision(0L, TranspositionTable.NO_ACTION);
+
+    private final long turnBudget;
+
+    /**
+     * The part of the budget that is never searched with, in nanoseconds.
+     */
+    private final long reserve;
+    private final Searcher search;
+    private final ExecutorService executor;
+
+    /**
+     * The turn that {@link #timeUsed} is for.
+     */
+    private int budgetTurn = -1;
+
+    /**
+     * The time spent thinking during {@link #budgetTurn}, in nanoseconds. Added to by the
+     * background thread after each action.
+     */
+    private volatile long timeUsed;
+
+    /**
+     * Counts the requests made, so that a search can tell that it was replaced by a newer request.
+     * Only changed by the thread that the board is used on.
+     */
+    private volatile int request;
+
+    /**
+     * The result of the last request, {@link #THINKING} while a request is being worked on, or
+     * {@code null} if there is no request.
+     */
+    private volatile Decision decision;
+
+    /**
+     * The copy of the board that the searches run on, or {@code null} before the first request.
+     * Only the background thread uses it while {@link #isThinking()}, so it's reused for each
+     * request after that.
+     */
+    private Board position;
+
+    /**
+     * Told whenever a decision is ready, or {@code null}.
+     */
+    private volatile Runnable decisionListener;
+
+    /**
+     * Constructs a new computer player that uses alpha-beta search, with the default turn budget.
+     */
+    public ComputerPlayer() {
+        this(Constants.AI_TURN_BUDGET,
+             new LazySmp(Constants.AI_THREADS, Constants.AI_TABLE_SIZE_LOG2));
+    }
+
+    /**
+     * Constructs a new computer player. The searcher belongs to the player from now on, and is shut
+     * down along with it.
+     *
+     * @param turnBudget the time that can be spent thinking each turn, in milliseconds (positive)
+     * @param search     the searcher to pick actions with (non-null)
+     * @throws IllegalArgumentException if {@code turnBudget <= 0}
+     * @throws NullPointerException     if {@code search == null}
+     */
+    public ComputerPlayer(long turnBudget, Searcher search) {
+        if (turnBudget <= 0) {
+            throw new IllegalArgumentException("Turn budget must be positive");
+        }
+        Objects.requireNonNull(search);
+        this.turnBudget = turnBudget * 1000000L;
+        reserve = this.turnBudget / 20;
+        this.search = search;
+
+        // One thread, which goes away while the computer isn't being used
+        final ThreadPoolExecutor threadPool = new ThreadPoolExecutor(
+            1, 1, 1L, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), runnable -> {
+            final Thread thread = new Thread(runnable, "Computer player");
+            thread.setDaemon(true);
+            return thread;
+        });
+        threadPool.allowCoreThreadTimeOut(true);
+        executor = threadPool;
+
+        // Searching attacks needs the odds, so don't let the first one spend its time on them
+        CombatOdds.load();
+    }
+
+    /**
+     * Sets something to be run whenever a decision is ready to be picked up with {@link
+     * #pollAction}. It may be run on the background thread, so it must be thread-safe. This
+     * replaces any previous listener.
+     *
+     * @param decisionListener the listener (null for no listener)
+     */
+    public void setDecisionListener(Runnable decisionListener) {
+        this.decisionListener = decisionListener;
+    }
+
+    /**
+     * Is the computer working on an action right now?
+     *
+     * @return true if the computer is thinking, false otherwise
+     */
+    public boolean isThinking() {
+        return decision == THINKING;
+    }
+
+    /**
+     * Starts thinking about the next action for the current player of the given board. The board
+     * is copied before this returns, so it can keep being used. The same copy is used for each
+     * request, so this only costs a {@link Board#copyStateFrom}. Any previous request that is
+     * still being worked on is stopped and discarded, and this one gets a board of its own.
+     *
+     * @param board the board (non-null, game not over)
+     * @throws NullPointerException  if {@code board == null}
+     * @throws IllegalStateException if the game is over
+     */
+    public void startThinking(Board board) {
+        Objects.requireNonNull(board);
+        if (board.isGameOver()) {
+            throw new IllegalStateException("Can't think about a finished game!");
+        }
+        final long start = System.nanoTime();
+        if (board.getTurnCount() != budgetTurn) { // A new turn, so a new budget
+            budgetTurn = board.getTurnCount();
+            timeUsed = 0L;
+        }
+
+        final long hash = board.getHash();
+        final long remaining = turnBudget - timeUsed;
+        if (remaining <= reserve) {
+            decide(new Decision(hash, Action.endTurn())); // Out of time for this turn
+            return;
+        }
+
+        final boolean replacing = isThinking();
+        if (replacing) {
+            search.stop(); // The background thread is reset before the next search starts
+        }
+        final Board copy;
+        if (position != null && !replacing) {
+            position.copyStateFrom(board);
+            copy = position;
+        } else {
+            // The first request, or the last one is still using the copy
+            try {
+                copy = new Board(board);
+            } catch (IOException e) {
+                System.err.println("Error copying board for the computer player!");
+                e.printStackTrace();
+                decide(new Decision(hash, Action.endTurn()));
+                return;
+            }
+            position = copy;
+        }
+        // The copy mustn't know how the board's next attack will turn out
+        copy.setRandomState(ThreadLocalRandom.current().nextLong());
+
+        final int request = ++this.request;
+        decision = THINKING;
+        executor.execute(() -> {
+            // Reset before checking the request, so a stop can't slip in between the two
+            search.reset();
+            if (request != this.request || executor.isShutdown()) {
+                return;
+            }
+            int action = Action.endTurn();
+            try {
+                action = search.search(copy, remaining / 2);
+            } catch (IOException e) {
+                System.err.println("Error setting up the computer player's search!");
+                e.printStackTrace();
+            } catch (RuntimeException e) {
+                System.err.println("Error in the computer player's search!");
+                e.printStackTrace();
+            } finally {
+                // Always decide, even if the search failed, or the game would wait forever
+                if (request == this.request) {
+                    timeUsed += System.nanoTime() - start;
+                    decide(new Decision(hash, action));
+                }
+            }
+        });
+    }
+
+    private void decide(Decision decision) {
+        this.decision = decision;
+        final Runnable listener = decisionListener;
+        if (listener != null) {
+            listener.run();
+        }
+    }
+
+    /**
+     * Gets the action that the computer decided on, if it's done thinking. If the board has
+     * changed since the request was made, the decision is thrown out.
+     *
+     * @param board the board that the request was made for (non-null)
+     * @return the action, or {@link TranspositionTable#NO_ACTION} if there isn't one ready
+     * @throws NullPointerException if {@code board == null}
+     */
+    public int pollAction(Board board) {
+        final Decision decision = this.decision;
+        if (decision == null || decision == THINKING) {
+            return TranspositionTable.NO_ACTION;
+        }
+        this.decision = null;
+        return decision.hash == board.getHash() ? decision.action : TranspositionTable.NO_ACTION;
+    }
+
+    /**
+     * Stops any thinking in progress, and shuts down the searcher and the background thread. This
+     * computer player can't be used afterwards. Can be called from any thread, more than once.
+     */
+    public synchronized void shutdown() {
+        if (executor.isShutdown()) {
+            return;
+        }
+        // Shut the searcher down on the background thread, once any search has finished
+        executor.execute(search::shutdown);
+        executor.shutdown();
+
+        // Stop after shutting down the executor, so a search that starts now sees one or the other
+        search.stop();
+    }
+
+    /**
+     * An action decided on for the board with the given hash.
+     */
+    private static class Decision {
+
+        private final long hash;
+        private final int action;
+
+        private Decision(long hash, int action) {
+            this.hash = hash;
+            this.action = action;
+        }
+    }
+}
@@ -0,0 +1,434 @@
+package groundwar.ai;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+import groundwar.board.Bitboards;
+import groundwar.board.Board;
+import groundwar.board.BoardTopology;
+import groundwar.board.Player;
+import groundwar.board.PlayerInfo;
+import groundwar.board.TileGrid;
+import groundwar.board.tile.FortTile;
+import groundwar.board.tile.ForwardFortTile;
+import groundwar.board.tile.GoldTile;
+import groundwar.board.tile.Tile;
+import groundwar.board.tile.TileListener;
+import groundwar.board.unit.Unit;
+
+/**
+ * Scores positions on a board for the search. A score is from the point of view of one player:
+ * positive is good for that player, negative is good for the other. The score is made up of:
+ * <ul>
+ * <li>material: the health of each unit times its combat strength</li>
+ * <li>gold, and units standing on gold mines</li>
+ * <li>forward forts controlled</li>
+ * <li>flags: a unit carrying a flag is worth more the closer it is to its own fort, and a flag on
+ * the ground is worth more the closer an enemy unit that could pick it up is</li>
+ * </ul>
+ * A won game is worth {@link #WIN_SCORE}, which is far more than any position can be.
+ *
+ * Everything except loose flags depends on one tile at a time, so like {@link
+ * groundwar.board.ZobristHash}, the evaluator keeps the score of each tile, and listens to the
+ * board to update a tile's score whenever it changes. Gold is read straight from the players.
+ * A loose flag depends on the nearest enemy unit that could pick it up, so for each loose flag, the
+ * evaluator counts those units at each distance up to {@link #FLAG_RANGE}. When a unit changes,
+ * only the counts of the flags near it change, and the nearest unit is the first distance with a
+ * count. Use {@link #evaluateFromScratch} to score without any of the kept scores.
+ */
+public class Evaluator implements TileListener {
+
+    public static final int WIN_SCORE = 500000;
+
+    /**
+     * The value of one gold. Everything else is measured relative to this.
+     */
+    private static final int GOLD_VALUE = 100;
+
+    /**
+     * A unit's health times its combat strength is divided by this, so that a marine at full
+     * health is worth about what it costs.
+     */
+    private static final int MATERIAL_DIVISOR = 50;
+    private static final int GOLD_MINE_VALUE = 40;
+    private static final int FORWARD_FORT_VALUE = 150;
+    private static final int CARRIED_FLAG_VALUE = 600;
+    private static final int CARRIER_STEP_VALUE = 60;
+    private static final int LOOSE_FLAG_STEP_VALUE = 15;
+
+    /**
+     * Flags only affect the score while they are within this distance of where they're going.
+     */
+    private static final int FLAG_RANGE = 12;
+
+    private final Board board;
+    private final TileGrid tiles;
+    private final BoardTopology topology;
+    private final Bitboards bitboards;
+
+    /**
+     * The indices of the fort tiles of each player, by ordinal. A flag is captured by carrying it
+     * onto one of these.
+     */
+    private final int[][] forts;
+
+    /**
+     * Scores are kept from the point of view of this player.
+     */
+    private final Player firstPlayer;
+
+    /**
+     * The score of each tile, and their total.
+     */
+    private final int[] tileScores;
+    private int tilesScore;
+
+    /**
+     * For each tile, the ordinal of the owner of its unit plus one if the unit could pick up a
+     * flag, or 0 if it couldn't or there is no unit.
+     */
+    private final byte[] carriers;
+
+    /**
+     * The tiles with loose flags: flags on the ground, with no unit on them.
+     */
+    private final boolean[] looseFlags;
+    private final int[] looseFlagList;
+    private int looseFlagCount;
+
+    /**
+     * For each loose flag, the amount of tiles at each distance (up to {@link #FLAG_RANGE}) from
+     * it with units in {@link #carriers} that are enemies of the flag's owner, by tile index *
+     * {@link #FLAG_RANGE} + distance.
+     */
+    private final int[] nearbyCarriers;
+
+    /**
+     * The score of each loose flag, and their total.
+     */
+    private final int[] looseFlagScores;
+    private int looseFlagsScore;
+
+    /**
+     * Constructs a new evaluator for the given board, and registers it as a listener to the
+     * board, so that it stays up to date for as long as the board is used.
+     *
+     * @param board the board (non-null)
+     * @throws NullPointerException if {@code board == null}
+     */
+    public Evaluator(Board board) {
+        Objects.requireNonNull(board);
+        this.board = board;
+        tiles = board.getTileGrid();
+        topology = board.getTopology();
+        bitboards = board.getBitboards();
+        firstPlayer = board.getPlayer(PlayerInfo.values()[0]);
+
+        final int[] fortCounts = new int[PlayerInfo.values().length];
+        final int[][] fortIndices = new int[PlayerInfo.values().length][tiles.size()];
+        for (int i = 0; i < tiles.size(); i++) {
+            final Tile tile = tiles.get(i);
+            if (tile instanceof FortTile && tile.getOwner() != null) {
+                final int p = tile.getOwner().getInfo().ordinal();
+                fortIndices[p][fortCounts[p]++] = i;
+            }
+        }
+        forts = new int[fortIndices.length][];
+        for (int p = 0; p < forts.length; p++) {
+            forts[p] = Arrays.copyOf(fortIndices[p], fortCounts[p]);
+        }
+
+        tileScores = new int[tiles.size()];
+        carriers = new byte[tiles.size()];
+        for (int i = 0; i < tiles.size(); i++) {
+            tileScores[i] = scoreTile(tiles.get(i));
+            tilesScore += tileScores[i];
+            carriers[i] = getCarrier(tiles.get(i));
+        }
+        looseFlags = new boolean[tiles.size()];
+        looseFlagList = new int[tiles.size()];
+        nearbyCarriers = new int[tiles.size() * FLAG_RANGE];
+        looseFlagScores = new int[tiles.size()];
+        for (int i = 0; i < tiles.size(); i++) {
+            updateLooseFlag(tiles.get(i));
+        }
+        board.addTileListener(this);
+    }
+
+    /**
+     * Scores the current position of the board for the given player.
+     *
+     * @param player the player to score for
+     * @return the score
+     */
+    public int evaluate(Player player) {
+        if (board.isGameOver()) {
+            return board.getWinner() == player ? WIN_SCORE : -WIN_SCORE;
+        }
+        final int score = tilesScore + scoreGold() + looseFlagsScore;
+        return player == firstPlayer ? score : -score;
+    }
+
+    /**
+     * Scores the current position of the board for the given player, working out the score of
+     * every tile again instead of using the kept scores. This always gives the same result as
+     * {@link #evaluate}, only slower.
+     *
+     * @param player the player to score for
+     * @return the score
+     */
+    public int evaluateFromScratch(Player player) {
+        if (board.isGameOver()) {
+            return board.getWinner() == player ? WIN_SCORE : -WIN_SCORE;
+        }
+        int score = scoreGold() + scoreLooseFlags();
+        for (int i = 0; i < tiles.size(); i++) {
+            score += scoreTile(tiles.get(i));
+        }
+        return player == firstPlayer ? score : -score;
+    }
+
+    /**
+     * Scores the position after each of the given actions for the current player. Each action is
+     * applied to the board, scored, and undone, so the board must not be used by anything else
+     * while this runs.
+     *
+     * @param actions the actions (each legal for the current position)
+     * @param count   the amount of actions
+     * @param scores  the array to put the score after each action into, at the same index
+     */
+    public void evaluateActions(int[] actions, int count, int[] scores) {
+        final Player player = board.getCurrentPlayer();
+        for (int i = 0; i < count; i++) {
+            board.applyAction(actions[i]);
+            scores[i] = evaluate(player);
+            board.undoAction();
+        }
+    }
+
+    /**
+     * Scores the given tile, from the point of view of {@link #firstPlayer}.
+     *
+     * @param tile the tile
+     * @return the score
+     */
+    private int scoreTile(Tile tile) {
+        int score = 0;
+        if (tile instanceof ForwardFortTile && tile.getOwner() != null) {
+            score += tile.getOwner() == firstPlayer ? FORWARD_FORT_VALUE : -FORWARD_FORT_VALUE;
+        }
+        if (tile.hasUnit()) {
+            final int unitScore = scoreUnit(tile);
+            score += tile.getUnit().getOwner() == firstPlayer ? unitScore : -unitScore;
+        }
+        return score;
+    }
+
+    /**
+     * Scores the gold of each player, from the point of view of {@link #firstPlayer}.
+     *
+     * @return the score
+     */
+    private int scoreGold() {
+        int score = 0;
+        for (PlayerInfo info : PlayerInfo.values()) {
+            final Player player = board.getPlayer(info);
+            final int gold = player.getGold() * GOLD_VALUE;
+            score += player == firstPlayer ? gold : -gold;
+        }
+        return score;
+    }
+
+    /**
+     * Scores the flags on the ground, from the point of view of {@link #firstPlayer}. A loose flag
+     * that an enemy is close to counts against the flag's owner.
+     *
+     * @return the score
+     */
+    private int scoreLooseFlags() {
+        int score = 0;
+        final long[] flags = bitboards.getFlags();
+        for (int i = Bitboards.nextSetBit(flags, 0); i >= 0;
+             i = Bitboards.nextSetBit(flags, i + 1)) {
+            final Tile tile = tiles.get(i);
+            if (!tile.hasUnit()) {
+                final int threat = looseFlagThreat(tile);
+                score += tile.getFlag().getOwner() == firstPlayer ? -threat : threat;
+            }
+        }
+        return score;
+    }
+
+    /**
+     * Scores the unit on the given tile for its owner.
+     *
+     * @param tile the tile (must have a unit)
+     * @return the score
+     */
+    private int scoreUnit(Tile tile) {
+        final Unit unit = tile.getUnit();
+        int score = unit.getHealth() * unit.getCombatStrength() / MATERIAL_DIVISOR;
+        if (tile instanceof GoldTile) {
+            score += GOLD_MINE_VALUE;
+        }
+        if (unit.hasFlag()) {
+            final int distance = distanceToFort(tile.getIndex(), unit.getOwner());
+            score += CARRIED_FLAG_VALUE
+                     + CARRIER_STEP_VALUE * Math.max(0, FLAG_RANGE - distance);
+        }
+        return score;
+    }
+
+    /**
+     * Gets how threatened the flag on the given tile is, based on how close the nearest enemy unit
+     * that can carry it is.
+     *
+     * @param tile the tile holding the flag
+     * @return the threat
+     */
+    private int looseFlagThreat(Tile tile) {
+        final Player flagOwner = tile.getFlag().getOwner();
+        int nearest = Integer.MAX_VALUE;
+        for (PlayerInfo info : PlayerInfo.values()) {
+            final Player enemy = board.getPlayer(info);
+            if (enemy == flagOwner) {
+                continue;
+            }
+            final long[] units = bitboards.getUnits(enemy);
+            for (int i = Bitboards.nextSetBit(units, 0); i >= 0;
+                 i = Bitboards.nextSetBit(units, i + 1)) {
+                final Unit unit = tiles.get(i).getUnit();
+                if (unit.canCarryFlag() && !unit.hasFlag()) {
+                    nearest = Math.min(nearest, topology.distance(i, tile.getIndex()));
+                }
+            }
+        }
+        if (nearest == Integer.MAX_VALUE) {
+            return 0;
+        }
+        return LOOSE_FLAG_STEP_VALUE * Math.max(0, FLAG_RANGE - nearest);
+    }
+
+    private int distanceToFort(int index, Player player) {
+        int nearest = tiles.size();
+        for (int fort : forts[player.getInfo().ordinal()]) {
+            nearest = Math.min(nearest, topology.distance(index, fort));
+        }
+        return nearest;
+    }
+
+    private void update(Tile tile) {
+        final int index = tile.getIndex();
+        tilesScore -= tileScores[index];
+        tileScores[index] = scoreTile(tile);
+        tilesScore += tileScores[index];
+    }
+
+    private static byte getCarrier(Tile tile) {
+        final Unit unit = tile.getUnit();
+        if (unit != null && unit.canCarryFlag() && !unit.hasFlag()) {
+            return (byte) (unit.getOwner().getInfo().ordinal() + 1);
+        }
+        return 0;
+    }
+
+    /**
+     * Updates {@link #carriers} for the given tile, and the counts of the loose flags near it.
+     */
+    private void updateCarrier(Tile tile) {
+        final int index = tile.getIndex();
+        final byte oldCarrier = carriers[index];
+        final byte newCarrier = getCarrier(tile);
+        if (oldCarrier == newCarrier) {
+            return;
+        }
+        carriers[index] = newCarrier;
+        for (int i = 0; i < looseFlagCount; i++) {
+            final int flagIndex = looseFlagList[i];
+            final int distance = topology.distance(flagIndex, index);
+            if (distance < FLAG_RANGE) {
+                final int flagOwner = tiles.get(flagIndex).getFlag().getOwner().getInfo().ordinal()
+                                      + 1;
+                if (oldCarrier != 0 && oldCarrier != flagOwner) {
+                    nearbyCarriers[flagIndex * FLAG_RANGE + distance]--;
+                }
+                if (newCarrier != 0 && newCarrier != flagOwner) {
+                    nearbyCarriers[flagIndex * FLAG_RANGE + distance]++;
+                }
+                updateLooseFlagScore(tiles.get(flagIndex));
+            }
+        }
+    }
+
+    /**
+     * Checks if the given tile has a loose flag, and if so, counts the units near it again. This
+     * goes over the whole board, but flags are dropped and picked up far less often than units
+     * move.
+     */
+    private void updateLooseFlag(Tile tile) {
+        final int index = tile.getIndex();
+        final boolean loose = tile.getFlag() != null && !tile.hasUnit();
+        if (loose != looseFlags[index]) {
+            looseFlags[index] = loose;
+            if (loose) {
+                looseFlagList[looseFlagCount++] = index;
+            } else {
+                for (int i = 0; i < looseFlagCount; i++) {
+                    if (looseFlagList[i] == index) {
+                        looseFlagList[i] = looseFlagList[--looseFlagCount];
+                        break;
+                    }
+                }
+            }
+        }
+
+        Arrays.fill(nearbyCarriers, index * FLAG_RANGE, (index + 1) * FLAG_RANGE, 0);
+        if (loose) {
+            final int flagOwner = tile.getFlag().getOwner().getInfo().ordinal() + 1;
+            for (int i = 0; i < tiles.size(); i++) {
+                final int distance = topology.distance(index, i);
+                if (carriers[i] != 0 && carriers[i] != flagOwner && distance < FLAG_RANGE) {
+                    nearbyCarriers[index * FLAG_RANGE + distance]++;
+                }
+            }
+        }
+        updateLooseFlagScore(tile);
+    }
+
+    private void updateLooseFlagScore(Tile tile) {
+        final int index = tile.getIndex();
+        int score = 0;
+        if (looseFlags[index]) {
+            for (int distance = 0; distance < FLAG_RANGE; distance++) {
+                if (nearbyCarriers[index * FLAG_RANGE + distance] > 0) {
+                    score = LOOSE_FLAG_STEP_VALUE * (FLAG_RANGE - distance);
+                    break;
+                }
+            }
+            if (tile.getFlag().getOwner() == firstPlayer) {
+                score = -score;
+            }
+        }
+        looseFlagsScore += score - looseFlagScores[index];
+        looseFlagScores[index] = score;
+    }
+
+    @Override
+    public void onUnitChange(Tile tile) {
+        update(tile);
+        updateCarrier(tile);
+        if (tile.getFlag() != null || looseFlags[tile.getIndex()]) {
+            updateLooseFlag(tile);
+        }
+    }
+
+    @Override
+    public void onOwnerChange(Tile tile) {
+        update(tile);
+    }
+
+    @Override
+    public void onFlagChange(Tile tile) {
+        updateLooseFlag(tile);
+    }
+}
@@ -0,0 +1,102 @@
+package groundwar.ai;
+
+import java.io.IOException;
+
+import groundwar.board.Board;
+import groundwar.board.MoveGenerator;
+import groundwar.board.Player;
+import groundwar.util.GameRandom;
+
+/**
+ * Compares the kept scores of {@link Evaluator} with scoring every tile from scratch. Random games
+ * are played on the shipped board from a fixed seed, and at each position, the position after
+ * each legal action is scored both ways. The scores must match, and the time spent in each is
+ * reported, both for scoring alone and for applying, scoring and undoing each action as the search
+ * does.
+ *
+ * Arguments, all optional: the amount of positions to score (default 2000), and the seed (default
+ * 1).
+ */
+public class EvaluatorBenchmark {
+
+    private static final int REPEATS = 16;
+
+    public static void main(String[] args) throws IOException {
+        final int positions = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+        final long seed = args.length > 1 ? Long.parseLong(args[1]) : 1L;
+
+        final GameRandom random = new GameRandom(seed);
+        Board board = new Board(seed);
+        Evaluator evaluator = new Evaluator(board);
+        MoveGenerator generator = new MoveGenerator(board);
+        final int[] actions = new int[generator.getMaxActions()];
+        final int[] scores = new int[actions.length];
+
+        long evaluations = 0L;
+        long incrementalTime = 0L;
+        long scratchTime = 0L;
+        long batchTime = 0L;
+        long scratchBatchTime = 0L;
+        long sink = 0L; // Keeps the scores from being optimized away
+        for (int p = 0; p < positions; p++) {
+            int count = generator.generate(actions);
+            if (count == 0) {
+                // The game is over, start a new one
+                board = new Board(random.nextLong());
+                evaluator = new Evaluator(board);
+                generator = new MoveGenerator(board);
+                count = generator.generate(actions);
+            }
+            final Player player = board.getCurrentPlayer();
+
+            long start = System.nanoTime();
+            evaluator.evaluateActions(actions, count, scores);
+            batchTime += System.nanoTime() - start;
+
+            start = System.nanoTime();
+            for (int i = 0; i < count; i++) {
+                board.applyAction(actions[i]);
+                final int score = evaluator.evaluateFromScratch(player);
+                board.undoAction();
+                if (score != scores[i]) {
+                    throw new IllegalStateException(String.format(
+                        "Kept score %d doesn't match score from scratch %d", scores[i], score));
+                }
+            }
+            scratchBatchTime += System.nanoTime() - start;
+
+            // Score each resulting position alone, without the cost of applying actions. Each is
+            // scored a few times, since one evaluation is too quick to time on its own.
+            for (int i = 0; i < count; i++) {
+                board.applyAction(actions[i]);
+                start = System.nanoTime();
+                for (int r = 0; r < REPEATS; r++) {
+                    sink += evaluator.evaluate(player);
+                }
+                incrementalTime += System.nanoTime() - start;
+                start = System.nanoTime();
+                for (int r = 0; r < REPEATS; r++) {
+                    sink -= evaluator.evaluateFromScratch(player);
+                }
+                scratchTime += System.nanoTime() - start;
+                board.undoAction();
+            }
+            evaluations += count;
+
+            board.applyAction(actions[Math.min((int) (random.nextFloat() * count), count - 1)]);
+        }
+
+        if (sink != 0L) {
+            throw new IllegalStateException("Kept scores don't match scores from scratch");
+        }
+        System.out.printf("%,d positions scored, all matching%n", evaluations);
+        System.out.printf("Scoring:                 kept %6.0f ns, from scratch %6.0f ns (%.1fx)%n",
+                          (double) incrementalTime / (evaluations * REPEATS),
+                          (double) scratchTime / (evaluations * REPEATS),
+                          (double) scratchTime / incrementalTime);
+        System.out.printf("Apply, score, and undo:  kept %6.0f ns, from scratch %6.0f ns (%.1fx)%n",
+                          (double) batchTime / evaluations,
+                          (double) scratchBatchTime / evaluations,
+                          (double) scratchBatchTime / batchTime);
+    }
+}
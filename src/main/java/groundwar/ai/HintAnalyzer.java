@@ -0,0 +1,297 @@
+package groundwar.ai;
+
+import java.io.IOException;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import groundwar.board.Board;
+import groundwar.board.BoardListener;
+import groundwar.util.Constants;
+
+/**
+ * Suggests actions to a person while they play. The position is searched on a background thread,
+ * against a copy of the board, over and over for longer and longer, and the hint is replaced with
+ * a better one after each search. A search can keep using its table from the one before, so each
+ * one gets deeper.
+ *
+ * As a {@link BoardListener}, the analyzer cancels its work as soon as an action is applied to or
+ * undone on the board: the search is stopped, and anything it finds afterwards is thrown out. The
+ * board's thread never waits for the background thread, and only ever sees a finished hint, for
+ * a position that it checks against the board's hash. Only two copies of the board are ever made:
+ * one for the background thread to search, and one to hand it the next position in, which is
+ * taken back and reused if the background thread hasn't got to it yet. So after the first couple
+ * of positions, a new position only costs a {@link Board#copyStateFrom}. Each copy gets a new,
+ * unpredictable random state, so that a hint can never give away how an attack will really turn
+ * out.
+ *
+ * All methods except {@link #shutdown()} must be called on the thread that the board is used on.
+ */
+public class HintAnalyzer implements BoardListener {
+
+    private final Searcher search;
+    private final ExecutorService executor;
+
+    /**
+     * Copies of the board that the background thread isn't using.
+     */
+    private final Queue<Board> spareBoards = new ConcurrentLinkedQueue<>();
+
+    /**
+     * The latest request, until the background thread starts on it, or {@code null}.
+     */
+    private final AtomicReference<Request> pending = new AtomicReference<>();
+
+    /**
+     * Goes up each time the analysis is cancelled, so that the background thread can tell that
+     * its work is out of date. Only changed by the board's thread.
+     */
+    private volatile int generation;
+
+    /**
+     * Whether a position is being analyzed, and the hash of that position.
+     */
+    private boolean analyzing;
+    private long analyzingHash;
+
+    /**
+     * The latest hint, or {@code null} if there hasn't been one yet.
+     */
+    private volatile Hint hint;
+
+    /**
+     * Told whenever there is a new hint, or {@code null}.
+     */
+    private volatile Runnable hintListener;
+
+    /**
+     * Constructs a new analyzer, which uses alpha-beta search on every available processor.
+     */
+    public HintAnalyzer() {
+        this(new LazySmp(Constants.AI_THREADS, Constants.AI_TABLE_SIZE_LOG2));
+    }
+
+    /**
+     * Constructs a new analyzer. The searcher belongs to the analyzer from now on, and is shut down
+     * along with it.
+     *
+     * @param search the searcher to find hints with (non-null)
+     * @throws NullPointerException if {@code search == null}
+     */
+    public HintAnalyzer(Searcher search) {
+        Objects.requireNonNull(search);
+        this.search = search;
+
+        // One thread, which goes away while there is nothing to analyze
+        final ThreadPoolExecutor threadPool = new ThreadPoolExecutor(
+            1, 1, 1L, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), runnable -> {
+            final Thread thread = new Thread(runnable, "Hint analyzer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        threadPool.allowCoreThreadTimeOut(true);
+        executor = threadPool;
+    }
+
+    /**
+     * Sets something to be run whenever there is a new hint. It's run on the background thread,
+     * so it must be thread-safe. This replaces any previous listener.
+     *
+     * @param hintListener the listener (null for no listener)
+     */
+    public void setHintListener(Runnable hintListener) {
+        this.hintListener = hintListener;
+    }
+
+    /**
+     * Makes sure that the current position of the given board is being analyzed. If it already
+     * is, nothing happens, so this can be called every frame. Otherwise, any analysis of another
+     * position is cancelled, and the board is copied before this returns.
+     *
+     * @param board the board (non-null)
+     * @throws NullPointerException if {@code board == null}
+     */
+    public void analyze(Board board) {
+        Objects.requireNonNull(board);
+        if (analyzing && board.getHash() == analyzingHash) {
+            return;
+        }
+        cancel();
+        if (board.isGameOver()) {
+            return;
+        }
+
+        analyzing = true;
+        analyzingHash = board.getHash();
+
+        // A request that the background thread hasn't started on yet can be taken back, so there
+        // are never more than two copies: the one being searched, and the one being handed over
+        final Request waiting = pending.getAndSet(null);
+        Board copy = waiting != null ? waiting.position : spareBoards.poll();
+        if (copy == null) {
+            try {
+                copy = new Board(board);
+            } catch (IOException e) {
+                System.err.println("Error copying board for hints!");
+                e.printStackTrace();
+                return;
+            }
+        } else {
+            copy.copyStateFrom(board);
+        }
+        // Hints mustn't know how the board's next attack will turn out
+        copy.setRandomState(ThreadLocalRandom.current().nextLong());
+        pending.set(new Request(copy, generation));
+        executor.execute(() -> {
+            final Request request = pending.getAndSet(null);
+            if (request != null) { // Otherwise, it was taken back for a newer request
+                refine(request.position, request.generation);
+                spareBoards.add(request.position);
+            }
+        });
+    }
+
+    /**
+     * Searches the given position for longer and longer, updating the hint after each search,
+     * until the time limit is reached, a search finishes early, the request is cancelled, or this
+     * analyzer is shut down.
+     * Runs on the background thread.
+     *
+     * @param position the position
+     * @param request  the {@link #generation} that the request was made in
+     */
+    private void refine(Board position, int request) {
+        // Reset before checking the request, so a cancel can't slip in between the two
+        search.reset();
+        if (request != generation) {
+            return;
+        }
+
+        final long hash = position.getHash();
+        final long timeLimit = Constants.HINT_TIME_LIMIT * 1000000L;
+        long searchTime = Constants.HINT_FIRST_SEARCH_TIME * 1000000L;
+        long timeUsed = 0L;
+        int searches = 0;
+        while (timeUsed < timeLimit && !executor.isShutdown()) {
+            final long start = System.nanoTime();
+            final int action;
+            try {
+                action = search.search(position, Math.min(searchTime, timeLimit - timeUsed));
+            } catch (IOException e) {
+                System.err.println("Error setting up the hint search!");
+                e.printStackTrace();
+                return;
+            }
+            if (request != generation) {
+                return; // Cancelled, so the search may have been cut short
+            }
+            hint = new Hint(hash, action, ++searches);
+            final Runnable listener = hintListener;
+            if (listener != null) {
+                listener.run();
+            }
+            final long elapsed = System.nanoTime() - start;
+            if (elapsed < searchTime / 2) {
+                // The search finished early, so the position is decided and won't get any better
+                return;
+            }
+            timeUsed += elapsed;
+            searchTime *= 2;
+        }
+    }
+
+    /**
+     * Stops any analysis in progress. The current hint stays, but won't be given for any other
+     * position.
+     */
+    public void cancel() {
+        if (analyzing) {
+            analyzing = false;
+            generation++; // Only this thread changes it, so this is safe
+            search.stop();
+        }
+    }
+
+    /**
+     * Gets the best action found so far for the current position of the given board.
+     *
+     * @param board the board (non-null)
+     * @return the action, or {@link TranspositionTable#NO_ACTION} if there is no hint for this
+     * position yet
+     * @throws NullPointerException if {@code board == null}
+     */
+    public int getHint(Board board) {
+        final Hint hint = this.hint;
+        return hint != null && hint.hash == board.getHash() ? hint.action
+                                                              : TranspositionTable.NO_ACTION;
+    }
+
+    /**
+     * Gets how many searches the hint for the current position of the given board comes from. The
+     * more searches, the longer the position has been searched.
+     *
+     * @param board the board (non-null)
+     * @return the amount of searches, or 0 if there is no hint for this position yet
+     * @throws NullPointerException if {@code board == null}
+     */
+    public int getHintSearches(Board board) {
+        final Hint hint = this.hint;
+        return hint != null && hint.hash == board.getHash() ? hint.searches : 0;
+    }
+
+    @Override
+    public void onPositionChange() {
+        cancel();
+    }
+
+    /**
+     * Stops any analysis in progress, and shuts down the searcher and the background thread. This
+     * analyzer can't be used afterwards. Can be called from any thread, more than once.
+     */
+    public synchronized void shutdown() {
+        if (executor.isShutdown()) {
+            return;
+        }
+        search.stop();
+
+        // Shut the searcher down on the background thread, once any search has finished
+        executor.execute(search::shutdown);
+        executor.shutdown();
+    }
+
+    /**
+     * A position to analyze, and the {@link #generation} that it was asked for in.
+     */
+    private static class Request {
+
+        private final Board position;
+        private final int generation;
+
+        private Request(Board position, int generation) {
+            this.position = position;
+            this.generation = generation;
+        }
+    }
+
+    /**
+     * An action suggested for the position with the given hash.
+     */
+    private static class Hint {
+
+        private final long hash;
+        private final int action;
+        private final int searches;
+
+        private Hint(long hash, int action, int searches) {
+            this.hash = hash;
+            this.action = action;
+            this.searches = searches;
+        }
+    }
+}
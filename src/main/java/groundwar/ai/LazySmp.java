@@ -0,0 +1,222 @@
+package groundwar.ai;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import groundwar.board.Board;
+
+/**
+ * Searches one position on many threads at once, using "Lazy SMP": every thread runs its own
+ * {@link AlphaBeta} search of the same position, on its own copy of the board, and the threads
+ * only work together through one shared {@link TranspositionTable}. Each thread finds positions
+ * that the others have already searched in the table, so together they get deeper than one thread
+ * would. Helper threads skip some depths, so they don't all do the same work at the same time.
+ *
+ * The thread that calls {@link #search} runs the main search, and the result is taken from
+ * whichever thread finished the deepest search. A {@code LazySmp} keeps its boards and threads
+ * between searches, so it should be reused for each position.
+ */
+public class LazySmp implements Searcher {
+
+    private final int threads;
+    private final TranspositionTable table;
+    private final boolean ownsTable;
+    private final ExecutorService helperPool;
+
+    /**
+     * The board and search for each thread, with the main thread's first. Created for the first
+     * position that is searched.
+     */
+    private Board[] boards;
+    private volatile AlphaBeta[] searches;
+
+    private volatile boolean stopped;
+
+    /**
+     * Constructs a new search, with a new table that is deleted by {@link #shutdown()}.
+     *
+     * @param threads       the amount of threads to search with, including the calling thread
+     *                      (positive)
+     * @param tableSizeLog2 the base-2 log of the amount of entries in the table
+     * @throws IllegalArgumentException if {@code threads <= 0} or {@code tableSizeLog2} is out of
+     *                                  range
+     */
+    public LazySmp(int threads, int tableSizeLog2) {
+        this(threads, new TranspositionTable(tableSizeLog2), true);
+    }
+
+    /**
+     * Constructs a new search, using a table that belongs to the caller.
+     *
+     * @param threads the amount of threads to search with, including the calling thread (positive)
+     * @param table   the table to share between the threads (non-null)
+     * @throws IllegalArgumentException if {@code threads <= 0}
+     * @throws NullPointerException     if {@code table == null}
+     */
+    public LazySmp(int threads, TranspositionTable table) {
+        this(threads, table, false);
+    }
+
+    private LazySmp(int threads, TranspositionTable table, boolean ownsTable) {
+        if (threads <= 0) {
+            throw new IllegalArgumentException("Need at least one thread");
+        }
+        Objects.requireNonNull(table);
+        this.threads = threads;
+        this.table = table;
+        this.ownsTable = ownsTable;
+        helperPool = threads > 1 ? Executors.newFixedThreadPool(threads - 1, runnable -> {
+            final Thread thread = new Thread(runnable, "Search helper");
+            thread.setDaemon(true);
+            return thread;
+        }) : null;
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    @Override
+    public int search(Board position, long timeLimit) throws IOException {
+        Objects.requireNonNull(position);
+        if (boards == null) {
+            // Only publish the searches once they're all created, since stop() may look at them
+            final Board[] newBoards = new Board[threads];
+            final AlphaBeta[] newSearches = new AlphaBeta[threads];
+            for (int i = 0; i < threads; i++) {
+                newBoards[i] = new Board(position);
+                newSearches[i] = new AlphaBeta(newBoards[i], table);
+                if (i > 0) {
+                    newSearches[i].setHelperIndex(i - 1);
+                }
+            }
+            boards = newBoards;
+            searches = newSearches;
+        }
+        final AlphaBeta[] searches = this.searches;
+        for (AlphaBeta search : searches) {
+            search.reset();
+        }
+        if (stopped) {
+            stop(); // Stopped before the searches were set up, so pass it on to them
+        }
+
+        // Start the helpers, each copying the position onto its own board first
+        final List<Future<?>> helpers = new ArrayList<>(threads - 1);
+        for (int i = 1; i < threads; i++) {
+            final int index = i;
+            helpers.add(helperPool.submit(() -> {
+                boards[index].copyStateFrom(position);
+                searches[index].search(timeLimit);
+            }));
+        }
+
+        try {
+            boards[0].copyStateFrom(position);
+            searches[0].search(timeLimit);
+        } finally {
+            // The main search is done, so stop the helpers, and always wait for them, so that
+            // nothing is still using the table once this returns
+            for (int i = 1; i < threads; i++) {
+                searches[i].stop();
+            }
+            awaitHelpers(helpers);
+        }
+
+        // Take the action from the deepest search, preferring the main search
+        AlphaBeta best = searches[0];
+        for (int i = 1; i < threads; i++) {
+            if (searches[i].getCompletedDepth() > best.getCompletedDepth()) {
+                best = searches[i];
+            }
+        }
+        return best.getBestAction();
+    }
+
+    /**
+     * Waits for every one of the given helpers to finish, even if this thread is interrupted. The
+     * helpers have already been stopped, so this doesn't take long. If the thread was interrupted,
+     * it's interrupted again once every helper has finished.
+     */
+    private static void awaitHelpers(List<Future<?>> helpers) {
+        boolean interrupted = false;
+        for (Future<?> helper : helpers) {
+            while (true) {
+                try {
+                    helper.get();
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                } catch (ExecutionException e) {
+                    System.err.println("Error in search helper!");
+                    e.getCause().printStackTrace();
+                    break;
+                }
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Gets the main search, whose stats describe the last search.
+     *
+     * @return the main search, or {@code null} if nothing has been searched yet
+     */
+    public AlphaBeta getMainSearch() {
+        return searches == null ? null : searches[0];
+    }
+
+    /**
+     * Gets the total amount of positions visited by every thread in the last search.
+     *
+     * @return the amount of positions
+     */
+    public long getNodes() {
+        long nodes = 0;
+        if (searches != null) {
+            for (AlphaBeta search : searches) {
+                nodes += search.getNodes();
+            }
+        }
+        return nodes;
+    }
+
+    @Override
+    public void stop() {
+        stopped = true;
+        final AlphaBeta[] searches = this.searches;
+        if (searches != null) {
+            for (AlphaBeta search : searches) {
+                search.stop();
+            }
+        }
+    }
+
+    @Override
+    public void reset() {
+        stopped = false;
+    }
+
+    /**
+     * Shuts down the helper threads, and deletes the table if this search created it. This search
+     * can't be used afterwards. This must not be called while a search is running.
+     */
+    @Override
+    public void shutdown() {
+        stop();
+        if (helperPool != null) {
+            helperPool.shutdown();
+        }
+        if (ownsTable) {
+            table.delete();
+        }
+    }
+}
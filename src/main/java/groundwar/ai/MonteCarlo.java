@@ -0,0 +1,323 @@
+package groundwar.ai;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+import groundwar.board.Action;
+import groundwar.board.Board;
+import groundwar.board.MoveGenerator;
+import groundwar.board.PlayerInfo;
+import groundwar.util.GameRandom;
+
+/**
+ * Searches for the best action for the current player of a board, using Monte Carlo tree search
+ * with UCT selection. Each iteration walks down the tree, picking the action with the best UCT
+ * score at each position, adds the position it reaches to the tree, then plays random actions from
+ * there for a while and scores the result. The score of each node on the way down is updated with
+ * the result, so good actions get tried more and more.
+ *
+ * Combat is random, so attacks are chance nodes (see {@link SearchTree}). At the start of each
+ * iteration, the board's random number generator is given a new state, so each time an attack is
+ * walked through it may have a different result, and each result gets its own subtree.
+ *
+ * The search is root-parallel: each thread builds its own tree from its own copy of the board,
+ * with nothing shared, on a {@link ForkJoinPool}. When time runs out, the visit counts of the
+ * root's children are added up across the trees, and the most visited action is chosen.
+ */
+public class MonteCarlo implements Searcher {
+
+    /**
+     * How much UCT favors actions that have been tried less.
+     */
+    private static final float EXPLORATION = 1.0f;
+
+    /**
+     * How many random actions a playout takes before the position is scored.
+     */
+    private static final int PLAYOUT_LENGTH = 40;
+
+    /**
+     * The evaluator score at which a playout counts as about 73% of a win.
+     */
+    private static final float REWARD_SCALE = 1000f;
+
+    private final int threads;
+    private final int nodesPerThread;
+    private final ForkJoinPool pool;
+
+    /**
+     * The work for each thread. Created for the first position that is searched.
+     */
+    private Worker[] workers;
+
+    private volatile boolean stopped;
+
+    /**
+     * Constructs a new search.
+     *
+     * @param threads the amount of threads to search with (positive)
+     * @param nodes   the most tree nodes to keep, split between the threads (at least {@code
+     *                threads})
+     * @throws IllegalArgumentException if {@code threads <= 0} or {@code nodes < threads}
+     */
+    public MonteCarlo(int threads, int nodes) {
+        if (threads <= 0) {
+            throw new IllegalArgumentException("Need at least one thread");
+        }
+        if (nodes < threads) {
+            throw new IllegalArgumentException("Need at least one node per thread");
+        }
+        this.threads = threads;
+        nodesPerThread = nodes / threads;
+        pool = new ForkJoinPool(threads);
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    @Override
+    public int search(Board position, long timeLimit) throws IOException {
+        Objects.requireNonNull(position);
+        final long deadline = System.nanoTime() + timeLimit;
+        if (workers == null) {
+            workers = new Worker[threads];
+            for (int i = 0; i < threads; i++) {
+                workers[i] = new Worker(new Board(position), nodesPerThread);
+            }
+        }
+
+        // Each thread gets its own independent, but repeatable, stream of random numbers
+        final GameRandom streams = new GameRandom(position.getHash());
+        final ForkJoinTask<?>[] tasks = new ForkJoinTask<?>[threads];
+        for (int i = 0; i < threads; i++) {
+            final Worker worker = workers[i];
+            final GameRandom random = streams.split();
+            tasks[i] = pool.submit(() -> worker.search(position, random, deadline));
+        }
+        for (ForkJoinTask<?> task : tasks) {
+            try {
+                task.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                stop();
+            } catch (ExecutionException e) {
+                System.err.println("Error in tree search thread!");
+                e.getCause().printStackTrace();
+            }
+        }
+        return pickAction();
+    }
+
+    /**
+     * Adds up the visits of each of the root's actions over all of the trees, and picks the most
+     * visited. Every tree lists the root's actions in the same order, since they all come from the
+     * same position.
+     */
+    private int pickAction() {
+        final SearchTree firstTree = workers[0].tree;
+        if (!firstTree.isExpanded(SearchTree.ROOT)) {
+            return workers[0].onlyAction;
+        }
+
+        final int first = firstTree.getFirstChild(SearchTree.ROOT);
+        final int count = firstTree.getChildCount(SearchTree.ROOT);
+        int bestAction = firstTree.getAction(first);
+        long bestVisits = -1L;
+        for (int i = 0; i < count; i++) {
+            long visits = 0L;
+            for (Worker worker : workers) {
+                final SearchTree tree = worker.tree;
+                if (tree.isExpanded(SearchTree.ROOT)) {
+                    visits += tree.getVisits(tree.getFirstChild(SearchTree.ROOT) + i);
+                }
+            }
+            if (visits > bestVisits) {
+                bestVisits = visits;
+                bestAction = firstTree.getAction(first + i);
+            }
+        }
+        return bestAction;
+    }
+
+    /**
+     * Gets the total amount of playouts done by every thread in the last search.
+     *
+     * @return the amount of playouts
+     */
+    public long getPlayouts() {
+        long playouts = 0L;
+        if (workers != null) {
+            for (Worker worker : workers) {
+                playouts += worker.playouts;
+            }
+        }
+        return playouts;
+    }
+
+    @Override
+    public void stop() {
+        stopped = true;
+    }
+
+    @Override
+    public void reset() {
+        stopped = false;
+    }
+
+    @Override
+    public void shutdown() {
+        stop();
+        pool.shutdown();
+    }
+
+    /**
+     * Builds one tree, on its own board.
+     */
+    private class Worker {
+
+        private final Board board;
+        private final SearchTree tree;
+        private final MoveGenerator generator;
+        private final Evaluator evaluator;
+        private final int[] actions;
+        private final boolean[] attacks;
+
+        /**
+         * The reward of the last playout for each player, by ordinal.
+         */
+        private final float[] playerRewards = new float[PlayerInfo.values().length];
+
+        /**
+         * The nodes walked through in the current iteration.
+         */
+        private int[] path = new int[64];
+        private int pathLength;
+
+        private GameRandom random;
+        private int onlyAction;
+        private long playouts;
+
+        private Worker(Board board, int nodes) {
+            this.board = board;
+            tree = new SearchTree(nodes);
+            generator = new MoveGenerator(board);
+            evaluator = new Evaluator(board);
+            actions = new int[generator.getMaxActions()];
+            attacks = new boolean[actions.length];
+        }
+
+        private void search(Board position, GameRandom random, long deadline) {
+            board.copyStateFrom(position);
+            tree.reset();
+            this.random = random;
+            playouts = 0L;
+
+            // With only one action, there is nothing to search
+            final int count = generator.generate(actions);
+            onlyAction = count > 0 ? actions[0] : TranspositionTable.NO_ACTION;
+            if (count <= 1) {
+                return;
+            }
+
+            while (!stopped && System.nanoTime() < deadline) {
+                iterate();
+            }
+        }
+
+        /**
+         * Walks down the tree to a new position, plays out from there, and records the result on
+         * the way back up. The board is left as it was.
+         */
+        private void iterate() {
+            board.setRandomState(random.nextLong()); // Try new results for any attacks
+            int applied = 0;
+            int node = SearchTree.ROOT;
+            pathLength = 0;
+            addToPath(node);
+
+            while (!board.isGameOver()) {
+                if (!tree.isExpanded(node)) {
+                    // Only grow the tree from positions that have been reached before
+                    if (node != SearchTree.ROOT && tree.getVisits(node) == 0 || !expand(node)) {
+                        break;
+                    }
+                }
+                final int child = tree.selectChild(node, EXPLORATION);
+                board.applyAction(tree.getAction(child));
+                applied++;
+                addToPath(child);
+
+                if (tree.isChance(child)) {
+                    node = tree.getOrAddResult(child, board.getHash());
+                    if (node == SearchTree.NONE) {
+                        break; // The tree is full
+                    }
+                    addToPath(node);
+                } else {
+                    node = child;
+                }
+            }
+
+            applied += playOut();
+            playouts++;
+            for (int i = 0; i < pathLength; i++) {
+                tree.visit(path[i], playerRewards[tree.getMover(path[i])]);
+            }
+            for (int i = 0; i < applied; i++) {
+                board.undoAction();
+            }
+        }
+
+        private void addToPath(int node) {
+            if (pathLength == path.length) {
+                path = Arrays.copyOf(path, path.length * 2);
+            }
+            path[pathLength++] = node;
+        }
+
+        private boolean expand(int node) {
+            final int count = generator.generate(actions);
+            for (int i = 0; i < count; i++) {
+                attacks[i] = Action.getKind(actions[i]) == Action.ATTACK;
+            }
+            return tree.expand(node, actions, count, board.getCurrentPlayer().getInfo().ordinal(),
+                               attacks);
+        }
+
+        /**
+         * Plays random actions until the game ends or the playout is long enough, then sets {@link
+         * #playerRewards} from the result.
+         *
+         * @return the amount of actions played
+         */
+        private int playOut() {
+            int applied = 0;
+            while (applied < PLAYOUT_LENGTH) {
+                final int count = generator.generate(actions);
+                if (count == 0) {
+                    break; // The game is over
+                }
+                final int index = (int) (random.nextFloat() * count);
+                board.applyAction(actions[Math.min(index, count - 1)]);
+                applied++;
+            }
+
+            for (PlayerInfo info : PlayerInfo.values()) {
+                final float reward;
+                if (board.isGameOver()) {
+                    reward = board.getWinner() == board.getPlayer(info) ? 1f : 0f;
+                } else {
+                    final int score = evaluator.evaluate(board.getPlayer(info));
+                    reward = 1f / (1f + (float) Math.exp(-score / REWARD_SCALE));
+                }
+                playerRewards[info.ordinal()] = reward;
+            }
+            return applied;
+        }
+    }
+}
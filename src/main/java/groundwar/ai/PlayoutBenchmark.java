@@ -0,0 +1,86 @@
+package groundwar.ai;
+
+import java.io.IOException;
+
+import groundwar.board.Action;
+import groundwar.board.Board;
+import groundwar.board.MoveGenerator;
+import groundwar.util.GameRandom;
+
+/**
+ * Measures how fast the rules run on their own, with nothing drawn. Random games are played on
+ * the shipped board on one thread, each action picked from the {@link MoveGenerator} and played
+ * with {@link Board#applyAction}, until the game ends or reaches {@link #MAX_TURNS} turns. Every
+ * game starts from a fresh board, reset with {@link Board#copyStateFrom}. The games are played
+ * for a while first, so that the timed part runs compiled code, and then the turns (end-turn
+ * actions), actions and games per second are reported.
+ *
+ * Arguments, all optional: the time to play for in milliseconds (default 10000), and the seed
+ * (default 1).
+ */
+public class PlayoutBenchmark {
+
+    private static final int MAX_TURNS = 300;
+    private static final long WARM_UP_TIME = 3000L;
+
+    public static void main(String[] args) throws IOException {
+        final long runTime = args.length > 0 ? Long.parseLong(args[0]) : 10000L;
+        final long seed = args.length > 1 ? Long.parseLong(args[1]) : 1L;
+        System.out.printf("Playing random games for %d ms on 1 thread, seed %d, up to %d turns%n",
+                          runTime, seed, MAX_TURNS);
+
+        final Board start = new Board(seed);
+        final Board board = new Board(start);
+        final MoveGenerator generator = new MoveGenerator(board);
+        final int[] actions = new int[generator.getMaxActions()];
+        final GameRandom random = new GameRandom(seed);
+        final Counts warmUp = new Counts();
+        final Counts counts = new Counts();
+        play(start, board, generator, actions, random, WARM_UP_TIME, warmUp);
+        play(start, board, generator, actions, random, runTime, counts);
+
+        final double seconds = counts.time / 1e9;
+        System.out.printf("%,d games (%,d won, %,d hit the turn limit), %,d turns, %,d actions%n",
+                          counts.games, counts.wins, counts.games - counts.wins, counts.turns,
+                          counts.actions);
+        System.out.printf("%,12.0f turns/s%n", counts.turns / seconds);
+        System.out.printf("%,12.0f actions/s%n", counts.actions / seconds);
+        System.out.printf("%,12.0f games/s%n", counts.games / seconds);
+        System.out.printf("%,12.1f actions per turn%n", (double) counts.actions / counts.turns);
+    }
+
+    /**
+     * Plays whole random games until the given time is up, adding them to the counts.
+     */
+    private static void play(Board start, Board board, MoveGenerator generator, int[] actions,
+                             GameRandom random, long runTime, Counts counts) {
+        final long begin = System.nanoTime();
+        final long deadline = begin + runTime * 1000000L;
+        while (System.nanoTime() < deadline) {
+            board.copyStateFrom(start);
+            while (!board.isGameOver() && board.getTurnCount() < MAX_TURNS) {
+                final int count = generator.generate(actions);
+                final int action = actions[Math.min((int) (random.nextFloat() * count), count - 1)];
+                board.applyAction(action);
+                counts.actions++;
+                if (Action.getKind(action) == Action.END_TURN) {
+                    counts.turns++;
+                }
+            }
+            counts.games++;
+            if (board.isGameOver()) {
+                counts.wins++;
+            }
+        }
+        counts.time += System.nanoTime() - begin;
+    }
+
+    private static class Counts {
+
+        private long games;
+        private long wins;
+        private long turns;
+        private long actions;
+        private long time;
+    }
+}
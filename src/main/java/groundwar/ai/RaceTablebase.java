@@ -0,0 +1,501 @@
+package groundwar.ai;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+
+import groundwar.board.Bitboards;
+import groundwar.board.Board;
+import groundwar.board.Player;
+import groundwar.board.PlayerInfo;
+import groundwar.board.TileGrid;
+import groundwar.board.tile.FortTile;
+import groundwar.board.tile.GoldTile;
+import groundwar.board.tile.Tile;
+import groundwar.board.unit.Unit;
+import groundwar.board.unit.UnitType;
+import groundwar.util.Constants;
+import groundwar.util.Funcs;
+
+/**
+ * The perfect-play result of every flag race with a given set of units on a given board, worked
+ * out by {@link RaceTablebaseGenerator}. In a flag race, one player (the racer) has a single unit
+ * left, carrying the other player's flag back to its fort, and the other player (the defender) has
+ * a few units trying to stop it. The race is won by the racer if the carrier reaches one of its
+ * forts, and by the defender if one of its units gets to attack the carrier. Combat is random, so
+ * what happens after an attack is up to luck, but getting the attack is not.
+ *
+ * A position is the tile of the carrier, the tile of each defending unit, and whose move it is.
+ * The defender's turn is split up into one move for each of its units, in any order, so the
+ * defender's moves are positions too: which of its units have already moved is part of the
+ * position. Each position has one byte, holding whether the racer or the defender wins with
+ * perfect play, and in how many plies (moves of one unit), or 0 for a draw. The bytes are laid
+ * out as described by {@link #indexOf}, so a probe is one lookup.
+ *
+ * Nothing but moving is modelled, so positions where either player has the gold to buy a unit,
+ * or where a unit is on a gold tile, aren't covered. The races never go through gold tiles (see
+ * {@link RaceTablebaseGenerator}).
+ *
+ * Tablebases are saved to files with a short header followed by the bytes, and are memory-mapped
+ * when they're loaded, so only the parts that are probed are ever read from disk.
+ */
+public class RaceTablebase {
+
+    /**
+     * Returned by {@link #probe} for positions that this tablebase doesn't cover.
+     */
+    public static final int NOT_COVERED = -1;
+
+    public static final int DRAW = 0;
+
+    /**
+     * The bit of a result that is set if the racer wins. The rest is the amount of plies.
+     */
+    private static final int RACER_WINS = 0x80;
+    static final int MAX_PLIES = 0x7f;
+
+    /**
+     * A result returned by {@link #probe} also holds the phase of the position, above the stored
+     * byte, so that {@link #getTurns} doesn't need to find the position again.
+     */
+    private static final int RESULT_MASK = 0xff;
+    private static final int PHASE_SHIFT = 8;
+
+    /**
+     * The phase of a position where the carrier is to move. Other phases are the defender's, and
+     * are 1 + a mask of the defending units that have already moved.
+     */
+    static final int RACER_PHASE = 0;
+
+    private static final int MAGIC = 0x47575442; // "GWTB"
+    private static final int VERSION = 2;
+
+    private final PlayerInfo racer;
+    private final UnitType[] defenders;
+    private final int tileCount;
+    private final long signature;
+    private final ByteBuffer results;
+
+    /**
+     * The amount of positions in each phase, which is the amount of tiles to the power of the
+     * amount of units.
+     */
+    private final int phaseSize;
+
+    /**
+     * The tile of each defending unit, filled in by {@link #findIndex} for each probe.
+     */
+    private final int[] units;
+
+    /**
+     * Constructs a new tablebase.
+     *
+     * @param racer     the racing player
+     * @param defenders the types of the defending units, in the order they're indexed
+     * @param tileCount the amount of tiles on the board
+     * @param signature the {@link #getSignature signature} of the board
+     * @param results   the result of each position, starting at the current position of the
+     *                  buffer
+     */
+    RaceTablebase(PlayerInfo racer, UnitType[] defenders, int tileCount, long signature,
+                  ByteBuffer results) {
+        this.racer = racer;
+        this.defenders = defenders.clone();
+        this.tileCount = tileCount;
+        this.signature = signature;
+        this.results = results.slice();
+        phaseSize = (int) getPhaseSize(tileCount, defenders.length);
+        units = new int[defenders.length];
+        if (this.results.capacity() != (long) phaseSize * getPhases(defenders.length)) {
+            throw new IllegalArgumentException("Wrong amount of results for the tablebase");
+        }
+    }
+
+    public PlayerInfo getRacer() {
+        return racer;
+    }
+
+    public UnitType[] getDefenders() {
+        return defenders.clone();
+    }
+
+    /**
+     * Gets the amount of positions in each phase of a tablebase.
+     *
+     * @param tileCount     the amount of tiles on the board
+     * @param defenderCount the amount of defending units
+     * @return the amount of positions
+     */
+    static long getPhaseSize(int tileCount, int defenderCount) {
+        long size = tileCount;
+        for (int i = 0; i < defenderCount; i++) {
+            size *= tileCount;
+        }
+        return size;
+    }
+
+    /**
+     * Gets the amount of phases in a tablebase: one for the racer, and one for each combination of
+     * defending units that have moved, except all of them.
+     *
+     * @param defenderCount the amount of defending units
+     * @return the amount of phases
+     */
+    static int getPhases(int defenderCount) {
+        return 1 << defenderCount;
+    }
+
+    /**
+     * Gets the index of the result of the given position. Positions are ordered by phase, then by
+     * the tile of the carrier, then by the tile of each defending unit in order.
+     *
+     * @param phase    {@link #RACER_PHASE}, or 1 + the mask of defending units that have moved
+     * @param carrier  the index of the carrier's tile
+     * @param units    the index of each defending unit's tile
+     * @return the index
+     */
+    int indexOf(int phase, int carrier, int[] units) {
+        int index = carrier;
+        for (int unit : units) {
+            index = index * tileCount + unit;
+        }
+        return phase * phaseSize + index;
+    }
+
+    /**
+     * Gets the result of the position with the given index.
+     *
+     * @param index the index, from {@link #indexOf}
+     * @return the result
+     */
+    int getResult(int index) {
+        return results.get(index) & 0xff;
+    }
+
+    /**
+     * Makes a result.
+     *
+     * @param racerWins true if the racer wins, false if the defender wins
+     * @param plies     the amount of plies until the race is won (positive)
+     * @return the result
+     */
+    static byte toResult(boolean racerWins, int plies) {
+        return (byte) ((racerWins ? RACER_WINS : 0) | Math.min(plies, MAX_PLIES));
+    }
+
+    /**
+     * Is the given result a draw, meaning that the carrier can never get home, but can always stay
+     * out of reach?
+     *
+     * @param result the result
+     * @return true if it's a draw, false otherwise
+     */
+    public static boolean isDraw(int result) {
+        return (result & RESULT_MASK) == DRAW;
+    }
+
+    /**
+     * Does the racer win with the given result?
+     *
+     * @param result the result (not a draw)
+     * @return true if the racer wins, false if the defender wins
+     */
+    public static boolean isRacerWin(int result) {
+        return (result & RACER_WINS) != 0;
+    }
+
+    /**
+     * Gets the amount of plies until the race is won with perfect play: the winner takes as few as
+     * it can, and the loser holds out for as many as it can. Anything over {@link #MAX_PLIES} is
+     * given as {@link #MAX_PLIES}.
+     *
+     * @param result the result (not a draw)
+     * @return the amount of plies
+     */
+    public static int getPlies(int result) {
+        return result & MAX_PLIES;
+    }
+
+    /**
+     * Finds the result of the current position of the given board. Positions are only covered if
+     * they are a flag race with exactly the units of this tablebase, the current player hasn't
+     * moved any unit part of the way, and nothing else could happen: the defender can't afford a
+     * new unit, and no defending unit could pick up a flag.
+     *
+     * Probing doesn't allocate anything, so it can be done every frame, but a tablebase must only
+     * be probed from one thread at a time.
+     *
+     * @param board the board (must be the board this tablebase was made for)
+     * @return the result, or {@link #NOT_COVERED} if this tablebase doesn't cover the position
+     */
+    public int probe(Board board) {
+        final int index = findIndex(board);
+        return index < 0 ? NOT_COVERED : getResult(index) | index / phaseSize << PHASE_SHIFT;
+    }
+
+    /**
+     * Gets the amount of turns that the given result will take from the position it was probed
+     * for, counting the current turn. Each player's turn counts as one.
+     *
+     * @param result the result of a position, from {@link #probe} (not a draw)
+     * @return the amount of turns
+     */
+    public int getTurns(int result) {
+        final int phase = result >>> PHASE_SHIFT;
+        int plies = getPlies(result);
+
+        // The rest of the current turn, then whole turns of each player in turn
+        int turnPlies = phase == RACER_PHASE ? 1 : defenders.length - Integer.bitCount(phase - 1);
+        boolean racerTurn = phase == RACER_PHASE;
+        int turns = 1;
+        while (plies > turnPlies) {
+            plies -= turnPlies;
+            racerTurn = !racerTurn;
+            turnPlies = racerTurn ? 1 : defenders.length;
+            turns++;
+        }
+        return turns;
+    }
+
+    /**
+     * Finds the index of the current position of the given board.
+     *
+     * @return the index, or -1 if the position isn't covered
+     */
+    private int findIndex(Board board) {
+        if (board.getTileGrid().size() != tileCount || board.isGameOver()) {
+            return -1;
+        }
+        final Player racingPlayer = board.getPlayer(racer);
+        final TileGrid tiles = board.getTileGrid();
+
+        int carrier = -1;
+        Arrays.fill(units, -1);
+        int moved = 0;
+        boolean canCarryFlag = false;
+        final Bitboards bitboards = board.getBitboards();
+        final long[] occupied = bitboards.getOccupied();
+        for (int i = Bitboards.nextSetBit(occupied, 0); i >= 0;
+             i = Bitboards.nextSetBit(occupied, i + 1)) {
+            if (tiles.get(i) instanceof GoldTile) {
+                return -1; // Gold would let its owner buy units
+            }
+            final Unit unit = tiles.get(i).getUnit();
+            final boolean isCurrent = unit.getOwner() == board.getCurrentPlayer();
+            final int moves = unit.getMovesRemaining();
+            if (isCurrent && moves != 0 && moves != unit.getMovesPerTurn()) {
+                return -1; // Moved part of the way
+            }
+            if (unit.getOwner() == racingPlayer) {
+                if (carrier >= 0 || !unit.hasFlag()) {
+                    return -1; // The racer has other units
+                }
+                if (isCurrent && moves == 0) {
+                    return -1; // The carrier has moved, so the turn is really over
+                }
+                carrier = i;
+            } else {
+                // Fill the first free slot of this type
+                int slot = 0;
+                while (slot < units.length
+                       && (units[slot] >= 0 || defenders[slot] != unit.getType())) {
+                    slot++;
+                }
+                if (slot == units.length) {
+                    return -1; // A unit that isn't in this tablebase
+                }
+                units[slot] = i;
+                if (unit.hasFlag()) {
+                    return -1; // The defender is racing too
+                }
+                if (isCurrent && moves == 0) {
+                    moved |= 1 << slot;
+                }
+                canCarryFlag |= unit.canCarryFlag();
+            }
+        }
+        if (carrier < 0) {
+            return -1;
+        }
+        for (int unit : units) {
+            if (unit < 0) {
+                return -1; // A unit of this tablebase is missing
+            }
+        }
+
+        // Neither player may be able to do anything but move its units
+        for (PlayerInfo info : PlayerInfo.values()) {
+            if (board.getPlayer(info).getGold() >= getCheapestCost()) {
+                return -1;
+            }
+        }
+        if (canCarryFlag && Bitboards.nextSetBit(bitboards.getFlags(), 0) >= 0) {
+            return -1;
+        }
+
+        final int phase;
+        if (board.getCurrentPlayer() == racingPlayer
+            || moved == (1 << defenders.length) - 1) {
+            phase = RACER_PHASE; // All the defender can do now is end the turn
+        } else {
+            phase = 1 + moved;
+        }
+        return indexOf(phase, carrier, units);
+    }
+
+    private static int getCheapestCost() {
+        int cost = Integer.MAX_VALUE;
+        for (UnitType type : UnitType.values()) {
+            cost = Math.min(cost, type.cost);
+        }
+        return cost;
+    }
+
+    /**
+     * Works out a signature of the layout of the given tiles, which changes if any tile is moved,
+     * added, removed, or changed to another kind, or if a fort is given to another player. Other
+     * owners can change during a game, so they're left out. Tablebases are only used with boards
+     * with the same signature as the board they were made for.
+     *
+     * @param tiles the tiles
+     * @return the signature
+     */
+    static long getSignature(TileGrid tiles) {
+        long signature = tiles.size();
+        for (int i = 0; i < tiles.size(); i++) {
+            final Tile tile = tiles.get(i);
+            final int owner = tile instanceof FortTile && tile.getOwner() != null
+                              ? tile.getOwner().getInfo().ordinal() : -1;
+            signature = Funcs.mix64(signature + tile.getPos().hashCode());
+            signature = Funcs.mix64(signature + tile.getClass().getName().hashCode() * 31 + owner);
+        }
+        return signature;
+    }
+
+    /**
+     * Gets the file that the tablebase for the given units is saved in.
+     *
+     * @param racer     the racing player
+     * @param defenders the types of the defending units
+     * @return the path of the file
+     */
+    public static Path getPath(PlayerInfo racer, UnitType[] defenders) {
+        final StringBuilder units = new StringBuilder();
+        for (UnitType type : defenders) {
+            units.append('-').append(type.name().toLowerCase());
+        }
+        return Paths.get(String.format(Constants.TABLEBASE_PATH, racer.name().toLowerCase(),
+                                       units));
+    }
+
+    /**
+     * Saves this tablebase to the given file, replacing anything already in it. The file's folder
+     * is created if it doesn't exist.
+     *
+     * @param path the file
+     * @throws IOException if the file can't be written
+     */
+    public void save(Path path) throws IOException {
+        final Path folder = path.toAbsolutePath().getParent();
+        if (folder != null) {
+            Files.createDirectories(folder);
+        }
+        final ByteBuffer header = ByteBuffer.allocate(getHeaderSize(defenders.length));
+        header.putInt(MAGIC).putInt(VERSION).putLong(signature).putInt(tileCount)
+            .put((byte) racer.ordinal()).put((byte) defenders.length);
+        for (UnitType type : defenders) {
+            header.put((byte) type.ordinal());
+        }
+        header.flip();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                                                    StandardOpenOption.WRITE,
+                                                    StandardOpenOption.TRUNCATE_EXISTING)) {
+            channel.write(header);
+            final ByteBuffer data = results.duplicate();
+            data.clear();
+            while (data.hasRemaining()) {
+                channel.write(data);
+            }
+        }
+    }
+
+    private static int getHeaderSize(int defenderCount) {
+        return 4 + 4 + 8 + 4 + 1 + 1 + defenderCount;
+    }
+
+    /**
+     * Loads a tablebase from the given file, which was written by {@link #save}. The file is
+     * memory-mapped, so this is quick however big it is.
+     *
+     * @param path  the file
+     * @param board the board the tablebase will be probed with (non-null)
+     * @return the tablebase
+     * @throws IOException if the file can't be read, isn't a tablebase, or was made for a
+     *                     different board
+     */
+    public static RaceTablebase load(Path path, Board board) throws IOException {
+        Objects.requireNonNull(board);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            final ByteBuffer data = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (data.remaining() < getHeaderSize(0) || data.getInt() != MAGIC
+                || data.getInt() != VERSION) {
+                throw new IOException("Not a tablebase: " + path);
+            }
+            final long signature = data.getLong();
+            final int tileCount = data.getInt();
+            if (signature != getSignature(board.getTileGrid())
+                || tileCount != board.getTileGrid().size()) {
+                throw new IOException("Tablebase is for a different board: " + path);
+            }
+            final PlayerInfo racer = PlayerInfo.values()[data.get()];
+            final UnitType[] defenders = new UnitType[data.get()];
+            for (int i = 0; i < defenders.length; i++) {
+                defenders[i] = UnitType.values()[data.get()];
+            }
+            try {
+                return new RaceTablebase(racer, defenders, tileCount, signature, data);
+            } catch (IllegalArgumentException e) {
+                throw new IOException("Tablebase is cut short: " + path, e);
+            }
+        } catch (IndexOutOfBoundsException | java.nio.BufferUnderflowException e) {
+            throw new IOException("Not a tablebase: " + path, e);
+        }
+    }
+
+    /**
+     * Loads every tablebase in {@link Constants#TABLEBASE_FOLDER} that was made for the given
+     * board. Files that can't be loaded are skipped, with an error.
+     *
+     * @param board the board (non-null)
+     * @return the tablebases, which may be none
+     */
+    public static List<RaceTablebase> loadAll(Board board) {
+        final List<RaceTablebase> tablebases = new ArrayList<>();
+        final Path folder = Paths.get(Constants.TABLEBASE_FOLDER);
+        if (!Files.isDirectory(folder)) {
+            return tablebases;
+        }
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(folder, "*.tb")) {
+            for (Path file : files) {
+                try {
+                    tablebases.add(load(file, board));
+                } catch (IOException e) {
+                    System.err.println("Error loading tablebase: " + e.getMessage());
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Error listing tablebases!");
+            e.printStackTrace();
+        }
+        return tablebases;
+    }
+}
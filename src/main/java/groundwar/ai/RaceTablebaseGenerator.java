@@ -0,0 +1,519 @@
+package groundwar.ai;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import groundwar.board.Board;
+import groundwar.board.BoardTopology;
+import groundwar.board.PlayerInfo;
+import groundwar.board.TileGrid;
+import groundwar.board.tile.FortTile;
+import groundwar.board.tile.GoldTile;
+import groundwar.board.tile.Tile;
+import groundwar.board.unit.UnitType;
+import groundwar.util.Constants;
+
+/**
+ * Works out a {@link RaceTablebase} by retrograde analysis. First, every position is checked for
+ * an immediate win: the carrier can reach a fort, or a defending unit can attack the carrier.
+ * Every other position gets a count of its moves that haven't been shown to lose. Then, starting
+ * from the immediate wins, the analysis works backwards one ply at a time: each position that can
+ * move into a win for its mover is a win for its mover one ply later, and each position whose
+ * moves have all been shown to lose is a loss one ply later. Anything left at the end is a draw.
+ *
+ * Each ply is split between the threads, and the counts are atomic, so a position is only ever
+ * resolved by one thread. Moves are undone by moving the unit back from where it is, which is the
+ * same as moving it forwards, since units move through the same empty tiles both ways.
+ *
+ * The races in a tablebase are simplified: the carrier only moves (it never attacks), the defender
+ * only moves its units, each unit moves once per turn, and no units are bought. Gold tiles are
+ * treated as impassable, since a unit standing on one would earn gold to buy units with. A
+ * defending unit that gets to attack the carrier stops the race, whatever the combat would have
+ * done.
+ *
+ * Arguments: the racing player (e.g. {@code orange}), then the types of the defending units (e.g.
+ * {@code tank antitank}), then optionally {@code --threads=N}. The tablebase is made for the
+ * shipped board and saved to {@link Constants#TABLEBASE_PATH}.
+ */
+public class RaceTablebaseGenerator {
+
+    /**
+     * The amount of positions that each thread checks at once in the first pass.
+     */
+    private static final int CHUNK_SIZE = 1 << 14;
+
+    private final BoardTopology topology;
+    private final int tileCount;
+    private final int defenderCount;
+    private final int phases;
+    private final int phaseSize;
+
+    /**
+     * The moves per turn of the carrier, then of each defending unit.
+     */
+    private final int[] ranges;
+
+    private final boolean[] passable;
+    private final boolean[] forts;
+
+    private final byte[] results;
+
+    /**
+     * For each position still being worked out, the amount of its moves that haven't been shown to
+     * lose for its mover. 0 for positions that are resolved, or can't happen.
+     */
+    private final AtomicIntegerArray remaining;
+
+    private final ExecutorService pool;
+    private final int threads;
+
+    private RaceTablebaseGenerator(TileGrid tiles, BoardTopology topology, PlayerInfo racer,
+                                   UnitType[] defenders, int threads) {
+        this.topology = topology;
+        tileCount = tiles.size();
+        defenderCount = defenders.length;
+        phases = RaceTablebase.getPhases(defenderCount);
+        final long size = RaceTablebase.getPhaseSize(tileCount, defenderCount) * phases;
+        if (size > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Too many defending units for this board");
+        }
+        phaseSize = (int) (size / phases);
+
+        ranges = new int[defenderCount + 1];
+        ranges[0] = getCarrierType().movesPerTurn;
+        for (int i = 0; i < defenderCount; i++) {
+            ranges[i + 1] = defenders[i].movesPerTurn;
+        }
+
+        passable = new boolean[tileCount];
+        forts = new boolean[tileCount];
+        for (int i = 0; i < tileCount; i++) {
+            final Tile tile = tiles.get(i);
+            passable[i] = tile.isPassable() && !(tile instanceof GoldTile);
+            forts[i] = tile instanceof FortTile && tile.getOwner() != null
+                       && tile.getOwner().getInfo() == racer;
+        }
+
+        results = new byte[(int) size];
+        remaining = new AtomicIntegerArray((int) size);
+        this.threads = threads;
+        pool = Executors.newFixedThreadPool(threads);
+    }
+
+    /**
+     * Gets the type of unit that carries flags.
+     */
+    private static UnitType getCarrierType() {
+        for (UnitType type : UnitType.values()) {
+            if (type.canCarryFlag) {
+                return type;
+            }
+        }
+        throw new IllegalStateException("No unit type can carry flags");
+    }
+
+    /**
+     * Works out the tablebase for the given units on the given board.
+     *
+     * @param board     the board (non-null)
+     * @param racer     the racing player (non-null)
+     * @param defenders the types of the defending units, in the order they're indexed (at least
+     *                  one)
+     * @param threads   the amount of threads to work on (positive)
+     * @return the tablebase
+     * @throws IllegalArgumentException if there are no defending units, too many for the board, or
+     *                                  {@code threads <= 0}
+     */
+    public static RaceTablebase generate(Board board, PlayerInfo racer, UnitType[] defenders,
+                                         int threads) {
+        Objects.requireNonNull(board);
+        Objects.requireNonNull(racer);
+        if (defenders.length == 0) {
+            throw new IllegalArgumentException("Need at least one defending unit");
+        }
+        if (threads <= 0) {
+            throw new IllegalArgumentException("Need at least one thread");
+        }
+        final RaceTablebaseGenerator generator =
+            new RaceTablebaseGenerator(board.getTileGrid(), board.getTopology(), racer, defenders,
+                                       threads);
+        try {
+            generator.run();
+        } finally {
+            generator.pool.shutdown();
+        }
+        return new RaceTablebase(racer, defenders, generator.tileCount,
+                                 RaceTablebase.getSignature(board.getTileGrid()),
+                                 ByteBuffer.wrap(generator.results));
+    }
+
+    private void run() {
+        // Find the immediate wins, and count the moves of everything else
+        final int chunks = (results.length + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        final int[][] found = new int[chunks][];
+        runAll(chunks, (worker, chunk) -> {
+            final int end = Math.min(results.length, (chunk + 1) * CHUNK_SIZE);
+            found[chunk] = worker.initialize(chunk * CHUNK_SIZE, end);
+        });
+        int[] layer = concat(found);
+
+        // Work backwards from them, one ply at a time
+        for (int plies = 1; layer.length > 0; plies++) {
+            final int[] current = layer;
+            final int nextPlies = plies + 1;
+            final int parts = Math.min(threads * 4, current.length);
+            final int[][] next = new int[parts][];
+            runAll(parts, (worker, part) -> {
+                final int start = (int) ((long) current.length * part / parts);
+                final int end = (int) ((long) current.length * (part + 1) / parts);
+                next[part] = worker.retract(current, start, end, nextPlies);
+            });
+            layer = concat(next);
+        }
+    }
+
+    /**
+     * A piece of work for one thread, given its worker and the number of the piece.
+     */
+    private interface Job {
+
+        void run(Worker worker, int piece);
+    }
+
+    /**
+     * Does the given amount of pieces of work on the pool, and waits for all of them.
+     */
+    private void runAll(int pieces, Job job) {
+        final Future<?>[] futures = new Future<?>[threads];
+        final int[] nextPiece = {0};
+        for (int t = 0; t < threads; t++) {
+            futures[t] = pool.submit(() -> {
+                final Worker worker = new Worker();
+                while (true) {
+                    final int piece;
+                    synchronized (nextPiece) {
+                        piece = nextPiece[0]++;
+                    }
+                    if (piece >= pieces) {
+                        return;
+                    }
+                    job.run(worker, piece);
+                }
+            });
+        }
+        for (Future<?> future : futures) {
+            try {
+                future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while generating tablebase", e);
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("Error in tablebase thread", e.getCause());
+            }
+        }
+    }
+
+    private static int[] concat(int[][] arrays) {
+        int length = 0;
+        for (int[] array : arrays) {
+            length += array.length;
+        }
+        final int[] all = new int[length];
+        int offset = 0;
+        for (int[] array : arrays) {
+            System.arraycopy(array, 0, all, offset, array.length);
+            offset += array.length;
+        }
+        return all;
+    }
+
+    /**
+     * The scratch space for one thread.
+     */
+    private class Worker {
+
+        /**
+         * The tile of the carrier, then of each defending unit.
+         */
+        private final int[] pieces = new int[defenderCount + 1];
+
+        private final int[] stamps = new int[tileCount];
+        private int stamp;
+        private final int[] reached = new int[tileCount];
+        private final int[] distances = new int[tileCount];
+        private int reachedCount;
+
+        private int[] found = new int[64];
+        private int foundCount;
+
+        /**
+         * Checks each position in the given range for an immediate win, and counts the moves of
+         * the rest.
+         *
+         * @return the positions that are immediate wins
+         */
+        private int[] initialize(int start, int end) {
+            foundCount = 0;
+            for (int index = start; index < end; index++) {
+                final int phase = decode(index);
+                if (!isValid()) {
+                    continue; // Left at 0, as if resolved
+                }
+                if (phase == RaceTablebase.RACER_PHASE) {
+                    reach(0);
+                    boolean home = false;
+                    for (int i = 0; i < reachedCount && !home; i++) {
+                        home = forts[reached[i]];
+                    }
+                    if (home) {
+                        resolve(index, true, 1);
+                    } else {
+                        remaining.set(index, reachedCount);
+                    }
+                } else {
+                    final int moved = phase - 1;
+                    int moves = 0;
+                    boolean attack = false;
+                    for (int unit = 1; unit <= defenderCount && !attack; unit++) {
+                        if ((moved & (1 << (unit - 1))) == 0) {
+                            reach(unit);
+                            attack = canAttackCarrier(unit);
+                            moves += reachedCount;
+                        }
+                    }
+                    if (attack) {
+                        resolve(index, false, 1);
+                    } else {
+                        remaining.set(index, moves);
+                    }
+                }
+            }
+            return Arrays.copyOf(found, foundCount);
+        }
+
+        /**
+         * Finds the positions that move into the given positions, and resolves the ones that are
+         * now known.
+         *
+         * @return the positions that were resolved, which all take the given amount of plies
+         */
+        private int[] retract(int[] layer, int start, int end, int plies) {
+            foundCount = 0;
+            for (int l = start; l < end; l++) {
+                final int index = layer[l];
+                final boolean racerWins = RaceTablebase.isRacerWin(results[index] & 0xff);
+                final int phase = decode(index);
+                if (phase == RaceTablebase.RACER_PHASE) {
+                    // The defender has just moved its last unit, which could be any of them
+                    final int full = phases - 1;
+                    for (int unit = 1; unit <= defenderCount; unit++) {
+                        retractUnit(unit, 1 + (full & ~(1 << (unit - 1))), racerWins, plies);
+                    }
+                } else if (phase == 1) {
+                    // The carrier has just moved
+                    final int carrier = pieces[0];
+                    reach(0);
+                    for (int i = 0; i < reachedCount; i++) {
+                        if (!forts[reached[i]]) {
+                            pieces[0] = reached[i];
+                            update(encode(RaceTablebase.RACER_PHASE), true, racerWins, plies);
+                        }
+                    }
+                    pieces[0] = carrier;
+                } else {
+                    final int moved = phase - 1;
+                    for (int unit = 1; unit <= defenderCount; unit++) {
+                        final int bit = 1 << (unit - 1);
+                        if ((moved & bit) != 0) {
+                            retractUnit(unit, 1 + (moved & ~bit), racerWins, plies);
+                        }
+                    }
+                }
+            }
+            return Arrays.copyOf(found, foundCount);
+        }
+
+        /**
+         * Updates every position in the given phase where the given defending unit is about to
+         * move to where it is now.
+         */
+        private void retractUnit(int unit, int phase, boolean racerWins, int plies) {
+            final int tile = pieces[unit];
+            reach(unit);
+            for (int i = 0; i < reachedCount; i++) {
+                pieces[unit] = reached[i];
+                update(encode(phase), false, racerWins, plies);
+            }
+            pieces[unit] = tile;
+        }
+
+        /**
+         * Records that the given position has a move into a position that the racer or the
+         * defender wins.
+         *
+         * @param index      the position
+         * @param racerMoves true if the racer is to move in the position
+         * @param racerWins  true if the racer wins after the move
+         * @param plies      the amount of plies that the position will take, if it's resolved now
+         */
+        private void update(int index, boolean racerMoves, boolean racerWins, int plies) {
+            if (racerMoves == racerWins) {
+                // The mover can win by making this move
+                int left;
+                do {
+                    left = remaining.get(index);
+                    if (left == 0) {
+                        return;
+                    }
+                } while (!remaining.compareAndSet(index, left, 0));
+                resolve(index, racerWins, plies);
+            } else {
+                // One less move to try. If it was the last one, the mover loses.
+                int left;
+                do {
+                    left = remaining.get(index);
+                    if (left == 0) {
+                        return;
+                    }
+                } while (!remaining.compareAndSet(index, left, left - 1));
+                if (left == 1) {
+                    resolve(index, racerWins, plies);
+                }
+            }
+        }
+
+        private void resolve(int index, boolean racerWins, int plies) {
+            results[index] = RaceTablebase.toResult(racerWins, plies);
+            if (foundCount == found.length) {
+                found = Arrays.copyOf(found, found.length * 2);
+            }
+            found[foundCount++] = index;
+        }
+
+        /**
+         * Sets {@link #pieces} to the tiles of the position with the given index.
+         *
+         * @return the phase of the position
+         */
+        private int decode(int index) {
+            int rest = index % phaseSize;
+            for (int i = defenderCount; i >= 0; i--) {
+                pieces[i] = rest % tileCount;
+                rest /= tileCount;
+            }
+            return index / phaseSize;
+        }
+
+        private int encode(int phase) {
+            int index = phase;
+            for (int piece : pieces) {
+                index = index * tileCount + piece;
+            }
+            return index;
+        }
+
+        /**
+         * Is the position in {@link #pieces} one that can happen? Every unit must be on its own
+         * passable tile, and the carrier can't be home already.
+         */
+        private boolean isValid() {
+            for (int i = 0; i <= defenderCount; i++) {
+                if (!passable[pieces[i]]) {
+                    return false;
+                }
+                for (int j = 0; j < i; j++) {
+                    if (pieces[i] == pieces[j]) {
+                        return false;
+                    }
+                }
+            }
+            return !forts[pieces[0]];
+        }
+
+        /**
+         * Finds every tile that the given piece can move to, including the one it's on, through
+         * empty passable tiles. The results are left in {@link #reached} and {@link #distances}.
+         *
+         * @param piece 0 for the carrier, or 1 + the number of a defending unit
+         */
+        private void reach(int piece) {
+            if (++stamp == 0) {
+                Arrays.fill(stamps, 0);
+                stamp = 1;
+            }
+            for (int i = 0; i <= defenderCount; i++) {
+                stamps[pieces[i]] = stamp; // Other units are in the way
+            }
+            final int range = ranges[piece];
+            reachedCount = 0;
+            reached[reachedCount] = pieces[piece];
+            distances[reachedCount++] = 0;
+            for (int head = 0; head < reachedCount; head++) {
+                final int distance = distances[head] + 1;
+                if (distance > range) {
+                    break;
+                }
+                for (int side = 0; side < Constants.NUM_SIDES; side++) {
+                    final int next = topology.getNeighbor(reached[head], side);
+                    if (next >= 0 && passable[next] && stamps[next] != stamp) {
+                        stamps[next] = stamp;
+                        reached[reachedCount] = next;
+                        distances[reachedCount++] = distance;
+                    }
+                }
+            }
+        }
+
+        /**
+         * Can the given defending unit attack the carrier, using the tiles found by the last
+         * {@link #reach} for it? It can if the carrier is next to a tile that it can get to with
+         * at least one move left.
+         */
+        private boolean canAttackCarrier(int unit) {
+            final int range = ranges[unit];
+            for (int i = 0; i < reachedCount && distances[i] < range; i++) {
+                if (topology.isAdjacent(reached[i], pieces[0])) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: RaceTablebaseGenerator <racer> <defender type>... "
+                               + "[--threads=N]");
+            System.exit(1);
+        }
+        final PlayerInfo racer = PlayerInfo.valueOf(args[0].toUpperCase());
+        int threads = Constants.AI_THREADS;
+        final UnitType[] defenders = new UnitType[args.length - 1];
+        int defenderCount = 0;
+        for (int i = 1; i < args.length; i++) {
+            if (args[i].startsWith("--threads=")) {
+                threads = Integer.parseInt(args[i].substring("--threads=".length()));
+            } else {
+                defenders[defenderCount++] = UnitType.valueOf(args[i].toUpperCase());
+            }
+        }
+
+        final Board board = new Board();
+        final long start = System.nanoTime();
+        final RaceTablebase tablebase =
+            generate(board, racer, Arrays.copyOf(defenders, defenderCount), threads);
+        final long time = (System.nanoTime() - start) / 1000000L;
+
+        final Path path = RaceTablebase.getPath(racer, tablebase.getDefenders());
+        tablebase.save(path);
+        System.out.printf("Generated %s in %d ms on %d threads%n", path, time, threads);
+    }
+}
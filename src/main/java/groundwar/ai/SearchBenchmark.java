@@ -0,0 +1,74 @@
+package groundwar.ai;
+
+import java.io.IOException;
+
+import groundwar.board.Board;
+import groundwar.board.MoveGenerator;
+import groundwar.util.Constants;
+import groundwar.util.GameRandom;
+
+/**
+ * Measures how the search scales with threads. A position is set up on the shipped board by
+ * playing random actions from a fixed seed, then searched with {@link LazySmp} for a fixed time
+ * with 1 thread, 2 threads, and so on up to the amount of available processors. Each run gets a
+ * fresh table, and reports its nodes per second, the deepest depth it finished, and the time it
+ * took to finish each depth.
+ *
+ * Arguments, all optional: the time for each run in milliseconds (default 2000), the seed (default
+ * 1), and the amount of random actions to play before searching (default 60).
+ */
+public class SearchBenchmark {
+
+    public static void main(String[] args) throws IOException {
+        final long runTime = args.length > 0 ? Long.parseLong(args[0]) : 2000L;
+        final long seed = args.length > 1 ? Long.parseLong(args[1]) : 1L;
+        final int setupActions = args.length > 2 ? Integer.parseInt(args[2]) : 60;
+
+        final Board position = setUpPosition(seed, setupActions);
+        final int maxThreads = Runtime.getRuntime().availableProcessors();
+        System.out.printf("Searching for %d ms on %d processors, seed %d, %d setup actions%n",
+                          runTime, maxThreads, seed, setupActions);
+
+        double baseNodesPerSecond = 0.0;
+        for (int threads = 1; threads <= maxThreads; threads++) {
+            final TranspositionTable table = new TranspositionTable(Constants.AI_TABLE_SIZE_LOG2);
+            final LazySmp search = new LazySmp(threads, table);
+            final long start = System.nanoTime();
+            search.search(position, runTime * 1000000L);
+            final long elapsed = System.nanoTime() - start;
+            search.shutdown();
+            table.delete();
+
+            final double nodesPerSecond = search.getNodes() * 1e9 / elapsed;
+            if (threads == 1) {
+                baseNodesPerSecond = nodesPerSecond;
+            }
+            final AlphaBeta main = search.getMainSearch();
+            System.out.printf("%2d threads: %,12.0f nodes/s (%.2fx), depth %d, time to depth:",
+                              threads, nodesPerSecond, nodesPerSecond / baseNodesPerSecond,
+                              main.getCompletedDepth());
+            for (int depth = 1; depth <= main.getCompletedDepth(); depth++) {
+                System.out.printf(" %d:%.1fms", depth, main.getDepthTime(depth) / 1e6);
+            }
+            System.out.println();
+        }
+    }
+
+    /**
+     * Loads the board and plays the given amount of random actions on it.
+     */
+    private static Board setUpPosition(long seed, int actions) throws IOException {
+        final Board board = new Board(seed);
+        final GameRandom random = new GameRandom(seed);
+        final MoveGenerator generator = new MoveGenerator(board);
+        final int[] list = new int[generator.getMaxActions()];
+        for (int i = 0; i < actions; i++) {
+            final int count = generator.generate(list);
+            if (count == 0) {
+                break; // The game is over
+            }
+            board.applyAction(list[Math.min((int) (random.nextFloat() * count), count - 1)]);
+        }
+        return board;
+    }
+}
@@ -0,0 +1,219 @@
+package groundwar.ai;
+
+/**
+ * The nodes of one {@link MonteCarlo} search tree. There are no node objects: a node is an index,
+ * and its fields are kept in parallel arrays that are allocated once, at a fixed size, and reused
+ * for every search. Once the arrays are full, the tree stops growing.
+ *
+ * There are two kinds of nodes. A decision node is a position, and its children are the actions
+ * that can be taken there, stored next to each other. Most actions lead straight to another
+ * position, so those children are decision nodes too. An attack could have many results, so an
+ * attack child is a chance node instead, and its children are the positions that the attack has
+ * led to so far, told apart by their hashes and kept in a linked list.
+ */
+class SearchTree {
+
+    static final int ROOT = 0;
+    static final int NONE = -1;
+
+    private final int capacity;
+    private int size;
+
+    /**
+     * The action that leads to each node. Results of a chance node have the same action as it.
+     */
+    private final int[] actions;
+
+    /**
+     * The ordinal of the player who took {@link #actions}.
+     */
+    private final byte[] movers;
+    private final boolean[] chance;
+
+    /**
+     * For decision nodes, the first of {@link #childCounts} children, or {@link #NONE} if the node
+     * hasn't been expanded. For chance nodes, the most recent result, or {@link #NONE}.
+     */
+    private final int[] firstChildren;
+    private final int[] childCounts;
+
+    /**
+     * For results of chance nodes, the next older result of the same attack, and the hash of the
+     * position.
+     */
+    private final int[] nextSiblings;
+    private final long[] hashes;
+
+    private final int[] visits;
+
+    /**
+     * The total reward of each node, from the point of view of its mover.
+     */
+    private final float[] rewards;
+
+    /**
+     * Constructs a new tree.
+     *
+     * @param capacity the most nodes the tree can hold (positive)
+     * @throws IllegalArgumentException if {@code capacity <= 0}
+     */
+    SearchTree(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive");
+        }
+        this.capacity = capacity;
+        actions = new int[capacity];
+        movers = new byte[capacity];
+        chance = new boolean[capacity];
+        firstChildren = new int[capacity];
+        childCounts = new int[capacity];
+        nextSiblings = new int[capacity];
+        hashes = new long[capacity];
+        visits = new int[capacity];
+        rewards = new float[capacity];
+    }
+
+    /**
+     * Removes every node, then adds an unexpanded root.
+     */
+    void reset() {
+        size = 0;
+        add(TranspositionTable.NO_ACTION, 0, false);
+    }
+
+    int size() {
+        return size;
+    }
+
+    private int add(int action, int mover, boolean isChance) {
+        final int node = size++;
+        actions[node] = action;
+        movers[node] = (byte) mover;
+        chance[node] = isChance;
+        firstChildren[node] = NONE;
+        childCounts[node] = 0;
+        nextSiblings[node] = NONE;
+        hashes[node] = 0L;
+        visits[node] = 0;
+        rewards[node] = 0f;
+        return node;
+    }
+
+    /**
+     * Adds a child to the given decision node for each of the given actions.
+     *
+     * @param node    the node (a decision node that hasn't been expanded)
+     * @param list    the actions
+     * @param count   the amount of actions in the list
+     * @param mover   the ordinal of the player taking the actions
+     * @param attacks for each action, whether it is an attack
+     * @return true if the children were added, false if there wasn't room for them
+     */
+    boolean expand(int node, int[] list, int count, int mover, boolean[] attacks) {
+        if (capacity - size < count) {
+            return false;
+        }
+        firstChildren[node] = size;
+        childCounts[node] = count;
+        for (int i = 0; i < count; i++) {
+            add(list[i], mover, attacks[i]);
+        }
+        return true;
+    }
+
+    /**
+     * Finds the result of the given chance node with the given hash, adding it if this attack
+     * hasn't led there before.
+     *
+     * @param node the chance node
+     * @param hash the hash of the position that the attack led to
+     * @return the result node, or {@link #NONE} if it's new and there is no room for it
+     */
+    int getOrAddResult(int node, long hash) {
+        for (int result = firstChildren[node]; result != NONE; result = nextSiblings[result]) {
+            if (hashes[result] == hash) {
+                return result;
+            }
+        }
+        if (size == capacity) {
+            return NONE;
+        }
+        final int result = add(actions[node], movers[node], false);
+        hashes[result] = hash;
+        nextSiblings[result] = firstChildren[node];
+        firstChildren[node] = result;
+        return result;
+    }
+
+    /**
+     * Picks the child of the given expanded decision node with the highest UCT score. Children
+     * that have never been visited are picked first, in order.
+     *
+     * @param node        the node
+     * @param exploration how much to favor children that have been visited less
+     * @return the child
+     */
+    int selectChild(int node, float exploration) {
+        final int first = firstChildren[node];
+        final int end = first + childCounts[node];
+        final double logVisits = Math.log(visits[node]);
+        int best = first;
+        double bestScore = Double.NEGATIVE_INFINITY;
+        for (int child = first; child < end; child++) {
+            final int childVisits = visits[child];
+            if (childVisits == 0) {
+                return child;
+            }
+            final double score = rewards[child] / childVisits
+                                 + exploration * Math.sqrt(logVisits / childVisits);
+            if (score > bestScore) {
+                bestScore = score;
+                best = child;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Records a visit to the given node.
+     *
+     * @param node   the node
+     * @param reward the reward, from the point of view of the node's mover (in [0, 1])
+     */
+    void visit(int node, float reward) {
+        visits[node]++;
+        rewards[node] += reward;
+    }
+
+    boolean isExpanded(int node) {
+        return firstChildren[node] != NONE;
+    }
+
+    boolean isChance(int node) {
+        return chance[node];
+    }
+
+    int getAction(int node) {
+        return actions[node];
+    }
+
+    int getMover(int node) {
+        return movers[node];
+    }
+
+    int getVisits(int node) {
+        return visits[node];
+    }
+
+    float getReward(int node) {
+        return rewards[node];
+    }
+
+    int getFirstChild(int node) {
+        return firstChildren[node];
+    }
+
+    int getChildCount(int node) {
+        return childCounts[node];
+    }
+}
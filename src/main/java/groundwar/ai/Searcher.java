@@ -0,0 +1,42 @@
+package groundwar.ai;
+
+import java.io.IOException;
+
+import groundwar.board.Board;
+
+/**
+ * Something that can search a position for the best action, used by a {@link ComputerPlayer}.
+ */
+public interface Searcher {
+
+    /**
+     * Finds the best action for the current player of the given board, searching for at most
+     * about the given time. The board is only read from, and must not change during the search.
+     *
+     * @param position  the board to search (non-null)
+     * @param timeLimit the time to search for, in nanoseconds
+     * @return the best action, or {@link TranspositionTable#NO_ACTION} if there are no legal
+     * actions
+     * @throws NullPointerException if {@code position == null}
+     * @throws IOException          if the boards for the search can't be loaded
+     */
+    int search(Board position, long timeLimit) throws IOException;
+
+    /**
+     * Stops the current search as soon as possible, and makes any later search return straight
+     * away, until {@link #reset()} is called. Can be called from any thread.
+     */
+    void stop();
+
+    /**
+     * Allows searching again after {@link #stop()} was called. This must not be called while a
+     * search is running.
+     */
+    void reset();
+
+    /**
+     * Shuts down any threads of this searcher, and frees anything it allocated. This searcher can't
+     * be used afterwards. This must not be called while a search is running.
+     */
+    void shutdown();
+}
@@ -0,0 +1,135 @@
+package groundwar.ai;
+
+import java.io.IOException;
+import java.util.concurrent.Semaphore;
+
+import groundwar.board.Action;
+import groundwar.board.Board;
+import groundwar.board.MoveGenerator;
+import groundwar.board.PlayerInfo;
+import groundwar.util.Constants;
+import groundwar.util.GameRandom;
+
+/**
+ * Plays the computer against an opponent on the shipped board, with nothing drawn, through the
+ * same {@link ComputerPlayer} that the game uses. The computer takes each side in turn, and games
+ * that nobody has won after {@link #MAX_TURNS} turns are draws. The wins, losses and draws are
+ * reported, along with how long the computer's turns took, to show that it keeps to its turn
+ * budget.
+ *
+ * Arguments, all optional: the amount of games (default 4), the opponent (default {@code random},
+ * which picks random legal actions, or {@code alphabeta} or {@code montecarlo}, which are
+ * computers too), the turn budget in milliseconds (default {@link Constants#AI_TURN_BUDGET}), and
+ * the seed (default 1).
+ */
+public class SelfPlayBenchmark {
+
+    private static final int MAX_TURNS = 300;
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        final int games = args.length > 0 ? Integer.parseInt(args[0]) : 4;
+        final String opponent = args.length > 1 ? args[1] : "random";
+        final long turnBudget =
+            args.length > 2 ? Long.parseLong(args[2]) : Constants.AI_TURN_BUDGET;
+        final long seed = args.length > 3 ? Long.parseLong(args[3]) : 1L;
+        System.out.printf("Alpha-beta against %s, %d games, %d ms per turn, %d threads, seed %d%n",
+                          opponent, games, turnBudget, Constants.AI_THREADS, seed);
+
+        final GameRandom random = new GameRandom(seed);
+        final PlayerInfo[] sides = PlayerInfo.values();
+        int wins = 0;
+        int losses = 0;
+        int draws = 0;
+        long turns = 0L;
+        long turnTime = 0L;
+        long maxTurnTime = 0L;
+        int overBudget = 0;
+        for (int game = 0; game < games; game++) {
+            final PlayerInfo side = sides[game % sides.length];
+            final Board board = new Board(random.nextLong());
+            final MoveGenerator generator = new MoveGenerator(board);
+            final int[] actions = new int[generator.getMaxActions()];
+            final ComputerPlayer computer = new ComputerPlayer(turnBudget, new LazySmp(
+                Constants.AI_THREADS, Constants.AI_TABLE_SIZE_LOG2));
+            final ComputerPlayer other = createOpponent(opponent, turnBudget);
+
+            long turnStart = System.nanoTime();
+            while (!board.isGameOver() && board.getTurnCount() < MAX_TURNS) {
+                final boolean computerTurn = board.getCurrentPlayer().getInfo() == side;
+                final int action;
+                if (computerTurn) {
+                    action = decide(computer, board);
+                } else if (other != null) {
+                    action = decide(other, board);
+                } else {
+                    final int count = generator.generate(actions);
+                    action = actions[Math.min((int) (random.nextFloat() * count), count - 1)];
+                }
+                board.applyAction(action);
+
+                if (Action.getKind(action) == Action.END_TURN || board.isGameOver()) {
+                    final long elapsed = System.nanoTime() - turnStart;
+                    if (computerTurn) {
+                        turns++;
+                        turnTime += elapsed;
+                        maxTurnTime = Math.max(maxTurnTime, elapsed);
+                        if (elapsed > turnBudget * 1000000L) {
+                            overBudget++;
+                        }
+                    }
+                    turnStart = System.nanoTime();
+                }
+            }
+            computer.shutdown();
+            if (other != null) {
+                other.shutdown();
+            }
+
+            final String result;
+            if (!board.isGameOver()) {
+                draws++;
+                result = "draw";
+            } else if (board.getWinner().getInfo() == side) {
+                wins++;
+                result = "won";
+            } else {
+                losses++;
+                result = "lost";
+            }
+            System.out.printf("Game %d: computer as %s %s in %d turns%n", game + 1, side, result,
+                              board.getTurnCount());
+        }
+
+        System.out.printf("%d won, %d lost, %d drawn%n", wins, losses, draws);
+        System.out.printf("Computer turns: %,d, average %.1f ms, longest %.1f ms (budget %d ms)%n",
+                          turns, turns == 0 ? 0.0 : turnTime / 1e6 / turns, maxTurnTime / 1e6,
+                          turnBudget);
+        System.out.printf("Computer turns over budget: %d%n", overBudget);
+    }
+
+    private static ComputerPlayer createOpponent(String opponent, long turnBudget) {
+        switch (opponent) {
+            case "random":
+                return null;
+            case "alphabeta":
+                return new ComputerPlayer(turnBudget, new LazySmp(Constants.AI_THREADS,
+                                                                  Constants.AI_TABLE_SIZE_LOG2));
+            case "montecarlo":
+                return new ComputerPlayer(turnBudget, new MonteCarlo(Constants.AI_THREADS,
+                                                                     Constants.AI_TREE_NODES));
+            default:
+                throw new IllegalArgumentException("Unknown opponent: " + opponent);
+        }
+    }
+
+    /**
+     * Asks the given computer for an action, and waits for it.
+     */
+    private static int decide(ComputerPlayer computer, Board board) throws InterruptedException {
+        final Semaphore ready = new Semaphore(0);
+        computer.setDecisionListener(ready::release);
+        computer.startThinking(board);
+        ready.acquire();
+        return computer.pollAction(board);
+    }
+}
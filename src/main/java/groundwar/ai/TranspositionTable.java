@@ -0,0 +1,228 @@
+package groundwar.ai;
+
+import org.lwjgl.system.MemoryUtil;
+import org.lwjgl.system.jemalloc.JEmalloc;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * A hash table of positions that have already been searched, keyed by {@link
+ * groundwar.board.Board#getHash()}. Each entry is two {@code long}s, the key and the data. The data
+ * of an entry is packed as:
+ * <pre>
+ *  bits  0-31: the best action found, or {@link #NO_ACTION}
+ *  bits 32-51: the score, as a signed 20-bit number
+ *  bits 52-59: the depth that the position was searched to
+ *  bits 60-61: whether the score is {@link #EXACT}, a {@link #LOWER} bound or an {@link #UPPER}
+ *              bound
+ * </pre>
+ * When two positions land in the same slot, the newer one replaces the older one, unless the older
+ * one is the same position searched to a greater depth.
+ *
+ * The entries are kept off the Java heap, in one block allocated with jemalloc, so a table can be
+ * gigabytes large without the garbage collector ever having to look at it. If jemalloc can't be
+ * loaded, the block is a direct {@link ByteBuffer} instead, which limits the size to {@link
+ * #MAX_BUFFER_SIZE_LOG2}. Either way, the memory is only given back by {@link #delete()}.
+ *
+ * The table can be shared by many searching threads without any locks. Instead of the key, each
+ * entry holds the key XORed with the data. If two threads write the same slot at once, and a
+ * reader sees the key of one write with the data of the other, the two won't match and the entry
+ * is treated as missing. Losing an entry now and then only costs a little time.
+ */
+public class TranspositionTable {
+
+    public static final int NO_ACTION = -1;
+
+    public static final int EXACT = 1;
+    public static final int LOWER = 2;
+    public static final int UPPER = 3;
+
+    private static final int SCORE_SHIFT = 32;
+    private static final int SCORE_BITS = 20;
+    private static final int DEPTH_SHIFT = 52;
+    private static final int BOUND_SHIFT = 60;
+
+    /**
+     * The largest score that fits in an entry.
+     */
+    public static final int MAX_SCORE = (1 << SCORE_BITS - 1) - 1;
+
+    /**
+     * The base-2 log of the largest amount of entries that a table can have.
+     */
+    public static final int MAX_SIZE_LOG2 = 36;
+
+    /**
+     * The base-2 log of the largest amount of entries that a table can have if jemalloc isn't
+     * available. A direct buffer can only hold about 2GB.
+     */
+    public static final int MAX_BUFFER_SIZE_LOG2 = 26;
+
+    private static final int ENTRY_SIZE = 2 * Long.BYTES;
+
+    private final long size;
+    private final long mask;
+
+    /**
+     * The address of the first entry, or {@link MemoryUtil#NULL} once the table has been deleted.
+     * Volatile so that a thread still using the table after it's deleted sees that it's gone,
+     * rather than touching freed memory.
+     */
+    private volatile long address;
+
+    /**
+     * The buffer holding the entries, or {@code null} if they were allocated with jemalloc. Kept
+     * so that the buffer isn't garbage collected while the table is in use.
+     */
+    private ByteBuffer buffer;
+
+    /**
+     * Constructs a new, empty table.
+     *
+     * @param sizeLog2 the base-2 log of the amount of entries (in [1, {@link #MAX_SIZE_LOG2}])
+     * @throws IllegalArgumentException if {@code sizeLog2} is out of range
+     * @throws OutOfMemoryError         if the memory for the table can't be allocated
+     */
+    public TranspositionTable(int sizeLog2) {
+        if (sizeLog2 < 1 || sizeLog2 > MAX_SIZE_LOG2) {
+            throw new IllegalArgumentException(
+                String.format("Size must be in [1, %d]: %d", MAX_SIZE_LOG2, sizeLog2));
+        }
+        size = 1L << sizeLog2;
+        mask = size - 1;
+
+        long address = MemoryUtil.NULL;
+        try {
+            address = JEmalloc.nje_calloc(size, ENTRY_SIZE);
+        } catch (LinkageError e) {
+            System.err.println("jemalloc not available, using a direct buffer for the table");
+        }
+        if (address == MemoryUtil.NULL) {
+            if (sizeLog2 > MAX_BUFFER_SIZE_LOG2) {
+                throw new OutOfMemoryError("Can't allocate a table of 2^" + sizeLog2 + " entries");
+            }
+            buffer = ByteBuffer.allocateDirect((int) (size * ENTRY_SIZE))
+                .order(ByteOrder.nativeOrder());
+            address = MemoryUtil.memAddress(buffer);
+        }
+        this.address = address;
+    }
+
+    /**
+     * Gets the amount of entries in this table.
+     *
+     * @return the amount of entries
+     */
+    public long size() {
+        return size;
+    }
+
+    /**
+     * Packs the given values into the data of an entry.
+     *
+     * @param action the best action
+     * @param score  the score (in [-{@link #MAX_SCORE}, {@link #MAX_SCORE}])
+     * @param depth  the depth searched (in [0, 255])
+     * @param bound  {@link #EXACT}, {@link #LOWER} or {@link #UPPER}
+     * @return the data
+     */
+    public static long pack(int action, int score, int depth, int bound) {
+        return action & 0xffffffffL
+               | ((long) score & (1L << SCORE_BITS) - 1) << SCORE_SHIFT
+               | (long) depth << DEPTH_SHIFT
+               | (long) bound << BOUND_SHIFT;
+    }
+
+    public static int getAction(long data) {
+        return (int) data;
+    }
+
+    public static int getScore(long data) {
+        // Shift the score to the top, then back down, to extend the sign
+        return (int) (data << (64 - SCORE_SHIFT - SCORE_BITS) >> (64 - SCORE_BITS));
+    }
+
+    public static int getDepth(long data) {
+        return (int) (data >>> DEPTH_SHIFT) & 0xff;
+    }
+
+    public static int getBound(long data) {
+        return (int) (data >>> BOUND_SHIFT) & 0x3;
+    }
+
+    /**
+     * Gets the address of the first entry, checking that the table hasn't been deleted. Using the
+     * address of a deleted table would crash the whole JVM, not just throw.
+     *
+     * @return the address
+     * @throws IllegalStateException if the table has been deleted
+     */
+    private long getAddress() {
+        final long address = this.address;
+        if (address == MemoryUtil.NULL) {
+            throw new IllegalStateException("The table has been deleted!");
+        }
+        return address;
+    }
+
+    /**
+     * Looks up the given position.
+     *
+     * @param key the hash of the position
+     * @return the data of the entry, or 0 if the position isn't in the table (0 is never valid
+     * data, since its bound is 0)
+     * @throws IllegalStateException if the table has been deleted
+     */
+    public long probe(long key) {
+        final long slot = getAddress() + (key & mask) * ENTRY_SIZE;
+        final long data = MemoryUtil.memGetLong(slot + Long.BYTES);
+        return (MemoryUtil.memGetLong(slot) ^ data) == key ? data : 0L;
+    }
+
+    /**
+     * Stores the given position.
+     *
+     * @param key  the hash of the position
+     * @param data the data, from {@link #pack}
+     * @throws IllegalStateException if the table has been deleted
+     */
+    public void store(long key, long data) {
+        final long slot = getAddress() + (key & mask) * ENTRY_SIZE;
+        final long oldData = MemoryUtil.memGetLong(slot + Long.BYTES);
+        if ((MemoryUtil.memGetLong(slot) ^ oldData) == key && getDepth(oldData) > getDepth(data)) {
+            return; // Keep the deeper search of the same position
+        }
+        MemoryUtil.memPutLong(slot, key ^ data);
+        MemoryUtil.memPutLong(slot + Long.BYTES, data);
+    }
+
+    /**
+     * Removes every entry from the table. This must not be called while the table is being
+     * searched with.
+     *
+     * @throws IllegalStateException if the table has been deleted
+     */
+    public void clear() {
+        final long address = getAddress();
+        final long end = address + size * ENTRY_SIZE;
+        for (long slot = address; slot < end; slot += Long.BYTES) {
+            MemoryUtil.memPutLong(slot, 0L);
+        }
+    }
+
+    /**
+     * Frees the memory of this table. The table can't be used afterwards, and nothing may still be
+     * searching with it when this is called. Calling this more than once does nothing.
+     */
+    public void delete() {
+        if (address == MemoryUtil.NULL) {
+            return;
+        }
+        if (buffer == null) {
+            JEmalloc.nje_free(address);
+        }
+        address = MemoryUtil.NULL;
+        buffer = null;
+    }
+}
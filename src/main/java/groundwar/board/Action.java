@@ -0,0 +1,123 @@
+package groundwar.board;
+
+import groundwar.board.unit.UnitType;
+
+/**
+ * Encodes the actions that a player can take as single {@code int}s, so that lists of actions can
+ * be kept in plain {@code int[]}s. The bits of an action are laid out as:
+ * <pre>
+ *  bits  0-2:  the kind of action ({@link #END_TURN}, {@link #SPAWN}, {@link #MOVE}, {@link
+ * #ATTACK})
+ *  bits  3-5:  the ordinal of the {@link UnitType} being spawned (spawns only)
+ *  bits  6-18: the index of the tile the unit is on (moves and attacks only)
+ *  bits 19-31: the index of the tile being spawned on, moved to or attacked
+ * </pre>
+ * Tile indices are the ones given by {@link TileGrid}. Fields that don't apply to a kind of action
+ * are 0, so every action has exactly one encoding.
+ */
+public class Action {
+
+    public static final int END_TURN = 0;
+    public static final int SPAWN = 1;
+    public static final int MOVE = 2;
+    public static final int ATTACK = 3;
+
+    /**
+     * The largest tile index that fits in an action.
+     */
+    public static final int MAX_TILE_INDEX = (1 << 13) - 1;
+
+    private static final int KIND_MASK = 0x7;
+    private static final int UNIT_TYPE_SHIFT = 3;
+    private static final int UNIT_TYPE_MASK = 0x7;
+    private static final int SOURCE_SHIFT = 6;
+    private static final int TARGET_SHIFT = 19;
+
+    private static final UnitType[] UNIT_TYPES = UnitType.values();
+
+    /**
+     * Creates the action that ends the current player's turn.
+     *
+     * @return the action
+     */
+    public static int endTurn() {
+        return END_TURN;
+    }
+
+    /**
+     * Creates the action that spawns a unit of the given type.
+     *
+     * @param unitType the type of unit to spawn
+     * @param target   the index of the tile to spawn on
+     * @return the action
+     */
+    public static int spawn(UnitType unitType, int target) {
+        return SPAWN | unitType.ordinal() << UNIT_TYPE_SHIFT | target << TARGET_SHIFT;
+    }
+
+    /**
+     * Creates the action that moves a unit.
+     *
+     * @param source the index of the tile that the unit is on
+     * @param target the index of the tile to move to
+     * @return the action
+     */
+    public static int move(int source, int target) {
+        return MOVE | source << SOURCE_SHIFT | target << TARGET_SHIFT;
+    }
+
+    /**
+     * Creates the action that attacks with a unit.
+     *
+     * @param source the index of the tile that the attacking unit is on
+     * @param target the index of the tile to attack
+     * @return the action
+     */
+    public static int attack(int source, int target) {
+        return ATTACK | source << SOURCE_SHIFT | target << TARGET_SHIFT;
+    }
+
+    public static int getKind(int action) {
+        return action & KIND_MASK;
+    }
+
+    /**
+     * Gets the type of unit spawned by the given action.
+     *
+     * @param action the action (a {@link #SPAWN})
+     * @return the type of unit
+     */
+    public static UnitType getUnitType(int action) {
+        return UNIT_TYPES[action >>> UNIT_TYPE_SHIFT & UNIT_TYPE_MASK];
+    }
+
+    public static int getSource(int action) {
+        return action >>> SOURCE_SHIFT & MAX_TILE_INDEX;
+    }
+
+    public static int getTarget(int action) {
+        return action >>> TARGET_SHIFT;
+    }
+
+    /**
+     * Gets a String describing the given action, such as "Move 12 -> 15".
+     *
+     * @param action the action
+     * @return the String
+     */
+    public static String toString(int action) {
+        switch (getKind(action)) {
+            case END_TURN:
+                return "End turn";
+            case SPAWN:
+                return String.format("Spawn %s on %d", getUnitType(action).displayName,
+                                     getTarget(action));
+            case MOVE:
+                return String.format("Move %d -> %d", getSource(action), getTarget(action));
+            case ATTACK:
+                return String.format("Attack %d -> %d", getSource(action), getTarget(action));
+            default:
+                return String.format("Unknown action 0x%08x", action);
+        }
+    }
+}
@@ -0,0 +1,238 @@
+package groundwar.board;
+
+import java.util.Objects;
+
+import groundwar.board.tile.GoldTile;
+import groundwar.board.tile.Tile;
+import groundwar.board.tile.TileListener;
+
+/**
+ * Holds the state of a board as sets of bits, called masks, with one bit per tile (at the tile's
+ * index). Each mask is a {@code long[]}, with tile {@code i} at bit {@code i % 64} of word {@code i
+ * / 64}. This lets the legality of moves, attacks and spawns be worked out for the whole board at
+ * once with a few word-wide operations.
+ *
+ * The masks are kept in sync by listening to the tiles of the board. Masks handed out by this
+ * class must not be modified.
+ */
+public class Bitboards implements TileListener {
+
+    private final int size;
+    private final int words;
+
+    /**
+     * The bits of the last word that are actual tiles. All other words are completely used.
+     */
+    private final long lastWordMask;
+
+    private final long[] occupied;
+    private final long[][] unitOwners;
+    private final long[] impassable;
+    private final long[] flags;
+    private final long[][] spawnZones;
+    private final long[] goldMines;
+
+    /**
+     * Constructs a new {@code Bitboards} from the current state of the given tiles. This does not
+     * register itself as a listener to the tiles.
+     *
+     * @param tiles the tiles of the board (non-null)
+     * @throws NullPointerException if {@code tiles == null}
+     */
+    public Bitboards(TileGrid tiles) {
+        Objects.requireNonNull(tiles);
+        size = tiles.size();
+        words = wordsFor(size);
+        lastWordMask = size % 64 == 0 ? -1L : (1L << size % 64) - 1;
+
+        final int numPlayers = PlayerInfo.values().length;
+        occupied = new long[words];
+        unitOwners = new long[numPlayers][words];
+        impassable = new long[words];
+        flags = new long[words];
+        spawnZones = new long[numPlayers][words];
+        goldMines = new long[words];
+
+        for (int i = 0; i < size; i++) {
+            final Tile tile = tiles.get(i);
+            set(impassable, i, !tile.isPassable());
+            set(goldMines, i, tile instanceof GoldTile);
+            onUnitChange(tile);
+            onOwnerChange(tile);
+            onFlagChange(tile);
+        }
+    }
+
+    /**
+     * Gets the amount of words needed for a mask over the given amount of tiles.
+     *
+     * @param size the amount of tiles
+     * @return the length of a mask
+     */
+    public static int wordsFor(int size) {
+        return (size + 63) / 64;
+    }
+
+    /**
+     * Is the given bit set in the given mask?
+     *
+     * @param mask  the mask
+     * @param index the index of the bit
+     * @return true if the bit is set, false otherwise
+     */
+    public static boolean isSet(long[] mask, int index) {
+        return (mask[index >> 6] & 1L << index) != 0;
+    }
+
+    /**
+     * Finds the next set bit in the given mask, starting at {@code from}, inclusive. This can be
+     * used to loop over every tile in a mask: {@code for (int i = nextSetBit(mask, 0); i >= 0; i =
+     * nextSetBit(mask, i + 1))}.
+     *
+     * @param mask the mask
+     * @param from the index to start at (non-negative)
+     * @return the index of the next set bit, or -1 if there isn't one
+     */
+    public static int nextSetBit(long[] mask, int from) {
+        int word = from >> 6;
+        if (word >= mask.length) {
+            return -1;
+        }
+        long bits = mask[word] & -1L << from;
+        while (bits == 0) {
+            if (++word >= mask.length) {
+                return -1;
+            }
+            bits = mask[word];
+        }
+        return word * 64 + Long.numberOfTrailingZeros(bits);
+    }
+
+    private static void set(long[] mask, int index, boolean value) {
+        if (value) {
+            mask[index >> 6] |= 1L << index;
+        } else {
+            mask[index >> 6] &= ~(1L << index);
+        }
+    }
+
+    /**
+     * Gets the amount of tiles covered by each mask.
+     *
+     * @return the amount of tiles
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Gets the length of each mask.
+     *
+     * @return the length of each mask
+     */
+    public int getWords() {
+        return words;
+    }
+
+    public long[] getOccupied() {
+        return occupied;
+    }
+
+    /**
+     * Gets the mask of all tiles with units owned by the given player.
+     *
+     * @param player the player
+     * @return the mask
+     */
+    public long[] getUnits(Player player) {
+        return unitOwners[player.getInfo().ordinal()];
+    }
+
+    public long[] getImpassable() {
+        return impassable;
+    }
+
+    public long[] getFlags() {
+        return flags;
+    }
+
+    /**
+     * Gets the mask of all tiles owned by the given player, which are the tiles that the player
+     * can spawn units on when they're empty.
+     *
+     * @param player the player
+     * @return the mask
+     */
+    public long[] getSpawnZone(Player player) {
+        return spawnZones[player.getInfo().ordinal()];
+    }
+
+    public long[] getGoldMines() {
+        return goldMines;
+    }
+
+    /**
+     * Writes the mask of all tiles that any unit can move onto, which are all empty, passable
+     * tiles.
+     *
+     * @param dest the mask to write to (length of at least {@link #getWords()})
+     */
+    public void getMoveable(long[] dest) {
+        for (int i = 0; i < words; i++) {
+            dest[i] = ~(occupied[i] | impassable[i]);
+        }
+        dest[words - 1] &= lastWordMask;
+    }
+
+    /**
+     * Writes the mask of all tiles that units owned by the given player can attack, which are all
+     * tiles with units owned by any other player.
+     *
+     * @param player the attacking player
+     * @param dest   the mask to write to (length of at least {@link #getWords()})
+     */
+    public void getAttackable(Player player, long[] dest) {
+        final long[] own = getUnits(player);
+        for (int i = 0; i < words; i++) {
+            dest[i] = occupied[i] & ~own[i];
+        }
+    }
+
+    /**
+     * Writes the mask of all tiles that the given player can spawn units on, which are all empty
+     * tiles owned by the player.
+     *
+     * @param player the spawning player
+     * @param dest   the mask to write to (length of at least {@link #getWords()})
+     */
+    public void getSpawnable(Player player, long[] dest) {
+        final long[] zone = getSpawnZone(player);
+        for (int i = 0; i < words; i++) {
+            dest[i] = zone[i] & ~occupied[i];
+        }
+    }
+
+    @Override
+    public void onUnitChange(Tile tile) {
+        final int index = tile.getIndex();
+        set(occupied, index, tile.hasUnit());
+        for (int p = 0; p < unitOwners.length; p++) {
+            set(unitOwners[p], index,
+                tile.hasUnit() && tile.getUnit().getOwner().getInfo().ordinal() == p);
+        }
+    }
+
+    @Override
+    public void onOwnerChange(Tile tile) {
+        final int index = tile.getIndex();
+        for (int p = 0; p < spawnZones.length; p++) {
+            set(spawnZones[p], index,
+                tile.getOwner() != null && tile.getOwner().getInfo().ordinal() == p);
+        }
+    }
+
+    @Override
+    public void onFlagChange(Tile tile) {
+        set(flags, tile.getIndex(), tile.getFlag() != null);
+    }
+}
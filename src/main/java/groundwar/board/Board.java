@@ -1,20 +1,19 @@
 package groundwar.board;
 
 import java.io.IOException;
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Random;
-import java.util.Set;
 
 import groundwar.board.tile.Tile;
+import groundwar.board.tile.TileListener;
 import groundwar.board.unit.Unit;
 import groundwar.board.unit.UnitType;
 import groundwar.util.BoardHandler;
 import groundwar.util.Constants;
-import groundwar.util.Direction;
-import groundwar.util.Funcs;
-import groundwar.util.Path;
+import groundwar.util.GameRandom;
 import groundwar.util.Point;
 
 public class Board {
@@ -22,7 +21,10 @@ public class Board {
     private final Player[] players = new Player[PlayerInfo.values().length];
     private int currentPlayer;
     private int turnCount = 1;
-    private final Map<Point, Tile> tiles;
+    private final TileGrid tiles;
+    private final BoardTopology topology;
+    private final Bitboards bitboards;
+    private final ZobristHash zobristHash;
 
     /**
      * The tile that is currently selected. If {@code selectedTile != null}, then {@code
@@ -32,29 +34,56 @@ public class Board {
     private Unit spawningUnit;
 
     /**
-     * A set of all paths that the currently selected unit ({@code selectedTile.getUnit()}) can move
-     * through. All paths must have their origin be {@link #selectedTile}, and must be moveable,
-     * meaning that each tile in the path is moveable for the currently-selected unit. Each entry in
-     * the map contains the destination of the path, and the path itself.
+     * Everything that the currently-selected unit ({@code selectedTile.getUnit()}) can move to or
+     * attack. The origin of the set is always {@link #selectedTile}.
      *
-     * Empty if {@code selectedTile == null}.
+     * {@code null} if {@code selectedTile == null}.
      */
-    private final Map<Tile, Path> moveablePaths = new HashMap<>();
+    private ReachableSet reachable;
+    private final ReachabilityCache reachabilityCache;
+
+    private final UnitPool unitPool = new UnitPool();
+    private final UndoStack undoStack;
 
     /**
-     * A map of all paths that the currently-selected unit ({@code selectedTile.getUnit()}) can
-     * attack via. All paths must have their origin be {@link #selectedTile}, and must be
-     * attackable, meaning that each tile in the path is moveable for the currently-selected unit,
-     * except for the last, which is attackable. Each entry in the map contains the destination of
-     * the path, and the path itself.
-     *
-     * Empty if {@code selectedTile == null}.
+     * Every listener added with {@link #addTileListener}, which is told about changes to the tiles
+     * of this board. The board's own listeners aren't in here: they are told about each change
+     * first, in the order they were made, called directly so that the calls can be inlined.
      */
-    private final Map<Tile, Path> attackablePaths = new HashMap<>();
-    private final Random random = new Random();
+    private final List<TileListener> tileListeners = new ArrayList<>();
+    private final List<BoardListener> boardListeners = new ArrayList<>();
+    private final GameRandom random;
+    private final GameRecord record;
     private Player winner;
 
+    /**
+     * The damage that the next combat does to the attacker and defender instead of rolling for it,
+     * or -1 to roll. Only set during {@link #applyAttack}.
+     */
+    private int forcedAttackerDamage = -1;
+    private int forcedDefenderDamage = -1;
+
+    /**
+     * Constructs a new board, loaded from the default file, with a randomly-seeded random number
+     * generator.
+     *
+     * @throws IOException if the board can't be loaded
+     */
     public Board() throws IOException {
+        this(new Random().nextLong());
+    }
+
+    /**
+     * Constructs a new board, loaded from the default file. Two boards with the same seed will give
+     * the same combat results when given the same moves.
+     *
+     * @param seed the seed for the random number generator
+     * @throws IOException if the board can't be loaded
+     */
+    public Board(long seed) throws IOException {
+        random = new GameRandom(seed);
+        record = new GameRecord(seed);
+
         // Initialize players
         for (PlayerInfo color : PlayerInfo.values()) {
             players[color.ordinal()] = new Player(color);
@@ -62,6 +91,159 @@ public class Board {
 
         // Load tiles from the file
         tiles = new BoardHandler(this).loadBoard();
+        topology = new BoardTopology(tiles);
+        final TileListener dispatcher = new TileListener() {
+            @Override
+            public void beforeTileChange(Tile tile) {
+                bitboards.beforeTileChange(tile);
+                reachabilityCache.beforeTileChange(tile);
+                zobristHash.beforeTileChange(tile);
+                undoStack.beforeTileChange(tile);
+                for (int i = 0; i < tileListeners.size(); i++) {
+                    tileListeners.get(i).beforeTileChange(tile);
+                }
+            }
+
+            @Override
+            public void onUnitChange(Tile tile) {
+                bitboards.onUnitChange(tile);
+                reachabilityCache.onUnitChange(tile);
+                zobristHash.onUnitChange(tile);
+                undoStack.onUnitChange(tile);
+                for (int i = 0; i < tileListeners.size(); i++) {
+                    tileListeners.get(i).onUnitChange(tile);
+                }
+            }
+
+            @Override
+            public void onUnitMovesChange(Tile tile) {
+                bitboards.onUnitMovesChange(tile);
+                reachabilityCache.onUnitMovesChange(tile);
+                zobristHash.onUnitMovesChange(tile);
+                undoStack.onUnitMovesChange(tile);
+                for (int i = 0; i < tileListeners.size(); i++) {
+                    tileListeners.get(i).onUnitMovesChange(tile);
+                }
+            }
+
+            @Override
+            public void onOwnerChange(Tile tile) {
+                bitboards.onOwnerChange(tile);
+                reachabilityCache.onOwnerChange(tile);
+                zobristHash.onOwnerChange(tile);
+                undoStack.onOwnerChange(tile);
+                for (int i = 0; i < tileListeners.size(); i++) {
+                    tileListeners.get(i).onOwnerChange(tile);
+                }
+            }
+
+            @Override
+            public void onFlagChange(Tile tile) {
+                bitboards.onFlagChange(tile);
+                reachabilityCache.onFlagChange(tile);
+                zobristHash.onFlagChange(tile);
+                undoStack.onFlagChange(tile);
+                for (int i = 0; i < tileListeners.size(); i++) {
+                    tileListeners.get(i).onFlagChange(tile);
+                }
+            }
+
+            @Override
+            public void onColorChange(Tile tile) {
+                bitboards.onColorChange(tile);
+                reachabilityCache.onColorChange(tile);
+                zobristHash.onColorChange(tile);
+                undoStack.onColorChange(tile);
+                for (int i = 0; i < tileListeners.size(); i++) {
+                    tileListeners.get(i).onColorChange(tile);
+                }
+            }
+        };
+        for (int i = 0; i < tiles.size(); i++) {
+            tiles.get(i).setTopology(topology);
+            tiles.get(i).setListener(dispatcher);
+        }
+
+        bitboards = new Bitboards(tiles);
+        reachabilityCache = new ReachabilityCache(new Reachability(tiles, topology, bitboards),
+                                                  topology);
+        zobristHash = new ZobristHash(this);
+        undoStack = new UndoStack(this, unitPool);
+    }
+
+    /**
+     * Constructs a copy of the given board, in exactly the same state. The copy is loaded from the
+     * default file, and shares no state with the original, so it can be used on another thread.
+     * It has none of the original's listeners, no undo history, and nothing selected.
+     *
+     * This must be called on the thread that the original is being used on.
+     *
+     * @param board the board to copy (non-null)
+     * @throws NullPointerException if {@code board == null}
+     * @throws IOException          if the board can't be loaded
+     */
+    public Board(Board board) throws IOException {
+        this(board.random.getSeed());
+        copyStateFrom(board);
+    }
+
+    /**
+     * Puts this board into exactly the same state as the given board, which must have been loaded
+     * from the same file. The undo history of this board is cleared, and nothing is left
+     * selected. This is much cheaper than {@link #Board(Board) copying} the board, so a board can
+     * be kept around and reused for each position that needs to be looked at.
+     *
+     * The given board is only read from, so many boards can copy the same board at once, as long
+     * as nothing is changing it.
+     *
+     * @param board the board to copy (non-null, same tiles as this board)
+     * @throws NullPointerException     if {@code board == null}
+     * @throws IllegalArgumentException if the boards don't have the same amount of tiles
+     */
+    public void copyStateFrom(Board board) {
+        if (board.tiles.size() != tiles.size()) {
+            throw new IllegalArgumentException("Boards must have the same tiles");
+        }
+        undoStack.clear();
+        cancelSpawning();
+        unselectTile();
+        reachabilityCache.clear(); // Every tile changes, so there's no point checking each set
+        random.copyFrom(board.random);
+        record.copyFrom(board.record);
+        for (int i = 0; i < players.length; i++) {
+            players[i].setGold(board.players[i].getGold());
+        }
+        currentPlayer = board.currentPlayer;
+        turnCount = board.turnCount;
+        winner = copyOf(board.winner);
+
+        // Copy the state of each tile, without running any game logic
+        for (int i = 0; i < tiles.size(); i++) {
+            final Tile tile = board.tiles.get(i);
+            final Unit unit = tile.getUnit();
+            Unit unitCopy = null;
+            if (unit != null) {
+                unitCopy = unit.getType().createUnit(copyOf(unit.getOwner()));
+                unitCopy.restore(unit.getHealth(), unit.getMovesRemaining(),
+                                 copyOf(unit.getFlag()));
+            }
+            tiles.get(i).restore(unitCopy, copyOf(tile.getFlag()), copyOf(tile.getOwner()),
+                                 tile.getBackgroundColor(), tile.getOutlineColor());
+        }
+    }
+
+    /**
+     * Gets the player on this board that matches a player from another board.
+     *
+     * @param player the player from the other board
+     * @return the matching player, or {@code null} if {@code player == null}
+     */
+    private Player copyOf(Player player) {
+        return player == null ? null : players[player.getInfo().ordinal()];
+    }
+
+    private Flag copyOf(Flag flag) {
+        return flag == null ? null : new Flag(copyOf(flag.getOwner()));
     }
 
     public Player getCurrentPlayer() {
@@ -76,10 +258,104 @@ public class Board {
         return turnCount;
     }
 
+    GameRandom getRandom() {
+        return random;
+    }
+
+    /**
+     * Gets the record of every action applied to this board since it was created, which can be
+     * used to replay the game. The record is kept up to date as actions are applied and undone.
+     *
+     * @return the record
+     */
+    public GameRecord getRecord() {
+        return record;
+    }
+
+    /**
+     * Sets the state of the random number generator that decides combat, so that a simulation can
+     * try out other results for the same attacks. This isn't recorded for {@link #undoAction()}:
+     * undoing later actions puts back the new state, not the one from before this call. Once this
+     * is called, the board's {@link #getRecord() record} can no longer be replayed.
+     *
+     * @param state the new state
+     */
+    public void setRandomState(long state) {
+        random.setState(state);
+    }
+
     public Map<Point, Tile> getTiles() {
+        return tiles.asMap();
+    }
+
+    public TileGrid getTileGrid() {
         return tiles;
     }
 
+    public BoardTopology getTopology() {
+        return topology;
+    }
+
+    public Bitboards getBitboards() {
+        return bitboards;
+    }
+
+    /**
+     * Gets a 64-bit hash of the complete state of this board. Two boards in the same state always
+     * have the same hash.
+     *
+     * @return the hash
+     * @see ZobristHash
+     */
+    public long getHash() {
+        return zobristHash.getHash();
+    }
+
+    /**
+     * Adds a listener that will be told about changes to the tiles of this board.
+     *
+     * @param listener the listener (non-null)
+     * @throws NullPointerException if {@code listener == null}
+     */
+    public void addTileListener(TileListener listener) {
+        Objects.requireNonNull(listener);
+        tileListeners.add(listener);
+    }
+
+    /**
+     * Adds a listener that will be told about events on this board.
+     *
+     * @param listener the listener (non-null)
+     * @throws NullPointerException if {@code listener == null}
+     */
+    public void addBoardListener(BoardListener listener) {
+        Objects.requireNonNull(listener);
+        boardListeners.add(listener);
+    }
+
+    /**
+     * Removes a listener added with {@link #addBoardListener}. If it isn't a listener of this
+     * board, nothing happens.
+     *
+     * @param listener the listener
+     */
+    public void removeBoardListener(BoardListener listener) {
+        boardListeners.remove(listener);
+    }
+
+    /**
+     * Gets the tiles that the unit on the given tile can reach with its remaining moves. The result
+     * is cached until something near the unit changes, and is refilled in place after that, so it
+     * must not be kept after the board changes.
+     *
+     * @param origin the tile holding the unit (non-null, {@code origin.hasUnit()})
+     * @return the reachable tiles
+     * @throws NullPointerException if {@code origin == null} or {@code origin.getUnit() == null}
+     */
+    public ReachableSet getReachable(Tile origin) {
+        return reachabilityCache.get(origin);
+    }
+
     public Tile getSelectedTile() {
         return selectedTile;
     }
@@ -128,7 +404,7 @@ public class Board {
         Objects.requireNonNull(tile);
         Objects.requireNonNull(tile.getUnit());
         selectedTile = tile;
-        populatePaths();
+        reachable = reachabilityCache.get(tile);
     }
 
     /**
@@ -136,8 +412,7 @@ public class Board {
      */
     public void unselectTile() {
         selectedTile = null;
-        moveablePaths.clear();
-        attackablePaths.clear();
+        reachable = null;
     }
 
     /**
@@ -169,9 +444,7 @@ public class Board {
      */
     private void spawnUnit(Tile tile) {
         if (tile.isSpawnable(spawningUnit)) {
-            getCurrentPlayer().decrGold(spawningUnit.getCost());
-            tile.setUnit(spawningUnit);
-            spawningUnit = null;
+            applyAction(Action.spawn(spawningUnit.getType(), tile.getIndex()));
         }
     }
 
@@ -185,8 +458,7 @@ public class Board {
     public boolean canSelectedMoveTo(Tile destination) {
         Objects.requireNonNull(selectedTile);
         Objects.requireNonNull(destination);
-        final Path path = moveablePaths.get(destination);
-        return path != null && path.getDestination().isMoveable(selectedTile.getUnit());
+        return reachable.isMoveable(destination);
     }
 
     /**
@@ -198,9 +470,8 @@ public class Board {
      */
     private boolean moveSelectedUnit(Tile destination) {
         Objects.requireNonNull(destination);
-        final Path path = moveablePaths.get(destination);
-        if (path != null) {
-            moveUnit(selectedTile, destination, path.getLength());
+        if (reachable.isMoveable(destination)) {
+            applyAction(Action.move(selectedTile.getIndex(), destination.getIndex()));
             return true;
         }
         return false;
@@ -219,9 +490,11 @@ public class Board {
         Objects.requireNonNull(from);
         Objects.requireNonNull(to);
         if (from != to) {
-            to.setUnit(from.getUnit());
+            // Take the unit off the old tile first, so it's never on two tiles at once
+            final Unit unit = from.getUnit();
             from.setUnit(null);
-            to.getUnit().useMoves(distance);
+            to.setUnit(unit);
+            to.useUnitMoves(distance);
 
             // After moving the unit, check the moved-to tile for victory
             if (to.shouldGameEnd()) {
@@ -241,8 +514,7 @@ public class Board {
     public boolean canSelectedAttack(Tile destination) {
         Objects.requireNonNull(selectedTile);
         Objects.requireNonNull(destination);
-        final Path path = attackablePaths.get(destination);
-        return path != null && path.getDestination().isAttackable(selectedTile.getUnit());
+        return reachable.isAttackable(destination);
     }
 
     /**
@@ -256,15 +528,8 @@ public class Board {
      */
     private boolean attackWithSelectedUnit(Tile destination) {
         Objects.requireNonNull(destination);
-        final Path path = attackablePaths.get(destination);
-        if (path != null) {
-            // Get the tile adjacent to the defender first, then move the unit there.
-            final Tile adjTile = path.getSecondToLastTile();
-            moveUnit(selectedTile, adjTile, path.getLength() - 1);
-
-            // Conduct combat. If the attacker wins, it will be moved onto the defender's tile, otherwise
-            // both units hold their positions (unless they're killed).
-            conductCombat(adjTile, destination);
+        if (reachable.isAttackable(destination)) {
+            applyAction(Action.attack(selectedTile.getIndex(), destination.getIndex()));
             return true;
         }
         return false;
@@ -288,23 +553,30 @@ public class Board {
         final float biasLow = attackerBias - Constants.DAMAGE_MARGIN;
         final float biasHigh = attackerBias + Constants.DAMAGE_MARGIN;
 
-        // Calculate inflicted damage
-        final int attackerDamage = (int) (defendingUnit.getCombatStrength() *
-                                          Funcs.randomInRange(random, biasLow, biasHigh));
-        final int defenderDamage = (int) (attackingUnit.getCombatStrength() *
-                                          Funcs.randomInRange(random, biasLow, biasHigh));
+        // Calculate inflicted damage, in the same way that CombatOdds expects
+        final int attackerDamage;
+        final int defenderDamage;
+        if (forcedAttackerDamage >= 0) {
+            attackerDamage = forcedAttackerDamage;
+            defenderDamage = forcedDefenderDamage;
+        } else {
+            attackerDamage = CombatOdds.damage(defendingUnit.getCombatStrength(), biasLow, biasHigh,
+                                               random.nextFloat());
+            defenderDamage = CombatOdds.damage(attackingUnit.getCombatStrength(), biasLow, biasHigh,
+                                               random.nextFloat());
+        }
 
-        System.out.printf("Attacking %s %s took %d damage!\n", attackingUnit.getOwner(),
-                          attackingUnit.getDisplayName(), attackerDamage);
-        System.out.printf("Defending %s %s took %d damage!\n", defendingUnit.getOwner(),
-                          defendingUnit.getDisplayName(), defenderDamage);
         // Inflict the damage
         attackingTile.hurtUnit(attackerDamage);
         defendingTile.hurtUnit(defenderDamage);
+        for (int i = 0; i < boardListeners.size(); i++) {
+            boardListeners.get(i).onCombat(attackingUnit, defendingUnit, attackerDamage,
+                                           defenderDamage);
+        }
 
         if (attackingTile.hasUnit()) {
             // The attacker survived. Take away all their movement points.
-            attackingTile.getUnit().exhaustMoves();
+            attackingTile.exhaustUnitMoves();
             if (!defendingTile.hasUnit()) {
                 // The defender was killed. Move the attacker onto the defender's tile
                 moveUnit(attackingTile, defendingTile, 0);
@@ -313,88 +585,225 @@ public class Board {
     }
 
     /**
-     * Move to the next player's turn.
+     * Applies the given action for the current player. The action must be legal, such as one listed
+     * by a {@link MoveGenerator}. NO CHECKS ARE PERFORMED, so be careful with this! Any selected
+     * tile or spawning unit is cleared, since it may no longer be valid afterwards.
+     *
+     * Everything that the action changes is recorded, so it can be undone with {@link
+     * #undoAction()}.
+     *
+     * @param action the action, encoded as described in {@link Action}
+     * @throws IllegalArgumentException if the action is of an unknown kind
      */
-    public void nextTurn() {
-        tiles.values().forEach(Tile::onEndTurn); // Call onEndTurn() for each tile
-        // Reset movement points for each unit
-        tiles.values().stream().filter(Tile::hasUnit).forEach(tile -> tile.getUnit().resetMoves());
-        cancelSpawning(); // Cancel unit spawning
+    public void applyAction(int action) {
+        cancelSpawning();
         unselectTile();
-
-        // Next player. If this was the last player...
-        if (++currentPlayer >= players.length) {
-            currentPlayer = 0; // Go back to the first player
+        undoStack.push();
+        switch (Action.getKind(action)) {
+            case Action.END_TURN:
+                endTurn();
+                break;
+            case Action.SPAWN:
+                spawnUnit(Action.getUnitType(action), tiles.get(Action.getTarget(action)));
+                break;
+            case Action.MOVE:
+                moveUnit(tiles.get(Action.getSource(action)), tiles.get(Action.getTarget(action)));
+                break;
+            case Action.ATTACK:
+                attack(tiles.get(Action.getSource(action)), tiles.get(Action.getTarget(action)));
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown action: " + Action.toString(action));
         }
-        turnCount++;
+        record.add(action, random.getDraws());
+        firePositionChange();
     }
 
-    private void endGame() {
-        winner = getCurrentPlayer();
+    /**
+     * Applies the given attack for the current player, with the given result instead of a random
+     * one, so that a search can look at each result without knowing which one the game would
+     * really give. The random number generator isn't used, so once this is called, the board's
+     * {@link #getRecord() record} can no longer be replayed. Otherwise, this is the same as {@link
+     * #applyAction}, and can be undone with {@link #undoAction()}.
+     *
+     * @param action         the attack, encoded as described in {@link Action}
+     * @param attackerDamage the damage that the attacking unit takes (non-negative)
+     * @param defenderDamage the damage that the defending unit takes (non-negative)
+     * @throws IllegalArgumentException if the action isn't an attack, or either damage is negative
+     */
+    public void applyAttack(int action, int attackerDamage, int defenderDamage) {
+        if (Action.getKind(action) != Action.ATTACK) {
+            throw new IllegalArgumentException("Not an attack: " + Action.toString(action));
+        }
+        if (attackerDamage < 0 || defenderDamage < 0) {
+            throw new IllegalArgumentException("Damage can't be negative");
+        }
+        forcedAttackerDamage = attackerDamage;
+        forcedDefenderDamage = defenderDamage;
+        try {
+            applyAction(action);
+        } finally {
+            forcedAttackerDamage = -1;
+            forcedDefenderDamage = -1;
+        }
     }
 
-    public Player getWinner() {
-        return winner;
+    /**
+     * Undoes the most recent action applied with {@link #applyAction}, putting the board back into
+     * exactly the state it was in before that action, random number generator included. Any
+     * selected tile or spawning unit is cleared. This is for searches: players take actions back
+     * with {@link #takeBackAction()}.
+     *
+     * @throws IllegalStateException if there is no action to undo
+     */
+    public void undoAction() {
+        cancelSpawning();
+        unselectTile();
+        undoStack.pop();
+        record.removeLast();
+        firePositionChange();
     }
 
-    public boolean isGameOver() {
-        return winner != null;
+    private void firePositionChange() {
+        for (int i = 0; i < boardListeners.size(); i++) {
+            boardListeners.get(i).onPositionChange();
+        }
     }
 
     /**
-     * Gets a {@link Set} of all paths within moveable range of {@link #selectedTile}. A path is
-     * moveable if each tile in it is moveable, and its length is less than or equal to the selected
-     * unit's remaining moves.
+     * Is there an action that can be undone with {@link #undoAction()}?
+     *
+     * @return true if there is an action to undo, false otherwise
      */
-    private void populatePaths() {
-        populatePaths(new Path(selectedTile), selectedTile.getUnit(),
-                      selectedTile.getUnit().getMovesRemaining());
+    public boolean canUndo() {
+        return undoStack.size() > 0;
     }
 
     /**
-     * Gets a {@link Set} of all moveable paths that are at mose {@code range} steps longer than
-     * {@code path}. A path is moveable if each tile in it is moveable for {@code unit}.
+     * Takes back the current player's last action, for a player who changed their mind. Unlike
+     * {@link #undoAction()}, the random number generator is left where it is, so nothing that was
+     * drawn can be drawn again.
      *
-     * @param path  the path to add onto (non-null, terminated)
-     * @param unit  the unit to be checked for movement
-     * @param range the amount of tiles to spread outwards (positive)
+     * @throws IllegalStateException if the last action can't be taken back
+     * @see #canTakeBack()
      */
-    private void populatePaths(Path path, Unit unit, int range) {
-        if (range > 0) {
-            for (Direction dir : Direction.values()) {
-                Tile nextTile = path.getDestination().getAdjacentTile(dir);
-                if (nextTile != null) {
-                    // Create a path to the adjacent tile
-                    Path newPath = path.copy();
-                    newPath.addTile(nextTile);
+    public void takeBackAction() {
+        if (!canTakeBack()) {
+            throw new IllegalStateException("The last action can't be taken back!");
+        }
+        final long randomState = random.getState();
+        undoAction();
+        random.setState(randomState);
+    }
 
-                    // If it's moveable, add it to moveablePaths and search deeper
-                    // If it's attackable, add it to attackPaths, but don't search any deeper
-                    if (nextTile.isMoveable(unit)) {
-                        addPath(moveablePaths, newPath);
-                        populatePaths(newPath, unit, range - 1); // Search further out
-                    } else if (nextTile.isAttackable(unit)) {
-                        addPath(attackablePaths, newPath);
-                    }
-                }
-            }
+    /**
+     * Can the last action be taken back with {@link #takeBackAction()}? Only moves and spawns made
+     * by the current player in this turn can be. Ending a turn or attacking can't be taken back,
+     * since the other player's turn has been played, or the result of the attack has been seen,
+     * and nor can anything before them. Nothing can be taken back once the game is over.
+     *
+     * @return true if there is an action to take back, false otherwise
+     */
+    public boolean canTakeBack() {
+        if (!canUndo() || isGameOver()) {
+            return false;
         }
+        final int kind = Action.getKind(record.getAction(record.size() - 1));
+        return kind == Action.MOVE || kind == Action.SPAWN;
     }
 
     /**
-     * Adds the given path to the given map. If the map already contains a path leading to the same
-     * tile as the given path, then the shorter of the two will stay in the map.
+     * Puts the state of this board itself back to an earlier state. Only used by {@link
+     * UndoStack}.
+     */
+    void restore(long randomState, int currentPlayer, int turnCount, Player winner) {
+        random.setState(randomState);
+        this.currentPlayer = currentPlayer;
+        this.turnCount = turnCount;
+        this.winner = winner;
+    }
+
+    /**
+     * Spawns a unit of the given type for the current player on the given tile, and takes its cost
+     * from the player.
+     *
+     * @param unitType the type of unit to spawn
+     * @param tile     the tile to spawn on
+     */
+    private void spawnUnit(UnitType unitType, Tile tile) {
+        final Unit unit = unitPool.obtain(unitType, getCurrentPlayer());
+        getCurrentPlayer().decrGold(unitType.cost);
+        tile.setUnit(unit);
+        undoStack.setSpawnedUnit(unit);
+    }
+
+    /**
+     * Moves the unit on {@code from} to {@code to}, along the shortest path within its range.
      *
-     * @param map  the map to be added to
-     * @param path the path to be added
+     * @param from the tile holding the unit
+     * @param to   the tile to move to
      */
-    private void addPath(Map<Tile, Path> map, Path path) {
-        final Tile destination = path.getDestination();
-        final Path currentPath = map.get(path.getDestination());
+    private void moveUnit(Tile from, Tile to) {
+        moveUnit(from, to, reachabilityCache.get(from).getDistance(to));
+    }
+
+    /**
+     * Attacks the unit on {@code defendingTile} with the unit on {@code attackingTile}. The attacker
+     * first moves to the tile before the defender on the shortest path, then combat is conducted.
+     *
+     * @param attackingTile the tile holding the attacking unit
+     * @param defendingTile the tile holding the defending unit
+     */
+    private void attack(Tile attackingTile, Tile defendingTile) {
+        final ReachableSet reachable = reachabilityCache.get(attackingTile);
+        final int distance = reachable.getDistance(defendingTile);
+
+        // Get the tile adjacent to the defender first, then move the unit there.
+        final Tile adjTile = tiles.get(reachable.getParent(defendingTile));
+        moveUnit(attackingTile, adjTile, distance - 1);
+
+        // Conduct combat. If the attacker wins, it will be moved onto the defender's tile, otherwise
+        // both units hold their positions (unless they're killed).
+        conductCombat(adjTile, defendingTile);
+    }
+
+    /**
+     * Move to the next player's turn. This can be undone with {@link #undoAction()}.
+     */
+    public void nextTurn() {
+        applyAction(Action.endTurn());
+    }
 
-        // If there is no current path to the tile, or the new path is shorter
-        if (currentPath == null || path.getLength() < currentPath.getLength()) {
-            map.put(destination, path); // Put it in the list
+    private void endTurn() {
+        // Call onEndTurn() for each tile, then reset movement points for each unit
+        for (int i = 0; i < tiles.size(); i++) {
+            tiles.get(i).onEndTurn();
         }
+        for (int i = 0; i < tiles.size(); i++) {
+            final Tile tile = tiles.get(i);
+            if (tile.hasUnit()) {
+                tile.resetUnitMoves();
+            }
+        }
+        cancelSpawning(); // Cancel unit spawning
+        unselectTile();
+
+        // Next player. If this was the last player...
+        if (++currentPlayer >= players.length) {
+            currentPlayer = 0; // Go back to the first player
+        }
+        turnCount++;
+    }
+
+    private void endGame() {
+        winner = getCurrentPlayer();
+    }
+
+    public Player getWinner() {
+        return winner;
+    }
+
+    public boolean isGameOver() {
+        return winner != null;
     }
 }
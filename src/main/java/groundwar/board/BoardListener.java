@@ -0,0 +1,29 @@
+package groundwar.board;
+
+import groundwar.board.unit.Unit;
+
+/**
+ * Listens for events on a {@link Board}. The board itself never depends on anything outside of the
+ * game state, so anything that wants to show or log what happens in a game (such as the renderer)
+ * does it through a listener.
+ */
+public interface BoardListener {
+
+    /**
+     * Called <i>directly after</i> combat is conducted, once both units have taken damage.
+     *
+     * @param attacker       the attacking unit
+     * @param defender       the defending unit
+     * @param attackerDamage the damage taken by the attacker
+     * @param defenderDamage the damage taken by the defender
+     */
+    default void onCombat(Unit attacker, Unit defender, int attackerDamage, int defenderDamage) {
+    }
+
+    /**
+     * Called <i>directly after</i> an action is applied or undone, once the board is in its new
+     * state.
+     */
+    default void onPositionChange() {
+    }
+}
@@ -0,0 +1,141 @@
+package groundwar.board;
+
+import java.util.Objects;
+
+import groundwar.board.tile.Tile;
+import groundwar.util.Constants;
+import groundwar.util.Direction;
+
+/**
+ * The shape of a board, compiled once when the board is loaded. Tiles are referred to by their
+ * index (see {@link Tile#getIndex()}). The neighbors of each tile are packed into one array, with
+ * {@link Constants#NUM_SIDES} entries per tile in order of {@link Direction}, and -1 where there is
+ * no neighbor.
+ *
+ * For boards with at most a certain amount of tiles, the hex distance between every pair of tiles
+ * is also stored, so distance and adjacency checks are a single array read.
+ */
+public class BoardTopology {
+
+    private final int size;
+    private final int[] xs;
+    private final int[] ys;
+    private final int[] neighbors;
+
+    /**
+     * The distance between each pair of tiles, at {@code a * size + b}. {@code null} if the board
+     * is too big to have the table.
+     */
+    private final short[] distances;
+
+    /**
+     * Compiles the topology of the given grid, with a distance table if the grid has at most
+     * {@link Constants#DISTANCE_TABLE_MAX_TILES} tiles.
+     *
+     * @param grid the grid (non-null)
+     * @throws NullPointerException if {@code grid == null}
+     */
+    public BoardTopology(TileGrid grid) {
+        this(grid, Constants.DISTANCE_TABLE_MAX_TILES);
+    }
+
+    /**
+     * Compiles the topology of the given grid.
+     *
+     * @param grid                     the grid (non-null)
+     * @param maxTilesForDistanceTable the maximum amount of tiles that the grid can have for the
+     *                                 distance table to be built
+     * @throws NullPointerException if {@code grid == null}
+     */
+    public BoardTopology(TileGrid grid, int maxTilesForDistanceTable) {
+        Objects.requireNonNull(grid);
+        size = grid.size();
+        xs = new int[size];
+        ys = new int[size];
+        neighbors = new int[size * Constants.NUM_SIDES];
+
+        for (int i = 0; i < size; i++) {
+            final Tile tile = grid.get(i);
+            xs[i] = tile.getPos().getX();
+            ys[i] = tile.getPos().getY();
+            for (Direction dir : Direction.values()) {
+                neighbors[i * Constants.NUM_SIDES + dir.ordinal()] =
+                    grid.indexOf(xs[i] + dir.delta.getX(), ys[i] + dir.delta.getY());
+            }
+        }
+
+        if (size <= maxTilesForDistanceTable) {
+            distances = new short[size * size];
+            for (int a = 0; a < size; a++) {
+                for (int b = 0; b < size; b++) {
+                    distances[a * size + b] = (short) computeDistance(a, b);
+                }
+            }
+        } else {
+            distances = null;
+        }
+    }
+
+    private int computeDistance(int a, int b) {
+        final int x1 = xs[a];
+        final int y1 = ys[a];
+        final int x2 = xs[b];
+        final int y2 = ys[b];
+        return (Math.abs(x1 - x2) + Math.abs(y1 - y2) + Math.abs(-x1 - y1 + x2 + y2)) / 2;
+    }
+
+    /**
+     * Gets the amount of tiles on the board.
+     *
+     * @return the amount of tiles
+     */
+    public int size() {
+        return size;
+    }
+
+    public boolean hasDistanceTable() {
+        return distances != null;
+    }
+
+    /**
+     * Gets the index of the tile adjacent to the given tile, on the given side.
+     *
+     * @param index the index of the tile
+     * @param side  the side, which is the ordinal of a {@link Direction}
+     * @return the index of the adjacent tile, or -1 if there isn't one
+     */
+    public int getNeighbor(int index, int side) {
+        return neighbors[index * Constants.NUM_SIDES + side];
+    }
+
+    /**
+     * Gets the hex distance between two tiles.
+     *
+     * @param a the index of the first tile
+     * @param b the index of the second tile
+     * @return the distance between the two tiles
+     */
+    public int distance(int a, int b) {
+        return distances != null ? distances[a * size + b] : computeDistance(a, b);
+    }
+
+    /**
+     * Are the two tiles adjacent? Two tiles are adjacent if the distance between them is exactly 1.
+     *
+     * @param a the index of the first tile
+     * @param b the index of the second tile
+     * @return true if the two tiles are adjacent, false otherwise
+     */
+    public boolean isAdjacent(int a, int b) {
+        if (distances != null) {
+            return distances[a * size + b] == 1;
+        }
+        final int offset = a * Constants.NUM_SIDES;
+        for (int side = 0; side < Constants.NUM_SIDES; side++) {
+            if (neighbors[offset + side] == b) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
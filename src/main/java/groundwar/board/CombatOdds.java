@@ -0,0 +1,321 @@
+package groundwar.board;
+
+import groundwar.board.unit.Unit;
+import groundwar.board.unit.UnitType;
+import groundwar.util.Constants;
+
+/**
+ * The exact odds of every possible combat, worked out once when this class is loaded. The damage
+ * each unit takes is the other unit's combat strength times a roll in [bias - {@link
+ * Constants#DAMAGE_MARGIN}, bias + {@link Constants#DAMAGE_MARGIN}], rounded down (see {@link
+ * #damage}). A roll comes from {@link groundwar.util.GameRandom#nextFloat()}, which has 2<sup>24
+ * </sup> equally likely values, and damage never goes down as the roll goes up, so the amount of
+ * rolls that give each damage can be counted exactly with a binary search.
+ *
+ * The odds of each outcome are kept for every attacker type, defender type, attacker health and
+ * defender health, so looking them up takes one array access:
+ * <pre>
+ *  final int index = CombatOdds.indexOf(attacker, defender, attackerHealth, defenderHealth);
+ *  final float win = CombatOdds.getProbability(index, CombatOdds.DEFENDER_DIES);
+ * </pre>
+ */
+public final class CombatOdds {
+
+    public static final int NEITHER_DIES = 0;
+    public static final int ATTACKER_DIES = 1;
+    public static final int DEFENDER_DIES = 2;
+    public static final int BOTH_DIE = 3;
+    private static final int OUTCOMES = 4;
+
+    /**
+     * The amount of different rolls that {@link groundwar.util.GameRandom#nextFloat()} can give.
+     */
+    private static final int ROLLS = 1 << 24;
+
+    private static final UnitType[] TYPES = UnitType.values();
+
+    /**
+     * One more than the highest max health of any unit type.
+     */
+    private static final int HEALTHS;
+
+    /**
+     * The amount of rolls giving each damage to the attacker and defender, by attacker type
+     * ordinal * amount of types + defender type ordinal, then by damage.
+     */
+    private static final int[][] ATTACKER_DAMAGE_COUNTS;
+    private static final int[][] DEFENDER_DAMAGE_COUNTS;
+
+    /**
+     * The probability of each outcome, laid out as described by {@link #indexOf}.
+     */
+    private static final float[] OUTCOME_ODDS;
+
+    static {
+        int maxHealth = 0;
+        for (UnitType type : TYPES) {
+            maxHealth = Math.max(maxHealth, type.maxHealth);
+        }
+        HEALTHS = maxHealth + 1;
+
+        // Strength against other categories is defined by the unit classes, so make one of each
+        final Player samplePlayer = new Player(PlayerInfo.values()[0]);
+        final Unit[] sampleUnits = new Unit[TYPES.length];
+        for (UnitType type : TYPES) {
+            sampleUnits[type.ordinal()] = type.createUnit(samplePlayer);
+        }
+
+        ATTACKER_DAMAGE_COUNTS = new int[TYPES.length * TYPES.length][];
+        DEFENDER_DAMAGE_COUNTS = new int[TYPES.length * TYPES.length][];
+        OUTCOME_ODDS = new float[TYPES.length * TYPES.length * HEALTHS * HEALTHS * OUTCOMES];
+        for (UnitType attacker : TYPES) {
+            for (UnitType defender : TYPES) {
+                final int pair = attacker.ordinal() * TYPES.length + defender.ordinal();
+                final float bias = sampleUnits[attacker.ordinal()].getStrengthVs(defender.category);
+                final float biasLow = bias - Constants.DAMAGE_MARGIN;
+                final float biasHigh = bias + Constants.DAMAGE_MARGIN;
+                ATTACKER_DAMAGE_COUNTS[pair] = countDamage(defender.combatStrength, biasLow,
+                                                           biasHigh);
+                DEFENDER_DAMAGE_COUNTS[pair] = countDamage(attacker.combatStrength, biasLow,
+                                                           biasHigh);
+
+                final double[] attackerKilled = killOdds(ATTACKER_DAMAGE_COUNTS[pair]);
+                final double[] defenderKilled = killOdds(DEFENDER_DAMAGE_COUNTS[pair]);
+                for (int attackerHealth = 1; attackerHealth <= attacker.maxHealth;
+                     attackerHealth++) {
+                    for (int defenderHealth = 1; defenderHealth <= defender.maxHealth;
+                         defenderHealth++) {
+                        final double a = attackerKilled[attackerHealth];
+                        final double d = defenderKilled[defenderHealth];
+                        final int index = indexOf(attacker, defender, attackerHealth,
+                                                  defenderHealth);
+                        OUTCOME_ODDS[index + NEITHER_DIES] = (float) ((1.0 - a) * (1.0 - d));
+                        OUTCOME_ODDS[index + ATTACKER_DIES] = (float) (a * (1.0 - d));
+                        OUTCOME_ODDS[index + DEFENDER_DIES] = (float) ((1.0 - a) * d);
+                        OUTCOME_ODDS[index + BOTH_DIE] = (float) (a * d);
+                    }
+                }
+            }
+        }
+    }
+
+    private CombatOdds() {
+    }
+
+    /**
+     * Makes sure the odds have been worked out, so that it doesn't happen the first time they're
+     * needed. This takes a moment.
+     */
+    public static void load() {
+        // Calling this loads the class, which works out the odds
+    }
+
+    /**
+     * Works out the damage done by a unit with the given combat strength, for the given roll. This
+     * is the formula that {@link Board} uses for combat, so the odds always match the game.
+     *
+     * @param strength the combat strength of the unit doing the damage
+     * @param biasLow  the lowest bias
+     * @param biasHigh the highest bias
+     * @param roll     the roll (in [0, 1))
+     * @return the damage
+     */
+    static int damage(int strength, float biasLow, float biasHigh, float roll) {
+        return (int) (strength * (roll * (biasHigh - biasLow) + biasLow));
+    }
+
+    /**
+     * Gets the roll with the given number, in the same way as {@link
+     * groundwar.util.GameRandom#nextFloat()}.
+     */
+    private static float roll(int number) {
+        return number * 0x1.0p-24f;
+    }
+
+    /**
+     * Counts the rolls that give each damage.
+     *
+     * @return the amount of rolls for each damage, indexed by damage
+     */
+    private static int[] countDamage(int strength, float biasLow, float biasHigh) {
+        final int minDamage = damage(strength, biasLow, biasHigh, roll(0));
+        final int maxDamage = damage(strength, biasLow, biasHigh, roll(ROLLS - 1));
+        final int[] counts = new int[maxDamage + 1];
+        int start = 0; // The first roll that gives the current damage
+        for (int damage = minDamage; damage <= maxDamage; damage++) {
+            // Find the first roll that gives more damage than this
+            int low = start;
+            int high = ROLLS;
+            while (low < high) {
+                final int mid = (low + high) >>> 1;
+                if (damage(strength, biasLow, biasHigh, roll(mid)) > damage) {
+                    high = mid;
+                } else {
+                    low = mid + 1;
+                }
+            }
+            counts[damage] = low - start;
+            start = low;
+        }
+        return counts;
+    }
+
+    /**
+     * Works out the odds of a unit being killed, for each health it could have.
+     *
+     * @param damageCounts the amount of rolls that give each damage to the unit
+     * @return the odds of the damage being at least each health, indexed by health
+     */
+    private static double[] killOdds(int[] damageCounts) {
+        final double[] odds = new double[HEALTHS];
+        long rolls = 0L; // The amount of rolls that do at least the current health
+        for (int damage = HEALTHS; damage < damageCounts.length; damage++) {
+            rolls += damageCounts[damage]; // More than any unit's health, so always kills
+        }
+        for (int health = HEALTHS - 1; health >= 0; health--) {
+            if (health < damageCounts.length) {
+                rolls += damageCounts[health];
+            }
+            odds[health] = (double) rolls / ROLLS;
+        }
+        return odds;
+    }
+
+    /**
+     * Gets the index of the odds for the given combat, to be given to {@link #getProbability(int,
+     * int)}.
+     *
+     * @param attacker       the type of the attacking unit
+     * @param defender       the type of the defending unit
+     * @param attackerHealth the health of the attacking unit (in [1, its max health])
+     * @param defenderHealth the health of the defending unit (in [1, its max health])
+     * @return the index
+     */
+    public static int indexOf(UnitType attacker, UnitType defender, int attackerHealth,
+                              int defenderHealth) {
+        return (((attacker.ordinal() * TYPES.length + defender.ordinal()) * HEALTHS
+                 + attackerHealth) * HEALTHS + defenderHealth) * OUTCOMES;
+    }
+
+    /**
+     * Gets the probability of the given outcome.
+     *
+     * @param index   the index of the combat, from {@link #indexOf}
+     * @param outcome {@link #NEITHER_DIES}, {@link #ATTACKER_DIES}, {@link #DEFENDER_DIES} or
+     *                {@link #BOTH_DIE}
+     * @return the probability
+     */
+    public static float getProbability(int index, int outcome) {
+        return OUTCOME_ODDS[index + outcome];
+    }
+
+    /**
+     * Gets the probability of the given outcome, if the given units fought right now.
+     *
+     * @param attacker the attacking unit (alive)
+     * @param defender the defending unit (alive)
+     * @param outcome  {@link #NEITHER_DIES}, {@link #ATTACKER_DIES}, {@link #DEFENDER_DIES} or
+     *                 {@link #BOTH_DIE}
+     * @return the probability
+     */
+    public static float getProbability(Unit attacker, Unit defender, int outcome) {
+        return OUTCOME_ODDS[indexOf(attacker.getType(), defender.getType(), attacker.getHealth(),
+                                    defender.getHealth()) + outcome];
+    }
+
+    /**
+     * Gets the probability that the attacker takes exactly the given damage.
+     *
+     * @param attacker the type of the attacking unit
+     * @param defender the type of the defending unit
+     * @param damage   the damage
+     * @return the probability
+     */
+    public static float getAttackerDamageProbability(UnitType attacker, UnitType defender,
+                                                     int damage) {
+        return damageProbability(ATTACKER_DAMAGE_COUNTS, attacker, defender, damage);
+    }
+
+    /**
+     * Gets the probability that the defender takes exactly the given damage.
+     *
+     * @param attacker the type of the attacking unit
+     * @param defender the type of the defending unit
+     * @param damage   the damage
+     * @return the probability
+     */
+    public static float getDefenderDamageProbability(UnitType attacker, UnitType defender,
+                                                     int damage) {
+        return damageProbability(DEFENDER_DAMAGE_COUNTS, attacker, defender, damage);
+    }
+
+    /**
+     * Gets the most damage that the attacker can take.
+     *
+     * @param attacker the type of the attacking unit
+     * @param defender the type of the defending unit
+     * @return the damage
+     */
+    public static int getMaxAttackerDamage(UnitType attacker, UnitType defender) {
+        return ATTACKER_DAMAGE_COUNTS[attacker.ordinal() * TYPES.length + defender.ordinal()].length
+               - 1;
+    }
+
+    /**
+     * Gets the most damage that the defender can take.
+     *
+     * @param attacker the type of the attacking unit
+     * @param defender the type of the defending unit
+     * @return the damage
+     */
+    public static int getMaxDefenderDamage(UnitType attacker, UnitType defender) {
+        return DEFENDER_DAMAGE_COUNTS[attacker.ordinal() * TYPES.length + defender.ordinal()].length
+               - 1;
+    }
+
+    /**
+     * Gets the damage that the attacker is most likely to take, out of the damages that it
+     * survives.
+     *
+     * @param attacker       the type of the attacking unit
+     * @param defender       the type of the defending unit
+     * @param attackerHealth the health of the attacking unit
+     * @return the damage, or -1 if the attacker is always killed
+     */
+    public static int getLikeliestAttackerDamage(UnitType attacker, UnitType defender,
+                                                 int attackerHealth) {
+        return likeliestDamage(ATTACKER_DAMAGE_COUNTS, attacker, defender, attackerHealth);
+    }
+
+    /**
+     * Gets the damage that the defender is most likely to take, out of the damages that it
+     * survives.
+     *
+     * @param attacker       the type of the attacking unit
+     * @param defender       the type of the defending unit
+     * @param defenderHealth the health of the defending unit
+     * @return the damage, or -1 if the defender is always killed
+     */
+    public static int getLikeliestDefenderDamage(UnitType attacker, UnitType defender,
+                                                 int defenderHealth) {
+        return likeliestDamage(DEFENDER_DAMAGE_COUNTS, attacker, defender, defenderHealth);
+    }
+
+    private static int likeliestDamage(int[][] damageCounts, UnitType attacker,
+                                       UnitType defender, int health) {
+        final int[] counts = damageCounts[attacker.ordinal() * TYPES.length + defender.ordinal()];
+        int likeliest = -1;
+        for (int damage = 0; damage < Math.min(health, counts.length); damage++) {
+            if (counts[damage] > 0 && (likeliest < 0 || counts[damage] > counts[likeliest])) {
+                likeliest = damage;
+            }
+        }
+        return likeliest;
+    }
+
+    private static float damageProbability(int[][] damageCounts, UnitType attacker,
+                                           UnitType defender, int damage) {
+        final int[] counts = damageCounts[attacker.ordinal() * TYPES.length + defender.ordinal()];
+        return damage >= 0 && damage < counts.length ? (float) counts[damage] / ROLLS : 0f;
+    }
+}
@@ -0,0 +1,176 @@
+package groundwar.board;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * The history of a game: the seed of its random number generator, and every action applied since
+ * the start, with the amount of random numbers that had been drawn after each one. Playing the
+ * actions on a new board with the same seed gives exactly the same game, and the draw counts are
+ * used to check that it does.
+ *
+ * Each board keeps its own record up to date (see {@link Board#getRecord()}): applying an action
+ * adds it, and undoing an action removes it. A record can be saved to a text file, with the seed on
+ * the first line and then one action and draw count per line, and loaded back to be replayed.
+ */
+public class GameRecord {
+
+    private static final String HEADER = "# Ground War game record";
+    private static final String SEED_PREFIX = "seed ";
+    private static final int INITIAL_CAPACITY = 256;
+
+    private long seed;
+    private int[] actions = new int[INITIAL_CAPACITY];
+    private long[] draws = new long[INITIAL_CAPACITY];
+    private int size;
+
+    /**
+     * Constructs a new, empty record.
+     *
+     * @param seed the seed of the game's random number generator
+     */
+    public GameRecord(long seed) {
+        this.seed = seed;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * Gets the amount of actions in this record.
+     *
+     * @return the amount of actions
+     */
+    public int size() {
+        return size;
+    }
+
+    public int getAction(int index) {
+        return actions[index];
+    }
+
+    /**
+     * Gets the amount of random numbers that had been drawn after the action with the given index.
+     *
+     * @param index the index of the action
+     * @return the amount of draws
+     */
+    public long getDraws(int index) {
+        return draws[index];
+    }
+
+    void add(int action, long drawCount) {
+        if (size == actions.length) {
+            actions = Arrays.copyOf(actions, size * 2);
+            draws = Arrays.copyOf(draws, size * 2);
+        }
+        actions[size] = action;
+        draws[size] = drawCount;
+        size++;
+    }
+
+    void removeLast() {
+        size--;
+    }
+
+    void copyFrom(GameRecord record) {
+        seed = record.seed;
+        if (actions.length < record.size) {
+            actions = new int[record.actions.length];
+            draws = new long[record.draws.length];
+        }
+        System.arraycopy(record.actions, 0, actions, 0, record.size);
+        System.arraycopy(record.draws, 0, draws, 0, record.size);
+        size = record.size;
+    }
+
+    /**
+     * Plays this game again on a new board, loaded from the default file.
+     *
+     * @return the board, in the state it was in at the end of this record
+     * @throws IOException if the board can't be loaded, or the game goes differently than it did
+     *                     when it was recorded
+     */
+    public Board replay() throws IOException {
+        final Board board = new Board(seed);
+        for (int i = 0; i < size; i++) {
+            board.applyAction(actions[i]);
+            if (board.getRecord().getDraws(i) != draws[i]) {
+                throw new IOException(String.format(
+                    "Replay went differently at action %d (%s): %d random draws instead of %d", i,
+                    Action.toString(actions[i]), board.getRecord().getDraws(i), draws[i]));
+            }
+        }
+        return board;
+    }
+
+    /**
+     * Saves this record to the given file, replacing anything already in it. The file's folder is
+     * created if it doesn't exist.
+     *
+     * @param path the file
+     * @throws IOException if the file can't be written
+     */
+    public void save(Path path) throws IOException {
+        final Path folder = path.toAbsolutePath().getParent();
+        if (folder != null) {
+            Files.createDirectories(folder);
+        }
+        try (BufferedWriter writer = Files.newBufferedWriter(path)) {
+            writer.write(HEADER);
+            writer.newLine();
+            writer.write(SEED_PREFIX + seed);
+            writer.newLine();
+            for (int i = 0; i < size; i++) {
+                writer.write(actions[i] + " " + draws[i]);
+                writer.newLine();
+            }
+        }
+    }
+
+    /**
+     * Loads a record from the given file, which was written by {@link #save}.
+     *
+     * @param path the file
+     * @return the record
+     * @throws IOException if the file can't be read, or isn't a game record
+     */
+    public static GameRecord load(Path path) throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(path)) {
+            GameRecord record = null;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.trim();
+                if (line.isEmpty() || line.charAt(0) == '#') {
+                    continue; // Skip blank lines and comments
+                }
+                try {
+                    if (record == null) {
+                        if (!line.startsWith(SEED_PREFIX)) {
+                            throw new IOException("Game record has no seed: " + path);
+                        }
+                        record = new GameRecord(
+                            Long.parseLong(line.substring(SEED_PREFIX.length()).trim()));
+                    } else {
+                        final String[] data = line.split("\\s+");
+                        if (data.length != 2) {
+                            throw new IOException("Bad line in game record: " + line);
+                        }
+                        record.add(Integer.parseInt(data[0]), Long.parseLong(data[1]));
+                    }
+                } catch (NumberFormatException e) {
+                    throw new IOException("Bad line in game record: " + line, e);
+                }
+            }
+            if (record == null) {
+                throw new IOException("Game record has no seed: " + path);
+            }
+            return record;
+        }
+    }
+}
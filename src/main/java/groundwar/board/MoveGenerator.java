@@ -0,0 +1,116 @@
+package groundwar.board;
+
+import java.util.Objects;
+
+import groundwar.board.tile.Tile;
+import groundwar.board.unit.UnitType;
+
+/**
+ * Lists every legal action for the current player of a board, encoded as described in {@link
+ * Action}. The actions are written into an array given by the caller, and once the board's cache
+ * has a set for each tile that units stand on, listing them doesn't allocate anything, so a
+ * generator can be called as often as needed on the same board.
+ *
+ * The rules are the same ones used when the board is clicked: a unit can move to or attack any
+ * tile found by a {@link Reachability} search with its remaining moves, and a unit can be spawned
+ * on any empty tile owned by the player, if the player has enough gold for it. Ending the turn is
+ * always legal, unless the game is over, in which case there are no legal actions at all.
+ *
+ * Each unit's reachable tiles come from the board's {@link ReachabilityCache}, so a unit is only
+ * searched for again once something near it has changed. Most actions only change a few tiles, so
+ * most units are found in the cache from one position to the next.
+ */
+public class MoveGenerator {
+
+    private static final UnitType[] UNIT_TYPES = UnitType.values();
+
+    private final Board board;
+    private final TileGrid tiles;
+    private final Bitboards bitboards;
+    private final long[] spawnable;
+
+    /**
+     * The reachable tiles of each unit that can still move, in the order they're listed.
+     */
+    private final ReachableSet[] unitSets;
+
+    /**
+     * Constructs a new generator for the given board.
+     *
+     * @param board the board (non-null)
+     * @throws NullPointerException     if {@code board == null}
+     * @throws IllegalArgumentException if the board has too many tiles to fit in an action
+     */
+    public MoveGenerator(Board board) {
+        Objects.requireNonNull(board);
+        this.board = board;
+        tiles = board.getTileGrid();
+        if (tiles.size() > Action.MAX_TILE_INDEX + 1) {
+            throw new IllegalArgumentException("Board has too many tiles: " + tiles.size());
+        }
+        bitboards = board.getBitboards();
+        spawnable = new long[bitboards.getWords()];
+        unitSets = new ReachableSet[tiles.size()];
+    }
+
+    /**
+     * Gets the most actions that can ever be legal at once on the board. An array of this length
+     * can hold the actions of any position.
+     *
+     * @return the maximum amount of actions
+     */
+    public int getMaxActions() {
+        // Each tile is either empty, so it can be spawned on once per unit type, or it has a unit,
+        // which can reach at most every other tile. Plus one for ending the turn.
+        final int size = tiles.size();
+        return size * Math.max(UNIT_TYPES.length, size - 1) + 1;
+    }
+
+    /**
+     * Writes every legal action for the current player into the given array, starting at index 0.
+     * Attacks come first, then moves, then spawns, then ending the turn.
+     *
+     * @param dest the array to write to (length of at least {@link #getMaxActions()})
+     * @return the amount of actions written
+     * @throws NullPointerException           if {@code dest == null}
+     * @throws ArrayIndexOutOfBoundsException if {@code dest} is too short
+     */
+    public int generate(int[] dest) {
+        if (board.isGameOver()) {
+            return 0;
+        }
+        final Player player = board.getCurrentPlayer();
+        int count = 0;
+
+        // Attacks for each of the player's units, then moves, copied from their reachable tiles
+        final long[] units = bitboards.getUnits(player);
+        int unitCount = 0;
+        for (int source = Bitboards.nextSetBit(units, 0); source >= 0;
+             source = Bitboards.nextSetBit(units, source + 1)) {
+            final Tile tile = tiles.get(source);
+            if (tile.getUnit().getMovesRemaining() > 0) {
+                final ReachableSet reachable = board.getReachable(tile);
+                unitSets[unitCount++] = reachable;
+                count = reachable.copyAttacks(dest, count);
+            }
+        }
+        for (int i = 0; i < unitCount; i++) {
+            count = unitSets[i].copyMoves(dest, count);
+            unitSets[i] = null; // Sets are only valid until the board changes
+        }
+
+        // Spawns for each type of unit that the player can afford
+        bitboards.getSpawnable(player, spawnable);
+        for (UnitType unitType : UNIT_TYPES) {
+            if (unitType.cost <= player.getGold()) {
+                for (int target = Bitboards.nextSetBit(spawnable, 0); target >= 0;
+                     target = Bitboards.nextSetBit(spawnable, target + 1)) {
+                    dest[count++] = Action.spawn(unitType, target);
+                }
+            }
+        }
+
+        dest[count++] = Action.endTurn();
+        return count;
+    }
+}
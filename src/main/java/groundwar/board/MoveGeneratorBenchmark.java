@@ -0,0 +1,93 @@
+package groundwar.board;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+import groundwar.util.GameRandom;
+
+/**
+ * Measures how fast {@link MoveGenerator} lists actions, and checks that it doesn't allocate.
+ * Positions are collected by playing random games on the shipped board from a fixed seed, then the
+ * actions of each position are generated over and over, and the positions and actions generated
+ * per second are reported, along with the bytes allocated while generating, if the JVM can count
+ * them.
+ *
+ * Arguments, all optional: the amount of positions (default 2000), the amount of times to generate
+ * the actions of each position (default 200), and the seed (default 1).
+ */
+public class MoveGeneratorBenchmark {
+
+    /**
+     * Looked up once, since looking it up allocates.
+     */
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+
+    public static void main(String[] args) throws IOException {
+        final int positions = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+        final int repeats = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+        final long seed = args.length > 2 ? Long.parseLong(args[2]) : 1L;
+
+        // Keep a board at each position, so the timed part does nothing but generate
+        final GameRandom random = new GameRandom(seed);
+        final Board[] boards = new Board[positions];
+        final MoveGenerator[] generators = new MoveGenerator[positions];
+        Board board = new Board(seed);
+        MoveGenerator generator = new MoveGenerator(board);
+        final int[] actions = new int[generator.getMaxActions()];
+        for (int p = 0; p < positions; p++) {
+            int count = generator.generate(actions);
+            if (count == 0) {
+                // The game is over, start a new one
+                board = new Board(random.nextLong());
+                generator = new MoveGenerator(board);
+                count = generator.generate(actions);
+            }
+            boards[p] = new Board(board);
+            generators[p] = new MoveGenerator(boards[p]);
+            board.applyAction(actions[Math.min((int) (random.nextFloat() * count), count - 1)]);
+        }
+
+        long generated = 0L;
+        for (int p = 0; p < positions; p++) { // Warm up
+            generated += generators[p].generate(actions);
+        }
+        // Counting allocates a little by itself, so count nothing once to know how much
+        final long countedBytes = getAllocatedBytes();
+        final long overheadBytes = getAllocatedBytes() - countedBytes;
+        final long startBytes = getAllocatedBytes();
+        final long start = System.nanoTime();
+        generated = 0L;
+        for (int r = 0; r < repeats; r++) {
+            for (int p = 0; p < positions; p++) {
+                generated += generators[p].generate(actions);
+            }
+        }
+        final long elapsed = System.nanoTime() - start;
+        final long allocated = getAllocatedBytes() - startBytes - overheadBytes;
+
+        final double seconds = elapsed / 1e9;
+        final long calls = (long) positions * repeats;
+        System.out.printf("%,d positions x %d, seed %d, %.1f actions per position%n", positions,
+                          repeats, seed, (double) generated / calls);
+        System.out.printf("%,14.0f positions/s%n", calls / seconds);
+        System.out.printf("%,14.0f actions/s%n", generated / seconds);
+        System.out.printf("%,14.1f ns per position%n", elapsed / (double) calls);
+        if (startBytes >= 0L) {
+            System.out.printf("%,14d bytes allocated while generating%n", allocated);
+        }
+    }
+
+    /**
+     * Gets the bytes allocated by this thread so far.
+     *
+     * @return the bytes, or -1 if the JVM can't count them
+     */
+    private static long getAllocatedBytes() {
+        if (THREADS instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) THREADS).getThreadAllocatedBytes(
+                Thread.currentThread().getId());
+        }
+        return -1L;
+    }
+}
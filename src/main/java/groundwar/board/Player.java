@@ -49,6 +49,16 @@ public class Player {
         gold -= amt;
     }
 
+    /**
+     * Sets this player's gold to the given amount. This is only meant to be used when undoing an
+     * action.
+     *
+     * @param gold the amount of gold
+     */
+    void setGold(int gold) {
+        this.gold = gold;
+    }
+
     /**
      * Gets a String containing information about this player, meant to be displayed on the screen.
      * This info includes name and gold, with each value separated by a newline character.
@@ -0,0 +1,239 @@
+package groundwar.board;
+
+import java.util.Objects;
+
+import groundwar.board.tile.Tile;
+import groundwar.board.unit.Unit;
+import groundwar.util.Constants;
+
+/**
+ * Finds every tile that a unit can move to or attack, using a breadth-first search over the board,
+ * one distance at a time. Each step works on masks like those of {@link Bitboards}: the tiles next
+ * to the last step's moveable tiles are found by combining the precomputed masks of their
+ * neighbors, so a step costs a few word-wide operations per tile, instead of a check of each side
+ * of each tile. The results are written into a {@link ReachableSet}, either the one kept by this
+ * {@code Reachability} for its own queries, or one given by the caller.
+ *
+ * A {@code Reachability} can be reused for any number of searches on the same board. Searching
+ * doesn't allocate anything.
+ */
+public class Reachability {
+
+    static final byte NONE = 0;
+    static final byte MOVEABLE = 1;
+    static final byte ATTACKABLE = 2;
+
+    private final TileGrid tiles;
+    private final Bitboards bitboards;
+    private final int words;
+
+    /**
+     * The mask of the neighbors of each tile, with the mask of tile {@code i} at {@code i *}
+     * {@link #words}.
+     */
+    private final long[] neighborMasks;
+
+    /**
+     * The tiles that are moveable and attackable for the unit in the current search.
+     */
+    private final long[] moveable;
+    private final long[] attackable;
+
+    /**
+     * The tiles reached by the current search.
+     */
+    private final long[] reachedMask;
+
+    /**
+     * The moveable tiles reached in the last step of the search, which the next step searches out
+     * from, and the tiles next to them.
+     */
+    private final long[] frontier;
+    private final long[] around;
+
+    /**
+     * The tiles that the current search looked at: the origin, and every neighbor of a tile that
+     * was searched out from. Nothing else can change the results of the search.
+     */
+    private final long[] watched;
+
+    /**
+     * The results of the last search made with {@link #compute(Tile, Unit, int)}.
+     */
+    private final ReachableSet results;
+
+    /**
+     * Constructs a new {@code Reachability} for the tiles in the given grid.
+     *
+     * @param tiles     the grid holding every tile on the board (non-null)
+     * @param topology  the topology of the same board (non-null)
+     * @param bitboards the bitboards of the same board (non-null)
+     * @throws NullPointerException if any argument is null
+     */
+    public Reachability(TileGrid tiles, BoardTopology topology, Bitboards bitboards) {
+        Objects.requireNonNull(tiles);
+        Objects.requireNonNull(topology);
+        Objects.requireNonNull(bitboards);
+        this.tiles = tiles;
+        this.bitboards = bitboards;
+        words = bitboards.getWords();
+        neighborMasks = new long[tiles.size() * words];
+        for (int i = 0; i < tiles.size(); i++) {
+            for (int side = 0; side < Constants.NUM_SIDES; side++) {
+                final int neighbor = topology.getNeighbor(i, side);
+                if (neighbor >= 0) {
+                    neighborMasks[i * words + (neighbor >> 6)] |= 1L << neighbor;
+                }
+            }
+        }
+        moveable = new long[words];
+        attackable = new long[words];
+        reachedMask = new long[words];
+        frontier = new long[words];
+        around = new long[words];
+        watched = new long[words];
+        results = newSet();
+    }
+
+    /**
+     * Finds all tiles that the given unit can reach from {@code origin} in at most {@code range}
+     * moves. A tile is moveable if there is a path to it where each tile is moveable for the unit.
+     * A tile is attackable if it is attackable for the unit, and it is adjacent to the origin or to
+     * a moveable tile that is less than {@code range} moves away. The results of any previous
+     * search are discarded.
+     *
+     * @param origin the tile to search from (non-null)
+     * @param unit   the unit to be checked for movement (non-null)
+     * @param range  the maximum amount of moves
+     * @throws NullPointerException if {@code origin == null} or {@code unit == null}
+     */
+    public void compute(Tile origin, Unit unit, int range) {
+        compute(origin, unit, range, results);
+    }
+
+    /**
+     * Finds all tiles that the given unit can reach, as {@link #compute(Tile, Unit, int)} does,
+     * but writes the results into the given set instead. The results of the last search made with
+     * {@link #compute(Tile, Unit, int)} are kept.
+     *
+     * @param origin the tile to search from (non-null)
+     * @param unit   the unit to be checked for movement (non-null)
+     * @param range  the maximum amount of moves
+     * @param dest   the set to write the results into (non-null, made by {@link #newSet()})
+     * @throws NullPointerException if any object argument is null
+     */
+    void compute(Tile origin, Unit unit, int range, ReachableSet dest) {
+        Objects.requireNonNull(origin);
+        Objects.requireNonNull(unit);
+        dest.start(origin, range);
+        bitboards.getMoveable(moveable);
+        bitboards.getAttackable(unit.getOwner(), attackable);
+
+        final int start = origin.getIndex();
+        dest.add(start, 0, NONE);
+        for (int w = 0; w < words; w++) {
+            reachedMask[w] = 0L;
+            frontier[w] = 0L;
+        }
+        reachedMask[start >> 6] |= 1L << start;
+        frontier[start >> 6] |= 1L << start;
+        System.arraycopy(frontier, 0, watched, 0, words);
+        for (int distance = 1; distance <= range; distance++) {
+            // Find the tiles next to the frontier. The search looks at all of them.
+            for (int w = 0; w < words; w++) {
+                around[w] = 0L;
+            }
+            for (int fw = 0; fw < words; fw++) {
+                long bits = frontier[fw];
+                while (bits != 0) {
+                    final int offset = (fw * 64 + Long.numberOfTrailingZeros(bits)) * words;
+                    bits &= bits - 1;
+                    for (int w = 0; w < words; w++) {
+                        around[w] |= neighborMasks[offset + w];
+                    }
+                }
+            }
+
+            // Keep the new tiles that are moveable or attackable. Attackable tiles can't be moved
+            // through, so only the moveable ones are searched out from in the next step.
+            boolean moved = false;
+            for (int w = 0; w < words; w++) {
+                watched[w] |= around[w];
+                final long fresh = around[w] & ~reachedMask[w];
+                final long moves = fresh & moveable[w];
+                long bits = moves | fresh & attackable[w];
+                reachedMask[w] |= bits;
+                frontier[w] = moves; // The new moveable tiles are the next frontier
+                moved |= moves != 0;
+                while (bits != 0) {
+                    final long bit = bits & -bits;
+                    final int tile = w * 64 + Long.numberOfTrailingZeros(bits);
+                    bits ^= bit;
+                    dest.add(tile, distance, (moves & bit) != 0 ? MOVEABLE : ATTACKABLE);
+                }
+            }
+            if (!moved) {
+                break; // Nowhere new to move through, so nothing further
+            }
+        }
+        dest.setWatched(watched);
+    }
+
+    /**
+     * Discards the results of the current search.
+     */
+    public void clear() {
+        results.start(null, 0);
+    }
+
+    /**
+     * Gets the origin of the current search.
+     *
+     * @return the origin, or {@code null} if there is no current search
+     */
+    public Tile getOrigin() {
+        return results.getOrigin();
+    }
+
+    /**
+     * Can the searched unit move to the given tile?
+     *
+     * @param tile the tile (non-null)
+     * @return true if the tile is moveable, false otherwise
+     * @throws NullPointerException if {@code tile == null}
+     */
+    public boolean isMoveable(Tile tile) {
+        return results.isMoveable(tile);
+    }
+
+    /**
+     * Can the searched unit attack the given tile?
+     *
+     * @param tile the tile (non-null)
+     * @return true if the tile is attackable, false otherwise
+     * @throws NullPointerException if {@code tile == null}
+     */
+    public boolean isAttackable(Tile tile) {
+        return results.isAttackable(tile);
+    }
+
+    /**
+     * Gets the length of the shortest path from the origin to the given tile.
+     *
+     * @param tile the tile (non-null)
+     * @return the distance to the tile, or -1 if it wasn't reached
+     * @throws NullPointerException if {@code tile == null}
+     */
+    public int getDistance(Tile tile) {
+        return results.getDistance(tile);
+    }
+
+    /**
+     * Makes a new, empty set that any search by this {@code Reachability} can be written into.
+     *
+     * @return the set
+     */
+    ReachableSet newSet() {
+        return new ReachableSet(tiles, neighborMasks, words);
+    }
+}
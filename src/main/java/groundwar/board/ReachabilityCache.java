@@ -0,0 +1,107 @@
+package groundwar.board;
+
+import java.util.Objects;
+
+import groundwar.board.tile.Tile;
+import groundwar.board.tile.TileListener;
+import groundwar.board.unit.Unit;
+
+/**
+ * Keeps the {@link ReachableSet} of each unit, so that a unit's reachable tiles are only searched
+ * for again once something near it has changed. Sets are kept by the index of the tile that the
+ * unit is on. When the unit on a tile changes or is hurt, every set whose search looked at that
+ * tile is thrown out (see {@link ReachableSet#isAffectedBy}), which includes the set of any unit
+ * that moved off or onto the tile. Sets whose searches never came near the tile are kept, even if
+ * the tile is within their unit's range. A set is also ignored if its unit's remaining moves have
+ * changed since it was searched.
+ *
+ * Each tile's set is made the first time a unit on it is searched for, and searches write straight
+ * into it after that, so once every tile that units stand on has a set, neither searching nor
+ * throwing sets out allocates anything. A set from the cache is only valid until the board next
+ * changes.
+ */
+public class ReachabilityCache implements TileListener {
+
+    private final Reachability reachability;
+
+    /**
+     * The set for the unit on each tile, by tile index, or {@code null} if no unit on the tile has
+     * been searched for yet. A set is only in the cache if its tile is marked as {@link #valid}.
+     */
+    private final ReachableSet[] sets;
+    private final boolean[] valid;
+
+    /**
+     * The indices of the tiles with valid sets, in no particular order.
+     */
+    private final int[] cached;
+    private int cachedCount;
+
+    /**
+     * Constructs a new, empty cache.
+     *
+     * @param reachability the search to fill the cache with (non-null)
+     * @param topology     the topology of the board (non-null)
+     * @throws NullPointerException if {@code reachability == null} or {@code topology == null}
+     */
+    public ReachabilityCache(Reachability reachability, BoardTopology topology) {
+        Objects.requireNonNull(reachability);
+        Objects.requireNonNull(topology);
+        this.reachability = reachability;
+        sets = new ReachableSet[topology.size()];
+        valid = new boolean[topology.size()];
+        cached = new int[topology.size()];
+    }
+
+    /**
+     * Gets the tiles that the unit on the given tile can reach with its remaining moves, searching
+     * for them if they aren't in the cache.
+     *
+     * @param origin the tile holding the unit (non-null, {@code origin.hasUnit()})
+     * @return the reachable tiles, which are only valid until the board next changes
+     * @throws NullPointerException if {@code origin == null} or {@code origin.getUnit() == null}
+     */
+    public ReachableSet get(Tile origin) {
+        final Unit unit = origin.getUnit();
+        Objects.requireNonNull(unit);
+        final int index = origin.getIndex();
+        ReachableSet set = sets[index];
+        if (set == null) {
+            set = reachability.newSet();
+            sets[index] = set;
+        }
+        if (!valid[index] || set.getRange() != unit.getMovesRemaining()) {
+            reachability.compute(origin, unit, unit.getMovesRemaining(), set);
+            if (!valid[index]) {
+                valid[index] = true;
+                cached[cachedCount++] = index;
+            }
+        }
+        return set;
+    }
+
+    /**
+     * Throws out every set in the cache.
+     */
+    public void clear() {
+        for (int i = 0; i < cachedCount; i++) {
+            valid[cached[i]] = false;
+        }
+        cachedCount = 0;
+    }
+
+    @Override
+    public void onUnitChange(Tile tile) {
+        // Throw out any set that the change could have affected
+        int i = 0;
+        while (i < cachedCount) {
+            final int origin = cached[i];
+            if (sets[origin].isAffectedBy(tile.getIndex())) {
+                valid[origin] = false;
+                cached[i] = cached[--cachedCount]; // Fill the gap with the last one
+            } else {
+                i++;
+            }
+        }
+    }
+}
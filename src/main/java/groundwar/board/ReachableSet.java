@@ -0,0 +1,251 @@
+package groundwar.board;
+
+import groundwar.board.tile.Tile;
+
+/**
+ * The results of a {@link Reachability} search. Only the tiles that were reached are stored, in
+ * the order they were reached, along with the mask of tiles that the search looked at, so that it
+ * can be told whether a change to a tile could have changed the results.
+ *
+ * A search writes straight into a set, so that a {@link ReachabilityCache} can keep a set for each
+ * tile and search for a unit's reachable tiles again without allocating or copying anything. A set
+ * handed out by the cache is only valid until the board next changes, and must not be kept after
+ * that.
+ */
+public class ReachableSet {
+
+    private Tile origin;
+    private int range;
+
+    /**
+     * The index of each reached tile, in the order they were reached, for the first {@link #size}
+     * entries. The other arrays hold the results for the tile at the same position in this array.
+     */
+    private final int[] indices;
+    private final int[] distances;
+    private final byte[] kinds;
+    private int size;
+
+    /**
+     * The mask of the neighbors of each tile, shared with the {@link Reachability} that made this
+     * set, with the mask of tile {@code i} at {@code i * words}.
+     */
+    private final long[] neighborMasks;
+    private final int words;
+
+    /**
+     * The tiles that the search looked at, as a mask like those of {@link Bitboards}.
+     */
+    private final long[] watched;
+
+    /**
+     * The attacks and moves to each reached tile except the origin, encoded as described in
+     * {@link Action}, in the order the tiles were reached. Listing a unit's actions is then just a
+     * copy.
+     */
+    private final int[] attacks;
+    private final int[] moves;
+    private int attackCount;
+    private int moveCount;
+
+    /**
+     * Constructs a new, empty set, big enough to hold any search on the given tiles. Only used by
+     * {@link Reachability}.
+     *
+     * @param tiles         the tiles of the board
+     * @param neighborMasks the mask of the neighbors of each tile
+     * @param words         the length of a mask over the tiles
+     */
+    ReachableSet(TileGrid tiles, long[] neighborMasks, int words) {
+        this.neighborMasks = neighborMasks;
+        this.words = words;
+        indices = new int[tiles.size()];
+        distances = new int[tiles.size()];
+        kinds = new byte[tiles.size()];
+        watched = new long[words];
+        attacks = new int[tiles.size()];
+        moves = new int[tiles.size()];
+    }
+
+    /**
+     * Discards the results in this set, to start a new search from the given tile.
+     *
+     * @param origin the origin of the search, or {@code null} to just empty the set
+     * @param range  the range of the search
+     */
+    void start(Tile origin, int range) {
+        this.origin = origin;
+        this.range = range;
+        size = 0;
+        attackCount = 0;
+        moveCount = 0;
+    }
+
+    /**
+     * Adds a reached tile. The origin must be added first, then the other tiles in order of
+     * distance, and in order of index for tiles at the same distance.
+     *
+     * @param index    the index of the tile
+     * @param distance the distance from the origin
+     * @param kind     the kind of the tile
+     */
+    void add(int index, int distance, byte kind) {
+        indices[size] = index;
+        distances[size] = distance;
+        kinds[size] = kind;
+        size++;
+        if (kind == Reachability.ATTACKABLE) {
+            attacks[attackCount++] = Action.attack(origin.getIndex(), index);
+        } else if (kind == Reachability.MOVEABLE) {
+            moves[moveCount++] = Action.move(origin.getIndex(), index);
+        }
+    }
+
+    /**
+     * Sets the mask of tiles that the search looked at.
+     *
+     * @param watched the mask
+     */
+    void setWatched(long[] watched) {
+        System.arraycopy(watched, 0, this.watched, 0, watched.length);
+    }
+
+    /**
+     * Gets the origin of the search.
+     *
+     * @return the origin, or {@code null} if the set is empty
+     */
+    public Tile getOrigin() {
+        return origin;
+    }
+
+    /**
+     * Gets the maximum amount of moves that the search was allowed.
+     *
+     * @return the range of the search
+     */
+    public int getRange() {
+        return range;
+    }
+
+    /**
+     * Copies the attacks that the searched unit can make into the given array.
+     *
+     * @param dest the array to copy to
+     * @param at   the index in {@code dest} to start at
+     * @return the index after the last attack copied
+     */
+    int copyAttacks(int[] dest, int at) {
+        System.arraycopy(attacks, 0, dest, at, attackCount);
+        return at + attackCount;
+    }
+
+    /**
+     * Copies the moves that the searched unit can make into the given array.
+     *
+     * @param dest the array to copy to
+     * @param at   the index in {@code dest} to start at
+     * @return the index after the last move copied
+     */
+    int copyMoves(int[] dest, int at) {
+        System.arraycopy(moves, 0, dest, at, moveCount);
+        return at + moveCount;
+    }
+
+    /**
+     * Gets the tile before the given tile, on the shortest path from the origin. Of the tiles that
+     * the search could have reached it from, this is the one with the lowest index. Parents are
+     * only needed when an attack is applied, so they are found here instead of during the search.
+     *
+     * @param tile a reached tile
+     * @return the index of the tile before it, or -1 if the tile is the origin
+     */
+    int getParent(Tile tile) {
+        return findParent(find(tile.getIndex()));
+    }
+
+    /**
+     * Finds the tile before the reached tile at the given position in {@link #indices}: the first
+     * tile reached one step closer to the origin that can be moved through and is next to it.
+     * Tiles at the same distance were reached in order of index, so that's the lowest one.
+     *
+     * @param position the position of a reached tile
+     * @return the index of the tile before it, or -1 if the tile is the origin
+     */
+    private int findParent(int position) {
+        final int offset = indices[position] * words;
+        final int distance = distances[position] - 1;
+        for (int i = 0; i < position; i++) {
+            final int index = indices[i];
+            if (distances[i] == distance && kinds[i] != Reachability.ATTACKABLE
+                && (neighborMasks[offset + (index >> 6)] & 1L << index) != 0) {
+                return index;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Could a change to the unit on the tile at the given index change this set? That's only if
+     * the search looked at the tile: the origin, and every tile next to one that the search moved
+     * through. A unit appearing, leaving or changing owner anywhere else can't change what the
+     * search finds.
+     *
+     * @param index the index of the tile
+     * @return true if the set may no longer be right after the change, false otherwise
+     */
+    boolean isAffectedBy(int index) {
+        return Bitboards.isSet(watched, index);
+    }
+
+    /**
+     * Finds the position of the tile at the given index in {@link #indices}. A set only holds a
+     * few dozen tiles, so a plain scan is fast enough.
+     *
+     * @return the position, or -1 if the tile wasn't reached
+     */
+    private int find(int index) {
+        for (int i = 0; i < size; i++) {
+            if (indices[i] == index) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Can the searched unit move to the given tile?
+     *
+     * @param tile the tile (non-null)
+     * @return true if the tile is moveable, false otherwise
+     * @throws NullPointerException if {@code tile == null}
+     */
+    public boolean isMoveable(Tile tile) {
+        final int i = find(tile.getIndex());
+        return i >= 0 && kinds[i] == Reachability.MOVEABLE;
+    }
+
+    /**
+     * Can the searched unit attack the given tile?
+     *
+     * @param tile the tile (non-null)
+     * @return true if the tile is attackable, false otherwise
+     * @throws NullPointerException if {@code tile == null}
+     */
+    public boolean isAttackable(Tile tile) {
+        final int i = find(tile.getIndex());
+        return i >= 0 && kinds[i] == Reachability.ATTACKABLE;
+    }
+
+    /**
+     * Gets the length of the shortest path from the origin to the given tile.
+     *
+     * @param tile the tile (non-null)
+     * @return the distance to the tile, or -1 if it wasn't reached
+     * @throws NullPointerException if {@code tile == null}
+     */
+    public int getDistance(Tile tile) {
+        final int i = find(tile.getIndex());
+        return i >= 0 ? distances[i] : -1;
+    }
+}
@@ -0,0 +1,288 @@
+package groundwar.board;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+
+import groundwar.board.tile.Tile;
+import groundwar.util.Constants;
+import groundwar.util.Direction;
+import groundwar.util.Point;
+
+/**
+ * Holds all the tiles of a board in a flat array, indexed by their axial (x, y) coordinates. The
+ * array covers the bounding box of the board, which is computed when the grid is created, so
+ * looking up a tile by its coordinates is O(1) and doesn't allocate anything.
+ *
+ * Each tile is also given a dense index (see {@link Tile#getIndex()}) in order of position, so
+ * tiles can be looked up by index as well.
+ */
+public class TileGrid {
+
+    private final int minX;
+    private final int minY;
+    private final int width;
+    private final int height;
+
+    /**
+     * The index of the tile at each position in the bounding box, or -1 if there is no tile there.
+     * Positions are ordered by x, then by y.
+     */
+    private final int[] slots;
+
+    /**
+     * Each tile, at the position of its index.
+     */
+    private final Tile[] tiles;
+    private final Map<Point, Tile> mapView = new MapView();
+
+    /**
+     * Constructs a new {@code TileGrid} holding the given tiles, and sets the index of each tile.
+     *
+     * @param tiles the tiles to hold (non-null, non-empty, no two tiles at the same position)
+     * @throws NullPointerException     if {@code tiles == null}
+     * @throws IllegalArgumentException if {@code tiles} is empty or has two tiles at the same
+     *                                  position
+     */
+    public TileGrid(Collection<Tile> tiles) {
+        Objects.requireNonNull(tiles);
+        if (tiles.isEmpty()) {
+            throw new IllegalArgumentException("A grid needs at least one tile!");
+        }
+
+        // Find the bounding box of the tiles
+        int minX = Integer.MAX_VALUE;
+        int minY = Integer.MAX_VALUE;
+        int maxX = Integer.MIN_VALUE;
+        int maxY = Integer.MIN_VALUE;
+        for (Tile tile : tiles) {
+            final Point pos = tile.getPos();
+            minX = Math.min(minX, pos.getX());
+            minY = Math.min(minY, pos.getY());
+            maxX = Math.max(maxX, pos.getX());
+            maxY = Math.max(maxY, pos.getY());
+        }
+        this.minX = minX;
+        this.minY = minY;
+        width = maxX - minX + 1;
+        height = maxY - minY + 1;
+
+        // Put each tile into its slot
+        final Tile[] tilesBySlot = new Tile[width * height];
+        for (Tile tile : tiles) {
+            final int slot = slotOf(tile.getPos().getX(), tile.getPos().getY());
+            if (tilesBySlot[slot] != null) {
+                throw new IllegalArgumentException("Two tiles at the same position: " + tile);
+            }
+            tilesBySlot[slot] = tile;
+        }
+
+        // Index the tiles in slot order, which is the same as ordering by position
+        slots = new int[tilesBySlot.length];
+        this.tiles = new Tile[tiles.size()];
+        int index = 0;
+        for (int slot = 0; slot < tilesBySlot.length; slot++) {
+            final Tile tile = tilesBySlot[slot];
+            if (tile != null) {
+                tile.setIndex(index);
+                this.tiles[index] = tile;
+                slots[slot] = index++;
+            } else {
+                slots[slot] = -1;
+            }
+        }
+    }
+
+    private int slotOf(int x, int y) {
+        return (x - minX) * height + (y - minY);
+    }
+
+    /**
+     * Gets the amount of tiles in this grid. Tile indices range from 0 to {@code size() - 1}.
+     *
+     * @return the amount of tiles
+     */
+    public int size() {
+        return tiles.length;
+    }
+
+    /**
+     * Gets the index of the tile at the given coordinates.
+     *
+     * @param x the x coordinate
+     * @param y the y coordinate
+     * @return the index of the tile, or -1 if there is no tile there
+     */
+    public int indexOf(int x, int y) {
+        if (x < minX || y < minY || x >= minX + width || y >= minY + height) {
+            return -1;
+        }
+        return slots[slotOf(x, y)];
+    }
+
+    /**
+     * Gets the tile at the given coordinates.
+     *
+     * @param x the x coordinate
+     * @param y the y coordinate
+     * @return the tile, or {@code null} if there is no tile there
+     */
+    public Tile get(int x, int y) {
+        final int index = indexOf(x, y);
+        return index >= 0 ? tiles[index] : null;
+    }
+
+    /**
+     * Gets the tile at the given position.
+     *
+     * @param pos the position (non-null)
+     * @return the tile, or {@code null} if there is no tile there
+     * @throws NullPointerException if {@code pos == null}
+     */
+    public Tile get(Point pos) {
+        return get(pos.getX(), pos.getY());
+    }
+
+    /**
+     * Gets the tile with the given index.
+     *
+     * @param index the index of the tile (in [0, {@link #size()}))
+     * @return the tile
+     * @throws ArrayIndexOutOfBoundsException if the index is out of range
+     */
+    public Tile get(int index) {
+        return tiles[index];
+    }
+
+    /**
+     * Gets the tile that contains the given point on the screen, as defined by {@link
+     * Tile#contains}. This inverts the layout used to position tiles on the screen (see the
+     * {@link Tile} constructor) and rounds to the nearest hex, so it takes constant time.
+     *
+     * @param screenPos the point on the screen (non-null)
+     * @return the tile containing the point, or {@code null} if there isn't one
+     * @throws NullPointerException if {@code screenPos == null}
+     */
+    public Tile getTileAtScreenPos(Point screenPos) {
+        final int screenX = screenPos.getX();
+        final int screenY = screenPos.getY();
+
+        // Undo the layout to get fractional axial coordinates
+        final float fx = (screenX - Constants.BOARD_CENTER.getX() - Constants.TILE_WIDTH / 2)
+                         / (Constants.TILE_WIDTH * 0.75f);
+        final float fy = -(screenY - Constants.BOARD_CENTER.getY() - Constants.TILE_HEIGHT / 2)
+                         / (float) Constants.TILE_HEIGHT - fx / 2;
+        final float fz = -fx - fy;
+
+        // Round to the nearest hex. The coordinate that was rounded the most is recalculated from
+        // the other two, so that x + y + z = 0 still holds.
+        int x = Math.round(fx);
+        int y = Math.round(fy);
+        final int z = Math.round(fz);
+        final float xDiff = Math.abs(x - fx);
+        final float yDiff = Math.abs(y - fy);
+        final float zDiff = Math.abs(z - fz);
+        if (xDiff > yDiff && xDiff > zDiff) {
+            x = -y - z;
+        } else if (yDiff > zDiff) {
+            y = -x - z;
+        }
+
+        final Tile tile = get(x, y);
+        if (tile != null && tile.contains(screenX, screenY)) {
+            return tile;
+        }
+
+        // Screen positions are rounded, so right on the edge of a tile the nearest hex might be off
+        // by one. Check the neighbors to be sure.
+        for (Direction dir : Direction.values()) {
+            final Tile adjTile = get(x + dir.delta.getX(), y + dir.delta.getY());
+            if (adjTile != null && adjTile.contains(screenX, screenY)) {
+                return adjTile;
+            }
+        }
+        return null;
+    }
+
+    public int getMinX() {
+        return minX;
+    }
+
+    public int getMinY() {
+        return minY;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * Gets an unmodifiable {@link Map} view of this grid, with each tile mapped by its position.
+     * Lookups in the map go straight to the grid.
+     *
+     * @return the map view
+     */
+    public Map<Point, Tile> asMap() {
+        return mapView;
+    }
+
+    private class MapView extends AbstractMap<Point, Tile> {
+
+        private final Set<Entry<Point, Tile>> entrySet = new AbstractSet<Entry<Point, Tile>>() {
+            @Override
+            public Iterator<Entry<Point, Tile>> iterator() {
+                return new Iterator<Entry<Point, Tile>>() {
+                    private int index;
+
+                    @Override
+                    public boolean hasNext() {
+                        return index < tiles.length;
+                    }
+
+                    @Override
+                    public Entry<Point, Tile> next() {
+                        if (!hasNext()) {
+                            throw new NoSuchElementException();
+                        }
+                        final Tile tile = tiles[index++];
+                        return new SimpleImmutableEntry<>(tile.getPos(), tile);
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return tiles.length;
+            }
+        };
+
+        @Override
+        public Set<Entry<Point, Tile>> entrySet() {
+            return entrySet;
+        }
+
+        @Override
+        public int size() {
+            return tiles.length;
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return get(key) != null;
+        }
+
+        @Override
+        public Tile get(Object key) {
+            return key instanceof Point ? TileGrid.this.get((Point) key) : null;
+        }
+    }
+}
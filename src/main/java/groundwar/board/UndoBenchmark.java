@@ -0,0 +1,191 @@
+package groundwar.board;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+import groundwar.board.tile.Tile;
+import groundwar.board.unit.Unit;
+import groundwar.util.GameRandom;
+
+/**
+ * Checks that {@link Board#undoAction()} puts the board back exactly as it was, and measures how
+ * fast actions are applied and undone. Random games are played on the shipped board from a fixed
+ * seed. At each position, a random line of actions is applied, checking after each one that the
+ * kept hash matches a hash worked out from scratch, then the whole line is undone, and everything
+ * about the board is compared with how it was before: every tile, unit, flag and color, the gold,
+ * the turn, the winner, the random number generator and the record. Each game, which ends after
+ * {@link #MAX_TURNS} turns if nobody has won, is also replayed from its record. Any difference is
+ * printed.
+ *
+ * Then, at each position, every legal action is applied and undone, as the search does, and the
+ * pairs per second are reported, along with the bytes allocated while doing so, if the JVM can
+ * count them. Applying and undoing don't allocate anything once the undo stack has grown to fit,
+ * so the only bytes counted are from the stack and the record growing as each game gets longer,
+ * and from each new game's board making a reachable set for each tile that a unit moves from.
+ *
+ * Arguments, all optional: the amount of positions (default 5000), the length of each line of
+ * actions (default 8), and the seed (default 1).
+ */
+public class UndoBenchmark {
+
+    private static final int MAX_ERRORS = 10;
+    private static final int MAX_TURNS = 300;
+
+    /**
+     * Looked up once, since looking it up allocates.
+     */
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+
+    public static void main(String[] args) throws IOException {
+        final int positions = args.length > 0 ? Integer.parseInt(args[0]) : 5000;
+        final int lineLength = args.length > 1 ? Integer.parseInt(args[1]) : 8;
+        final long seed = args.length > 2 ? Long.parseLong(args[2]) : 1L;
+
+        final GameRandom random = new GameRandom(seed);
+        Board board = new Board(seed);
+        MoveGenerator generator = new MoveGenerator(board);
+        final int[] actions = new int[generator.getMaxActions()];
+        final int[] line = new int[lineLength];
+        int errors = 0;
+        int games = 0;
+        long pairs = 0L;
+        long pairTime = 0L;
+        long allocated = 0L;
+        final long countedBytes = getAllocatedBytes();
+        final long overheadBytes = getAllocatedBytes() - countedBytes; // Counting allocates a bit
+
+        for (int p = 0; p < positions && errors < MAX_ERRORS; p++) {
+            int count = generator.generate(actions);
+            if (count == 0 || board.getTurnCount() >= MAX_TURNS) {
+                // The game is over, so check its record, then start a new one
+                errors += checkReplay(board);
+                games++;
+                board = new Board(random.nextLong());
+                generator = new MoveGenerator(board);
+                count = generator.generate(actions);
+            }
+
+            // Apply and undo a random line of actions
+            final String before = describe(board);
+            final long hashBefore = board.getHash();
+            int played = 0;
+            while (played < lineLength && (count = generator.generate(actions)) > 0) {
+                line[played] = actions[Math.min((int) (random.nextFloat() * count), count - 1)];
+                board.applyAction(line[played++]);
+                if (board.getHash() != new ZobristHash(board).getHash()) {
+                    errors++;
+                    System.out.printf("Position %d: wrong hash after %s%n", p,
+                                      Action.toString(line[played - 1]));
+                }
+            }
+            for (int i = 0; i < played; i++) {
+                board.undoAction();
+            }
+            final String after = describe(board);
+            if (!after.equals(before) || board.getHash() != hashBefore) {
+                errors++;
+                System.out.printf("Position %d: undoing a line of %d actions changed the board%n"
+                                  + "before: %s%nafter:  %s%n", p, played, before, after);
+            }
+
+            // Apply and undo every action, as the search does
+            count = generator.generate(actions);
+            final long startBytes = getAllocatedBytes();
+            final long start = System.nanoTime();
+            for (int i = 0; i < count; i++) {
+                board.applyAction(actions[i]);
+                board.undoAction();
+            }
+            pairTime += System.nanoTime() - start;
+            allocated += getAllocatedBytes() - startBytes - overheadBytes;
+            pairs += count;
+
+            board.applyAction(actions[Math.min((int) (random.nextFloat() * count), count - 1)]);
+        }
+        errors += checkReplay(board); // The unfinished game too
+
+        System.out.printf("%,d positions, lines of %d actions, %d games replayed, seed %d%n",
+                          positions, lineLength, games + 1, seed);
+        System.out.printf("%d errors%n", errors);
+        System.out.printf("%,14.0f apply/undo pairs/s%n", pairs * 1e9 / pairTime);
+        System.out.printf("%,14.1f ns per pair%n", (double) pairTime / pairs);
+        if (countedBytes >= 0L) {
+            System.out.printf("%,14.1f bytes allocated per pair%n", (double) allocated / pairs);
+        }
+        if (errors > 0) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Replays the given board's game from its record, and checks that it ends up the same.
+     *
+     * @return 1 if the replay went differently, 0 otherwise
+     */
+    private static int checkReplay(Board board) {
+        try {
+            final Board replay = board.getRecord().replay();
+            if (describe(replay).equals(describe(board))) {
+                return 0;
+            }
+            System.out.println("Replaying a game gave a different board");
+        } catch (IOException e) {
+            System.out.println(e.getMessage());
+        }
+        return 1;
+    }
+
+    /**
+     * Describes everything about the state of the given board that an action can change.
+     */
+    private static String describe(Board board) {
+        final StringBuilder description = new StringBuilder();
+        for (PlayerInfo info : PlayerInfo.values()) {
+            description.append(info).append(" gold ").append(board.getPlayer(info).getGold())
+                .append(", ");
+        }
+        description.append("player ").append(board.getCurrentPlayer().getInfo())
+            .append(", turn ").append(board.getTurnCount())
+            .append(", winner ").append(playerName(board.getWinner()))
+            .append(", draws ").append(board.getRandom().getDraws())
+            .append(", record ").append(board.getRecord().size());
+        final TileGrid tiles = board.getTileGrid();
+        for (int i = 0; i < tiles.size(); i++) {
+            final Tile tile = tiles.get(i);
+            description.append(" | ").append(i).append(':').append(playerName(tile.getOwner()))
+                .append(' ').append(Integer.toHexString(tile.getBackgroundColor()))
+                .append(' ').append(Integer.toHexString(tile.getOutlineColor()));
+            if (tile.getFlag() != null) {
+                description.append(" flag ").append(playerName(tile.getFlag().getOwner()));
+            }
+            final Unit unit = tile.getUnit();
+            if (unit != null) {
+                description.append(' ').append(unit.getType()).append(' ')
+                    .append(playerName(unit.getOwner())).append(' ').append(unit.getHealth())
+                    .append('/').append(unit.getMovesRemaining());
+                if (unit.hasFlag()) {
+                    description.append(" carrying ").append(playerName(unit.getFlag().getOwner()));
+                }
+            }
+        }
+        return description.toString();
+    }
+
+    private static String playerName(Player player) {
+        return player == null ? "none" : player.getInfo().toString();
+    }
+
+    /**
+     * Gets the bytes allocated by this thread so far.
+     *
+     * @return the bytes, or -1 if the JVM can't count them
+     */
+    private static long getAllocatedBytes() {
+        if (THREADS instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) THREADS).getThreadAllocatedBytes(
+                Thread.currentThread().getId());
+        }
+        return -1L;
+    }
+}
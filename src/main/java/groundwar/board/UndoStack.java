@@ -0,0 +1,230 @@
+package groundwar.board;
+
+import java.util.Arrays;
+
+import groundwar.board.tile.Tile;
+import groundwar.board.tile.TileListener;
+import groundwar.board.unit.Unit;
+
+/**
+ * Records what each action changes on a {@link Board}, so that actions can be undone in reverse
+ * order. Each action gets a frame, which holds the state of the board itself (random number
+ * generator, current player, turn count, winner and each player's gold) from before the action.
+ * While a frame is open, the first time each tile is about to change, the tile's state is recorded
+ * too: its unit, flag, owner and colors, and the health, moves and carried flag of its unit.
+ *
+ * Undoing a frame puts every recorded tile back the way it was, so it costs O(tiles changed). All
+ * records are kept in parallel arrays, which only grow when the stack gets deeper than it has been
+ * before, so applying and undoing actions doesn't create any garbage.
+ */
+class UndoStack implements TileListener {
+
+    private static final int INITIAL_FRAMES = 64;
+    private static final int INITIAL_RECORDS = 256;
+
+    private final Board board;
+    private final TileGrid tiles;
+    private final UnitPool unitPool;
+    private final Player[] players;
+
+    // One entry per frame
+    private int frameCount;
+    private int[] recordStarts = new int[INITIAL_FRAMES];
+    private long[] randomStates = new long[INITIAL_FRAMES];
+    private int[] currentPlayers = new int[INITIAL_FRAMES];
+    private int[] turnCounts = new int[INITIAL_FRAMES];
+    private Player[] winners = new Player[INITIAL_FRAMES];
+    private Unit[] spawnedUnits = new Unit[INITIAL_FRAMES];
+
+    /**
+     * The gold of each player, with one entry per player per frame.
+     */
+    private int[] golds;
+
+    // One entry per recorded tile
+    private int recordCount;
+    private int[] recordTiles = new int[INITIAL_RECORDS];
+    private Unit[] recordUnits = new Unit[INITIAL_RECORDS];
+    private int[] recordHealths = new int[INITIAL_RECORDS];
+    private int[] recordMoves = new int[INITIAL_RECORDS];
+    private Flag[] recordCarriedFlags = new Flag[INITIAL_RECORDS];
+    private Flag[] recordFlags = new Flag[INITIAL_RECORDS];
+    private Player[] recordOwners = new Player[INITIAL_RECORDS];
+    private int[] recordBackgroundColors = new int[INITIAL_RECORDS];
+    private int[] recordOutlineColors = new int[INITIAL_RECORDS];
+
+    /**
+     * The serial number of the frame that each tile was last recorded in. Each frame gets a new
+     * serial number, so a tile only needs to be recorded if its entry doesn't match the open frame.
+     */
+    private final int[] recordedIn;
+    private int serial;
+
+    /**
+     * Constructs a new, empty stack for the given board.
+     *
+     * @param board    the board
+     * @param unitPool the pool to put spawned units back into when their spawn is undone
+     */
+    UndoStack(Board board, UnitPool unitPool) {
+        this.board = board;
+        this.unitPool = unitPool;
+        tiles = board.getTileGrid();
+        players = new Player[PlayerInfo.values().length];
+        for (PlayerInfo info : PlayerInfo.values()) {
+            players[info.ordinal()] = board.getPlayer(info);
+        }
+        golds = new int[INITIAL_FRAMES * players.length];
+        recordedIn = new int[tiles.size()];
+    }
+
+    /**
+     * Gets the amount of frames on the stack, which is the amount of actions that can be undone.
+     *
+     * @return the amount of frames
+     */
+    int size() {
+        return frameCount;
+    }
+
+    /**
+     * Opens a new frame, recording the current state of the board. Any changes to tiles from now
+     * until the next frame is opened are recorded in this frame.
+     */
+    void push() {
+        if (frameCount == recordStarts.length) {
+            growFrames();
+        }
+        if (++serial == 0) { // The serial wrapped around, so old serials could match again
+            Arrays.fill(recordedIn, 0);
+            serial = 1;
+        }
+
+        final int frame = frameCount++;
+        recordStarts[frame] = recordCount;
+        randomStates[frame] = board.getRandom().getState();
+        currentPlayers[frame] = board.getCurrentPlayer().getInfo().ordinal();
+        turnCounts[frame] = board.getTurnCount();
+        winners[frame] = board.getWinner();
+        for (int p = 0; p < players.length; p++) {
+            golds[frame * players.length + p] = players[p].getGold();
+        }
+    }
+
+    /**
+     * Marks the unit as having been spawned by the action of the open frame. When the frame is
+     * undone, the unit will be released to the unit pool.
+     *
+     * @param unit the spawned unit
+     */
+    void setSpawnedUnit(Unit unit) {
+        spawnedUnits[frameCount - 1] = unit;
+    }
+
+    /**
+     * Undoes the most recent frame, putting the board and every tile that changed during the frame
+     * back into their recorded state, then removes the frame.
+     *
+     * @throws IllegalStateException if there are no frames
+     */
+    void pop() {
+        if (frameCount == 0) {
+            throw new IllegalStateException("There is nothing to undo!");
+        }
+        final int frame = --frameCount;
+
+        // Restore the tiles, newest first
+        final int start = recordStarts[frame];
+        for (int r = recordCount - 1; r >= start; r--) {
+            final Unit unit = recordUnits[r];
+            if (unit != null) {
+                unit.restore(recordHealths[r], recordMoves[r], recordCarriedFlags[r]);
+            }
+            tiles.get(recordTiles[r]).restore(unit, recordFlags[r], recordOwners[r],
+                                              recordBackgroundColors[r], recordOutlineColors[r]);
+
+            // Don't hold on to anything that's no longer needed
+            recordUnits[r] = null;
+            recordCarriedFlags[r] = null;
+            recordFlags[r] = null;
+            recordOwners[r] = null;
+        }
+        recordCount = start;
+
+        // Restore the board
+        for (int p = 0; p < players.length; p++) {
+            players[p].setGold(golds[frame * players.length + p]);
+        }
+        board.restore(randomStates[frame], currentPlayers[frame], turnCounts[frame],
+                      winners[frame]);
+        winners[frame] = null;
+        if (spawnedUnits[frame] != null) {
+            unitPool.release(spawnedUnits[frame]);
+            spawnedUnits[frame] = null;
+        }
+    }
+
+    /**
+     * Removes every frame without undoing anything.
+     */
+    void clear() {
+        Arrays.fill(recordUnits, 0, recordCount, null);
+        Arrays.fill(recordCarriedFlags, 0, recordCount, null);
+        Arrays.fill(recordFlags, 0, recordCount, null);
+        Arrays.fill(recordOwners, 0, recordCount, null);
+        Arrays.fill(winners, 0, frameCount, null);
+        Arrays.fill(spawnedUnits, 0, frameCount, null);
+        recordCount = 0;
+        frameCount = 0;
+    }
+
+    @Override
+    public void beforeTileChange(Tile tile) {
+        final int index = tile.getIndex();
+        if (frameCount == 0 || recordedIn[index] == serial) {
+            return; // No open frame, or already recorded in this one
+        }
+        recordedIn[index] = serial;
+
+        if (recordCount == recordTiles.length) {
+            growRecords();
+        }
+        final int r = recordCount++;
+        final Unit unit = tile.getUnit();
+        recordTiles[r] = index;
+        recordUnits[r] = unit;
+        if (unit != null) {
+            recordHealths[r] = unit.getHealth();
+            recordMoves[r] = unit.getMovesRemaining();
+            recordCarriedFlags[r] = unit.getFlag();
+        }
+        recordFlags[r] = tile.getFlag();
+        recordOwners[r] = tile.getOwner();
+        recordBackgroundColors[r] = tile.getBackgroundColor();
+        recordOutlineColors[r] = tile.getOutlineColor();
+    }
+
+    private void growFrames() {
+        final int length = recordStarts.length * 2;
+        recordStarts = Arrays.copyOf(recordStarts, length);
+        randomStates = Arrays.copyOf(randomStates, length);
+        currentPlayers = Arrays.copyOf(currentPlayers, length);
+        turnCounts = Arrays.copyOf(turnCounts, length);
+        winners = Arrays.copyOf(winners, length);
+        spawnedUnits = Arrays.copyOf(spawnedUnits, length);
+        golds = Arrays.copyOf(golds, length * players.length);
+    }
+
+    private void growRecords() {
+        final int length = recordTiles.length * 2;
+        recordTiles = Arrays.copyOf(recordTiles, length);
+        recordUnits = Arrays.copyOf(recordUnits, length);
+        recordHealths = Arrays.copyOf(recordHealths, length);
+        recordMoves = Arrays.copyOf(recordMoves, length);
+        recordCarriedFlags = Arrays.copyOf(recordCarriedFlags, length);
+        recordFlags = Arrays.copyOf(recordFlags, length);
+        recordOwners = Arrays.copyOf(recordOwners, length);
+        recordBackgroundColors = Arrays.copyOf(recordBackgroundColors, length);
+        recordOutlineColors = Arrays.copyOf(recordOutlineColors, length);
+    }
+}
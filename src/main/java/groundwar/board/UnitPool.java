@@ -0,0 +1,63 @@
+package groundwar.board;
+
+import java.util.Arrays;
+
+import groundwar.board.unit.Unit;
+import groundwar.board.unit.UnitType;
+
+/**
+ * Keeps units that are no longer on the board, so that they can be used again instead of creating
+ * new ones. Units are released into the pool when the action that spawned them is undone, so
+ * spawning and undoing over and over doesn't create any garbage.
+ */
+class UnitPool {
+
+    private static final UnitType[] UNIT_TYPES = UnitType.values();
+
+    /**
+     * The free units for each player and type, at {@code player * UNIT_TYPES.length + type}.
+     */
+    private final Unit[][] free;
+    private final int[] freeCounts;
+
+    UnitPool() {
+        final int slots = PlayerInfo.values().length * UNIT_TYPES.length;
+        free = new Unit[slots][4];
+        freeCounts = new int[slots];
+    }
+
+    private static int slotOf(UnitType type, Player owner) {
+        return owner.getInfo().ordinal() * UNIT_TYPES.length + type.ordinal();
+    }
+
+    /**
+     * Gets a unit of the given type, in the same state as a newly-created one.
+     *
+     * @param type  the type of unit
+     * @param owner the owner of the unit
+     * @return the unit
+     */
+    Unit obtain(UnitType type, Player owner) {
+        final int slot = slotOf(type, owner);
+        if (freeCounts[slot] == 0) {
+            return type.createUnit(owner);
+        }
+        final Unit unit = free[slot][--freeCounts[slot]];
+        free[slot][freeCounts[slot]] = null;
+        unit.restore(type.maxHealth, 0, null);
+        return unit;
+    }
+
+    /**
+     * Puts the given unit into the pool. The unit must not be on the board.
+     *
+     * @param unit the unit
+     */
+    void release(Unit unit) {
+        final int slot = slotOf(unit.getType(), unit.getOwner());
+        if (freeCounts[slot] == free[slot].length) {
+            free[slot] = Arrays.copyOf(free[slot], free[slot].length * 2);
+        }
+        free[slot][freeCounts[slot]++] = unit;
+    }
+}
@@ -0,0 +1,134 @@
+package groundwar.board;
+
+import java.util.Objects;
+
+import groundwar.board.tile.Tile;
+import groundwar.board.tile.TileListener;
+import groundwar.board.unit.Unit;
+import groundwar.util.Funcs;
+
+/**
+ * An incrementally-updated Zobrist hash of the complete state of a {@link Board}. Each feature of
+ * the state (e.g. "a blue tank is on tile 12", or "the unit on tile 12 has 80 health") has its own
+ * random 64-bit key, and the hash is the XOR of the keys of every feature that is present.
+ *
+ * The hash of each tile is kept separately. When a tile changes, its old hash is XORed out and its
+ * new hash XORed in, so keeping the hash up to date costs O(1) per changed tile. Keys are made by
+ * mixing the feature, tile and value together rather than being stored in tables, so there is no
+ * limit on values such as health or gold.
+ */
+public class ZobristHash implements TileListener {
+
+    // Features of a tile
+    private static final int UNIT = 1;
+    private static final int HEALTH = 2;
+    private static final int MOVES = 3;
+    private static final int CARRIED_FLAG = 4;
+    private static final int FLAG = 5;
+    private static final int OWNER = 6;
+
+    // Features of the board
+    private static final int CURRENT_PLAYER = 7;
+    private static final int GOLD = 8;
+    private static final int WINNER = 9;
+
+    private final Board board;
+    private final long[] tileHashes;
+    private long tilesHash;
+
+    /**
+     * Constructs a new hash from the current state of the given board. This does not register
+     * itself as a listener to the board.
+     *
+     * @param board the board (non-null)
+     * @throws NullPointerException if {@code board == null}
+     */
+    public ZobristHash(Board board) {
+        Objects.requireNonNull(board);
+        this.board = board;
+        final TileGrid tiles = board.getTileGrid();
+        tileHashes = new long[tiles.size()];
+        for (int i = 0; i < tiles.size(); i++) {
+            tileHashes[i] = hashTile(tiles.get(i));
+            tilesHash ^= tileHashes[i];
+        }
+    }
+
+    /**
+     * Gets the key for the given feature.
+     *
+     * @param feature the type of feature
+     * @param index   the tile or player that the feature is on
+     * @param value   the value of the feature
+     * @return the key
+     */
+    private static long key(int feature, int index, int value) {
+        return Funcs.mix64(((long) feature << 56 | (long) index << 32 | value & 0xffffffffL)
+                           * 0x9e3779b97f4a7c15L);
+    }
+
+    private static int playerId(Player player) {
+        return player == null ? -1 : player.getInfo().ordinal();
+    }
+
+    private static long hashTile(Tile tile) {
+        final int index = tile.getIndex();
+        long hash = key(OWNER, index, playerId(tile.getOwner()));
+        if (tile.getFlag() != null) {
+            hash ^= key(FLAG, index, playerId(tile.getFlag().getOwner()));
+        }
+
+        final Unit unit = tile.getUnit();
+        if (unit != null) {
+            final int unitId = playerId(unit.getOwner()) << 8 | unit.getType().ordinal();
+            hash ^= key(UNIT, index, unitId);
+            hash ^= key(HEALTH, index, unit.getHealth());
+            hash ^= key(MOVES, index, unit.getMovesRemaining());
+            if (unit.hasFlag()) {
+                hash ^= key(CARRIED_FLAG, index, playerId(unit.getFlag().getOwner()));
+            }
+        }
+        return hash;
+    }
+
+    /**
+     * Gets the hash of the board's current state.
+     *
+     * @return the hash
+     */
+    public long getHash() {
+        long hash = tilesHash ^ key(CURRENT_PLAYER, 0, playerId(board.getCurrentPlayer()))
+                    ^ key(WINNER, 0, playerId(board.getWinner()));
+        for (PlayerInfo info : PlayerInfo.values()) {
+            hash ^= key(GOLD, info.ordinal(), board.getPlayer(info).getGold());
+        }
+        return hash;
+    }
+
+    private void update(Tile tile) {
+        final int index = tile.getIndex();
+        tilesHash ^= tileHashes[index];
+        tileHashes[index] = hashTile(tile);
+        tilesHash ^= tileHashes[index];
+    }
+
+    @Override
+    public void onUnitChange(Tile tile) {
+        update(tile);
+    }
+
+    @Override
+    public void onUnitMovesChange(Tile tile) {
+        update(tile);
+    }
+
+    @Override
+    public void onOwnerChange(Tile tile) {
+        update(tile);
+    }
+
+    @Override
+    public void onFlagChange(Tile tile) {
+        update(tile);
+    }
+}
@@ -1,6 +1,5 @@
 package groundwar.board.tile;
 
-import groundwar.board.unit.Unit;
 import groundwar.util.Colors;
 import groundwar.util.Point;
 
@@ -11,7 +10,7 @@ public class MountainTile extends Tile {
     }
 
     @Override
-    public boolean isMoveable(Unit mover) {
+    public boolean isPassable() {
         return false;
     }
 }
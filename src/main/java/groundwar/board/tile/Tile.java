@@ -3,6 +3,7 @@ package groundwar.board.tile;
 import java.util.Objects;
 
 import groundwar.board.Board;
+import groundwar.board.BoardTopology;
 import groundwar.board.Flag;
 import groundwar.board.Player;
 import groundwar.board.unit.Unit;
@@ -18,6 +19,17 @@ public class Tile {
      */
     private final Point pos;
 
+    /**
+     * The index of this tile within the board, assigned once the board has been loaded. Tile
+     * indices are dense, starting at 0, so they can be used to index into per-tile arrays.
+     */
+    private int index = -1;
+
+    /**
+     * The topology of the board this tile is on. {@code null} until the board has been loaded.
+     */
+    private BoardTopology topology;
+
     /**
      * The player who owns this tile. In most cases, the tile is unowned and this is {@code null}.
      */
@@ -32,6 +44,7 @@ public class Tile {
     private final Tile[] adjacentTiles = new Tile[Constants.NUM_SIDES];
     private Unit unit;
     private Flag flag;
+    private TileListener listener;
 
     public Tile(Point pos) {
         this(pos, Colors.TILE_BG, Colors.TILE_OUTLINE);
@@ -80,10 +93,50 @@ public class Tile {
         onSetAdjacents();
     }
 
+    /**
+     * Sets the listener that is told about changes to this tile. This replaces any previous
+     * listener.
+     *
+     * @param listener the listener (null for no listener)
+     */
+    public final void setListener(TileListener listener) {
+        this.listener = listener;
+    }
+
     public final Point getPos() {
         return pos;
     }
 
+    public final int getIndex() {
+        return index;
+    }
+
+    /**
+     * Sets the index of this tile within its board. This should only be called while loading the
+     * board.
+     *
+     * @param index the index of this tile (non-negative)
+     * @throws IllegalArgumentException if {@code index < 0}
+     */
+    public final void setIndex(int index) {
+        if (index < 0) {
+            throw new IllegalArgumentException("Index must be non-negative");
+        }
+        this.index = index;
+    }
+
+    /**
+     * Sets the topology of the board this tile is on. This should only be called while loading the
+     * board, after {@link #setIndex} is called.
+     *
+     * @param topology the topology (non-null)
+     * @throws NullPointerException if {@code topology == null}
+     */
+    public final void setTopology(BoardTopology topology) {
+        Objects.requireNonNull(topology);
+        this.topology = topology;
+    }
+
     public final Point getScreenPos() {
         return screenPos;
     }
@@ -97,7 +150,11 @@ public class Tile {
     }
 
     public void setOwner(Player owner) {
+        beforeChange();
         this.owner = owner;
+        if (listener != null) {
+            listener.onOwnerChange(this);
+        }
     }
 
     public final int getBackgroundColor() {
@@ -105,7 +162,11 @@ public class Tile {
     }
 
     public final void setBackgroundColor(int backgroundColor) {
+        beforeChange();
         this.backgroundColor = backgroundColor;
+        if (listener != null) {
+            listener.onColorChange(this);
+        }
     }
 
     public final int getOutlineColor() {
@@ -113,7 +174,11 @@ public class Tile {
     }
 
     public final void setOutlineColor(int outlineColor) {
+        beforeChange();
         this.outlineColor = outlineColor;
+        if (listener != null) {
+            listener.onColorChange(this);
+        }
     }
 
     public final Unit getUnit() {
@@ -121,12 +186,16 @@ public class Tile {
     }
 
     public final void setUnit(Unit unit) {
+        beforeChange();
         this.unit = unit;
         if (unitCanGrabFlag()) {
             unit.grabFlag(flag);
             setFlag(null);
         }
         onUnitChange();
+        if (listener != null) {
+            listener.onUnitChange(this);
+        }
     }
 
     public final boolean hasUnit() {
@@ -138,7 +207,11 @@ public class Tile {
     }
 
     public final void setFlag(Flag flag) {
+        beforeChange();
         this.flag = flag;
+        if (listener != null) {
+            listener.onFlagChange(this);
+        }
     }
 
     private boolean unitCanGrabFlag() {
@@ -170,12 +243,16 @@ public class Tile {
     }
 
     /**
-     * Convenice method for {@link #distanceTo(Point)}.
+     * Gets the distance between this tile and another tile. If both tiles are on the same board,
+     * this is looked up in the board's {@link BoardTopology}.
      *
      * @param tile the other tile
      * @return {@code distanceTo(tile.getPos()}
      */
     public final int distanceTo(Tile tile) {
+        if (topology != null && topology == tile.topology) {
+            return topology.distance(index, tile.index);
+        }
         return distanceTo(tile.getPos());
     }
 
@@ -189,6 +266,9 @@ public class Tile {
      */
     public boolean isAdjacentTo(Tile tile) {
         Objects.requireNonNull(tile);
+        if (topology != null && topology == tile.topology) {
+            return topology.isAdjacent(index, tile.index);
+        }
         return distanceTo(tile) == 1;
     }
 
@@ -200,7 +280,21 @@ public class Tile {
      * @return true if this tile contains p, false otherwise
      */
     public final boolean contains(Point p) {
-        return getCenterPos().distanceTo(p) <= Constants.TILE_RADIUS;
+        return contains(p.getX(), p.getY());
+    }
+
+    /**
+     * Does this tile contain the point (x, y)? The point is in screen-space, not in tile-space.
+     *
+     * @param x the x of the point
+     * @param y the y of the point
+     * @return true if this tile contains the point, false otherwise
+     * @see #contains(Point)
+     */
+    public final boolean contains(int x, int y) {
+        final int xDiff = x - (screenPos.getX() + Constants.TILE_WIDTH / 2);
+        final int yDiff = y - (screenPos.getY() + Constants.TILE_HEIGHT / 2);
+        return xDiff * xDiff + yDiff * yDiff <= Constants.TILE_RADIUS * Constants.TILE_RADIUS;
     }
 
     /**
@@ -234,7 +328,16 @@ public class Tile {
      */
     public boolean isMoveable(Unit mover) {
         Objects.requireNonNull(mover);
-        return !hasUnit();
+        return isPassable() && !hasUnit();
+    }
+
+    /**
+     * Can units ever move onto this tile? If not, this tile is never moveable, even if it's empty.
+     *
+     * @return true if units can move onto this tile, false otherwise
+     */
+    public boolean isPassable() {
+        return true;
     }
 
     /**
@@ -250,16 +353,66 @@ public class Tile {
         return hasUnit() && unit.getOwner() != attacker.getOwner();
     }
 
+    /**
+     * Removes the given amount of moves from {@link #unit}.
+     *
+     * @param distance the amount of moves to use (non-negative)
+     * @see Unit#useMoves
+     */
+    public final void useUnitMoves(int distance) {
+        beforeChange();
+        unit.useMoves(distance);
+        onUnitMovesChange();
+    }
+
+    /**
+     * Uses up the rest of the moves of {@link #unit}.
+     *
+     * @see Unit#exhaustMoves
+     */
+    public final void exhaustUnitMoves() {
+        beforeChange();
+        unit.exhaustMoves();
+        onUnitMovesChange();
+    }
+
+    /**
+     * Resets the moves of {@link #unit}.
+     *
+     * @see Unit#resetMoves
+     */
+    public final void resetUnitMoves() {
+        beforeChange();
+        unit.resetMoves();
+        onUnitMovesChange();
+    }
+
+    private void beforeChange() {
+        if (listener != null) {
+            listener.beforeTileChange(this);
+        }
+    }
+
+    private void onUnitMovesChange() {
+        if (listener != null) {
+            listener.onUnitMovesChange(this);
+        }
+    }
+
     /**
      * Inflicts the given specified amount of damage to {@link #unit}.
      *
      * @param damage the amount of damage to inflict (non-negative)
      */
     public void hurtUnit(int damage) {
+        beforeChange();
         unit.inflictDamage(damage);
         if (unit.isDead()) {
             killUnit();
         }
+        if (listener != null) {
+            listener.onUnitChange(this);
+        }
     }
 
     private void killUnit() {
@@ -270,6 +423,43 @@ public class Tile {
         unit = null;
     }
 
+    /**
+     * Puts this tile back into a state that was recorded earlier. Unlike the setters, this doesn't
+     * run any game logic (such as picking up flags or claiming adjacent tiles); it only tells the
+     * listener about what changed. This is only meant to be used when undoing an action.
+     *
+     * @param unit            the unit on this tile, or {@code null} for no unit
+     * @param flag            the flag on this tile, or {@code null} for no flag
+     * @param owner           the owner of this tile, or {@code null} for no owner
+     * @param backgroundColor the background color of this tile
+     * @param outlineColor    the outline color of this tile
+     */
+    public final void restore(Unit unit, Flag flag, Player owner, int backgroundColor,
+                              int outlineColor) {
+        final boolean ownerChanged = this.owner != owner;
+        final boolean flagChanged = this.flag != flag;
+        final boolean colorChanged = this.backgroundColor != backgroundColor
+                                     || this.outlineColor != outlineColor;
+        this.unit = unit;
+        this.flag = flag;
+        this.owner = owner;
+        this.backgroundColor = backgroundColor;
+        this.outlineColor = outlineColor;
+        if (listener != null) {
+            // The unit itself may have been restored too, so always treat it as changed
+            listener.onUnitChange(this);
+            if (ownerChanged) {
+                listener.onOwnerChange(this);
+            }
+            if (flagChanged) {
+                listener.onFlagChange(this);
+            }
+            if (colorChanged) {
+                listener.onColorChange(this);
+            }
+        }
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) {
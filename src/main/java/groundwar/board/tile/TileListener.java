@@ -0,0 +1,57 @@
+package groundwar.board.tile;
+
+/**
+ * Listens for changes to the tiles of a board. A tile has at most one listener, which is usually
+ * set by the board that holds it.
+ */
+public interface TileListener {
+
+    /**
+     * Called <i>directly before</i> anything about the given tile, or the unit on it, changes.
+     * This may be called more than once for the same change.
+     *
+     * @param tile the tile that is about to change
+     */
+    default void beforeTileChange(Tile tile) {
+    }
+
+    /**
+     * Called <i>directly after</i> the unit on the given tile changes, or is hurt.
+     *
+     * @param tile the tile that changed
+     */
+    default void onUnitChange(Tile tile) {
+    }
+
+    /**
+     * Called <i>directly after</i> the unit on the given tile uses moves or has its moves reset.
+     *
+     * @param tile the tile that changed
+     */
+    default void onUnitMovesChange(Tile tile) {
+    }
+
+    /**
+     * Called <i>directly after</i> the owner of the given tile changes.
+     *
+     * @param tile the tile that changed
+     */
+    default void onOwnerChange(Tile tile) {
+    }
+
+    /**
+     * Called <i>directly after</i> the flag on the given tile changes.
+     *
+     * @param tile the tile that changed
+     */
+    default void onFlagChange(Tile tile) {
+    }
+
+    /**
+     * Called <i>directly after</i> the background or outline color of the given tile changes.
+     *
+     * @param tile the tile that changed
+     */
+    default void onColorChange(Tile tile) {
+    }
+}
@@ -2,16 +2,13 @@ package groundwar.board.unit;
 
 import java.util.Objects;
 
-import groundwar.GroundWar;
 import groundwar.board.Flag;
 import groundwar.board.Player;
-import groundwar.render.ColorTexture;
 
 public abstract class Unit {
 
     private final UnitType type;
     private final Player owner;
-    private final ColorTexture texture;
     private int movesRemaining;
     private int health;
 
@@ -28,9 +25,11 @@ public abstract class Unit {
 
         this.type = type;
         this.owner = owner;
-        texture = new ColorTexture(type.textureName, owner.getInfo().primaryColor);
         health = type.maxHealth;
-        GroundWar.groundWar.getRenderer().loadTexture(type.textureName);
+    }
+
+    public final UnitType getType() {
+        return type;
     }
 
     public final UnitCategory getCategory() {
@@ -45,10 +44,6 @@ public abstract class Unit {
         return type.displayName;
     }
 
-    public final ColorTexture getSpawningTexture() {
-        return type.spawningTexture;
-    }
-
     public final int getCost() {
         return type.cost;
     }
@@ -73,10 +68,6 @@ public abstract class Unit {
         return owner;
     }
 
-    public final ColorTexture getTexture() {
-        return texture;
-    }
-
     public Flag getFlag() {
         return null;
     }
@@ -153,6 +144,27 @@ public abstract class Unit {
         movesRemaining = type.movesPerTurn;
     }
 
+    /**
+     * Puts this unit back into a state that was recorded earlier. This is only meant to be used
+     * when undoing an action, and doesn't check that the state makes sense.
+     *
+     * @param health         the health of the unit
+     * @param movesRemaining the moves that the unit has left
+     * @param flag           the flag the unit is carrying, or {@code null} for no flag (must be
+     *                       {@code null} if this unit can't carry flags)
+     */
+    public final void restore(int health, int movesRemaining, Flag flag) {
+        this.health = health;
+        this.movesRemaining = movesRemaining;
+        if (getFlag() != flag) {
+            if (hasFlag()) {
+                dropFlag();
+            }
+            if (flag != null) {
+                grabFlag(flag);
+            }
+        }
+    }
 
     /**
      * Gets the strength of this unit relative to a unit of the given category, as a float.
@@ -0,0 +1,171 @@
+package groundwar.render;
+
+import org.lwjgl.opengl.GL11;
+import org.lwjgl.opengl.GL30;
+
+import java.nio.ByteBuffer;
+
+import groundwar.util.Constants;
+
+/**
+ * A picture of the whole screen, kept in a texture, for things that rarely change. Whatever is
+ * drawn between {@link #beginRedraw} and {@link #endRedraw()} goes into the texture instead of onto
+ * the screen, and {@link #draw()} then puts the whole picture on the screen with one quad, however
+ * much went into it.
+ *
+ * The texture is a framebuffer object the same size as the window, so the picture is exactly what
+ * would have been drawn straight to the screen, over the clear color. Parts of it can be redrawn
+ * without touching the rest, by giving {@link #beginRedraw(int, int, int, int)} the area that
+ * changed. Whenever {@link #isAvailable()} is false, everything should just be drawn to the
+ * screen as usual.
+ */
+public class CachedLayer {
+
+    private final SpriteBatch batch;
+    private boolean available = true;
+    private int framebuffer;
+    private int texture;
+    private int width;
+    private int height;
+
+    /**
+     * Whatever the picture is currently of, or {@code null} if it's of nothing.
+     */
+    private Object owner;
+
+    public CachedLayer(SpriteBatch batch) {
+        this.batch = batch;
+    }
+
+    /**
+     * Can the picture be drawn into and drawn right now? It can't if framebuffer objects aren't
+     * supported, or if the window is minimized.
+     *
+     * @return true if the picture can be used, false otherwise
+     */
+    public boolean isAvailable() {
+        return available && framebuffer != 0;
+    }
+
+    /**
+     * Makes sure that the picture is the given size. If it isn't, the picture is thrown away and
+     * made again, empty.
+     *
+     * @param width  the width of the window, in pixels
+     * @param height the height of the window, in pixels
+     */
+    void resize(int width, int height) {
+        if (!available || width == this.width && height == this.height) {
+            return;
+        }
+        delete();
+        this.width = width;
+        this.height = height;
+        if (width <= 0 || height <= 0) {
+            return; // Minimized, so there's nothing to draw into
+        }
+
+        texture = GL11.glGenTextures();
+        GL11.glBindTexture(GL11.GL_TEXTURE_2D, texture);
+        GL11.glTexParameteri(GL11.GL_TEXTURE_2D, GL11.GL_TEXTURE_MIN_FILTER, GL11.GL_NEAREST);
+        GL11.glTexParameteri(GL11.GL_TEXTURE_2D, GL11.GL_TEXTURE_MAG_FILTER, GL11.GL_NEAREST);
+        GL11.glTexImage2D(GL11.GL_TEXTURE_2D, 0, GL11.GL_RGBA8, width, height, 0, GL11.GL_RGBA,
+                          GL11.GL_UNSIGNED_BYTE, (ByteBuffer) null);
+
+        framebuffer = GL30.glGenFramebuffers();
+        GL30.glBindFramebuffer(GL30.GL_FRAMEBUFFER, framebuffer);
+        GL30.glFramebufferTexture2D(GL30.GL_FRAMEBUFFER, GL30.GL_COLOR_ATTACHMENT0,
+                                    GL11.GL_TEXTURE_2D, texture, 0);
+        final boolean complete =
+            GL30.glCheckFramebufferStatus(GL30.GL_FRAMEBUFFER) == GL30.GL_FRAMEBUFFER_COMPLETE;
+        GL30.glBindFramebuffer(GL30.GL_FRAMEBUFFER, 0);
+        if (!complete) {
+            System.err.println("Framebuffer objects aren't supported, drawing everything live");
+            delete();
+            available = false;
+        }
+    }
+
+    /**
+     * Makes the given object the owner of the picture, so that it knows whether what's in the
+     * picture is its own.
+     *
+     * @param owner the object that will draw into the picture
+     * @return true if the picture has to be redrawn completely, because it's empty or was drawn
+     * by something else, false if it's as the owner left it
+     */
+    public boolean claim(Object owner) {
+        final boolean stale = this.owner != owner;
+        this.owner = owner;
+        return stale;
+    }
+
+    /**
+     * Starts redrawing the whole picture. It's cleared to the clear color first.
+     */
+    public void beginRedraw() {
+        batch.flush();
+        GL30.glBindFramebuffer(GL30.GL_FRAMEBUFFER, framebuffer);
+        GL11.glClear(GL11.GL_COLOR_BUFFER_BIT);
+        GL11.glColorMask(true, true, true, false); // Keep the picture opaque
+    }
+
+    /**
+     * Starts redrawing the given part of the picture. That part is cleared to the clear color
+     * first, and nothing outside of it changes, no matter what's drawn.
+     *
+     * @param x      the x-location of the top-left of the part
+     * @param y      the y-location of the top-left of the part
+     * @param width  the width of the part
+     * @param height the height of the part
+     */
+    public void beginRedraw(int x, int y, int width, int height) {
+        batch.flush();
+        GL30.glBindFramebuffer(GL30.GL_FRAMEBUFFER, framebuffer);
+
+        // OpenGL measures from the bottom-left, in pixels
+        final int left = (int) Math.floor((double) x * this.width / Constants.RES_WIDTH);
+        final int right = (int) Math.ceil((double) (x + width) * this.width / Constants.RES_WIDTH);
+        final int top = (int) Math.floor((double) y * this.height / Constants.RES_HEIGHT);
+        final int bottom =
+            (int) Math.ceil((double) (y + height) * this.height / Constants.RES_HEIGHT);
+        GL11.glEnable(GL11.GL_SCISSOR_TEST);
+        GL11.glScissor(left, this.height - bottom, right - left, bottom - top);
+        GL11.glClear(GL11.GL_COLOR_BUFFER_BIT);
+        GL11.glColorMask(true, true, true, false);
+    }
+
+    /**
+     * Finishes redrawing, and goes back to drawing to the screen.
+     */
+    public void endRedraw() {
+        batch.flush();
+        GL11.glColorMask(true, true, true, true);
+        GL11.glDisable(GL11.GL_SCISSOR_TEST);
+        GL30.glBindFramebuffer(GL30.GL_FRAMEBUFFER, 0);
+    }
+
+    /**
+     * Draws the picture over the whole screen, in the batch's current layer.
+     */
+    public void draw() {
+        // Textures from framebuffers are upside-down
+        batch.draw(texture, 0, 0, Constants.RES_WIDTH, Constants.RES_HEIGHT, 0f, 1f, 1f, 0f,
+                   0xffffffff);
+    }
+
+    /**
+     * Deletes the picture. It's made again, empty, the next time the window size is set.
+     */
+    public void delete() {
+        if (framebuffer != 0) {
+            GL30.glDeleteFramebuffers(framebuffer);
+            GL11.glDeleteTextures(texture);
+        }
+        framebuffer = 0;
+        texture = 0;
+        width = 0;
+        height = 0;
+        owner = null;
+    }
+}
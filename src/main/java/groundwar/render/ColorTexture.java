@@ -13,6 +13,7 @@ public class ColorTexture {
     public static final ColorTexture attackable;
     public static final ColorTexture invalidSpawning;
     public static final ColorTexture validSpawning;
+    public static final ColorTexture hint;
 
     static {
         mouseOver = new ColorTexture(Constants.TILE_BG_NAME, Colors.MOUSE_OVER);
@@ -21,6 +22,7 @@ public class ColorTexture {
         attackable = new ColorTexture(Constants.TILE_OUTLINE_NAME, Colors.ATTACKABLE);
         invalidSpawning = new ColorTexture(Constants.TILE_BG_NAME, Colors.UNIT_SPAWNING_INVALID);
         validSpawning = new ColorTexture(Constants.TILE_BG_NAME, Colors.UNIT_SPAWNING_VALID);
+        hint = new ColorTexture(Constants.TILE_OUTLINE_NAME, Colors.HINT);
     }
 
     private final Texture texture;
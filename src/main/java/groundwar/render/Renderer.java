@@ -7,7 +7,18 @@ import org.lwjgl.opengl.GL12;
 import java.awt.FontFormatException;
 import java.awt.image.BufferedImage;
 import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.URL;
 import java.nio.ByteBuffer;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -23,9 +34,82 @@ public class Renderer {
     private final Map<String, Texture> textures = new HashMap<>();
     private final Map<Float, TrueTypeFont> fonts = new HashMap<>();
 
+    /**
+     * Everything is drawn through this batch, and only reaches the screen when it's flushed.
+     */
+    private final SpriteBatch batch = new SpriteBatch();
+
+    /**
+     * Holds every image in {@link Constants#TEXTURE_FOLDER}, so that they can all be drawn from
+     * one texture.
+     */
+    private final TextureAtlas atlas;
+
+    /**
+     * A picture of the parts of the screen that rarely change, such as the tiles of the board.
+     */
+    private final CachedLayer cachedLayer = new CachedLayer(batch);
 
     /**
-     * Loads the texture from the file with the given name and places it into the texture map.
+     * Constructs a new renderer, and packs all of the textures into the atlas. There must be a
+     * current OpenGL context.
+     */
+    public Renderer() {
+        atlas = new TextureAtlas(loadAllImages(), batch);
+        textures.putAll(atlas.getRegions());
+        batch.setWhiteRegion(atlas.getWhite());
+    }
+
+    /**
+     * Loads every image in {@link Constants#TEXTURE_FOLDER}, whether it's a folder on disk or a
+     * folder in the game's jar. Any image that can't be loaded is left out, and will be loaded by
+     * itself the first time it's drawn.
+     *
+     * @return the images, by texture name
+     */
+    private static Map<String, BufferedImage> loadAllImages() {
+        final Map<String, BufferedImage> images = new HashMap<>();
+        final URL folderURL = GroundWar.class.getResource(Constants.TEXTURE_FOLDER);
+        if (folderURL == null) {
+            System.err.println("Texture folder not found: " + Constants.TEXTURE_FOLDER);
+            return images;
+        }
+        try {
+            final URI folderURI = folderURL.toURI();
+            if ("jar".equals(folderURI.getScheme())) {
+                try (FileSystem jar = FileSystems.newFileSystem(folderURI,
+                                                                Collections.emptyMap())) {
+                    loadImages(jar.getPath(Constants.TEXTURE_FOLDER), images);
+                }
+            } else {
+                loadImages(Paths.get(folderURI), images);
+            }
+        } catch (IOException | URISyntaxException e) {
+            System.err.println("Error listing textures!");
+            e.printStackTrace();
+        }
+        return images;
+    }
+
+    private static void loadImages(Path folder, Map<String, BufferedImage> images)
+        throws IOException {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(folder, "*.png")) {
+            for (Path file : files) {
+                final String fileName = file.getFileName().toString();
+                final String name = fileName.substring(0, fileName.length() - ".png".length());
+                try (InputStream in = Files.newInputStream(file)) {
+                    images.put(name, ImageIO.read(in));
+                } catch (IOException e) {
+                    System.err.println("Error loading texture: " + name);
+                    e.printStackTrace();
+                }
+            }
+        }
+    }
+
+    /**
+     * Loads the texture from the file with the given name and places it into the texture map. The
+     * texture gets its own OpenGL texture, outside of the atlas.
      *
      * @param name the name of the file, which will be formatted into {@link Constants#TEXTURE_PATH}
      *             to create the file path
@@ -34,7 +118,7 @@ public class Renderer {
         try {
             BufferedImage image =
                 ImageIO.read(GroundWar.getResource(Constants.TEXTURE_PATH, name));
-            textures.put(name, new Texture(loadTextureFromImage(image)));
+            textures.put(name, new Texture(loadTextureFromImage(image), batch));
         } catch (IOException e) {
             System.err.println("Error loading texture: " + name);
             e.printStackTrace();
@@ -44,7 +128,7 @@ public class Renderer {
     /**
      * Written by Krythic (http://stackoverflow.com/users/3214889/krythic)
      */
-    private int loadTextureFromImage(BufferedImage image) {
+    static int loadTextureFromImage(BufferedImage image) {
         int[] pixels = new int[image.getWidth() * image.getHeight()];
         image.getRGB(0, 0, image.getWidth(), image.getHeight(), pixels, 0, image.getWidth());
         ByteBuffer buffer =
@@ -87,16 +171,74 @@ public class Renderer {
     }
 
     /**
-     * Deletes all loaded textures and fonts.
+     * Deletes all loaded textures and fonts, the atlas, the cached layer, and the batch.
      */
     public void deleteTexturesAndFonts() {
-        textures.values().forEach(Texture::delete);
+        textures.values().stream()
+            .filter(texture -> !atlas.isPage(texture.getTextureID()))
+            .forEach(Texture::delete);
+        atlas.delete();
+        cachedLayer.delete();
         fonts.values().forEach(TrueTypeFont::delete);
+        batch.delete();
+    }
+
+    public SpriteBatch getBatch() {
+        return batch;
+    }
+
+    public CachedLayer getCachedLayer() {
+        return cachedLayer;
+    }
+
+    /**
+     * Sets the size of the window, which everything is scaled to fit.
+     *
+     * @param width  the width of the window, in pixels
+     * @param height the height of the window, in pixels
+     */
+    public void resize(int width, int height) {
+        GL11.glViewport(0, 0, width, height);
+        cachedLayer.resize(width, height);
+    }
+
+    /**
+     * Draws everything that has been drawn since the last flush. This happens at the end of each
+     * frame, and whenever everything drawn so far must be underneath everything drawn next.
+     *
+     * @see SpriteBatch#flush()
+     */
+    public void flush() {
+        batch.flush();
+    }
+
+    /**
+     * Sets the layer of everything drawn from now until the next flush.
+     *
+     * @param layer the layer
+     * @see SpriteBatch#setLayer(int)
+     */
+    public void setLayer(int layer) {
+        batch.setLayer(layer);
+    }
+
+    /**
+     * Offsets everything drawn from now on by the given amount, until {@link #popTranslation()}.
+     *
+     * @param x the x offset
+     * @param y the y offset
+     */
+    public void pushTranslation(int x, int y) {
+        batch.pushTranslation(x, y);
+    }
+
+    public void popTranslation() {
+        batch.popTranslation();
     }
 
     public void loadFont(String name, float size) {
         try {
-            fonts.put(size, new TrueTypeFont(name, size));
+            fonts.put(size, new TrueTypeFont(name, size, batch));
         } catch (IOException | FontFormatException e) {
             System.err.println("Error creating font: " + name);
             e.printStackTrace();
@@ -115,18 +257,7 @@ public class Renderer {
     }
 
     public void drawRect(int x, int y, int width, int height, int color) {
-        GL11.glColor4f((color >> 16 & 0xff) / 255.0f, (color >> 8 & 0xff) / 255.0f,
-                       (color & 0xff) / 255.0f, (color >> 24 & 0xff) / 255.0f);
-
-        // Draw a rectangle
-        GL11.glBegin(GL11.GL_QUADS);
-        {
-            GL11.glVertex2f(x, y);
-            GL11.glVertex2f(x + width, y);
-            GL11.glVertex2f(x + width, y + height);
-            GL11.glVertex2f(x, y + height);
-        }
-        GL11.glEnd();
+        batch.drawRect(x, y, width, height, color);
     }
 
     /**
@@ -0,0 +1,163 @@
+package groundwar.render;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Packs rectangles into a fixed-size area with the bottom-left skyline algorithm. The top edge of
+ * everything packed so far is kept as a list of horizontal segments, the skyline. Each new
+ * rectangle goes wherever along the skyline its top edge would be lowest, ties going to the
+ * narrowest segment, so that the gaps left underneath it are small.
+ *
+ * "Bottom" here is the top of the area, since y goes down, like everywhere else in the game.
+ */
+class SkylinePacker {
+
+    private final int width;
+    private final int height;
+
+    /**
+     * The segments of the skyline, from left to right. Together they always cover the whole width.
+     */
+    private final List<Segment> skyline = new ArrayList<>();
+
+    private int usedWidth;
+    private int usedHeight;
+
+    /**
+     * Constructs a new, empty packer.
+     *
+     * @param width  the width of the area to pack into
+     * @param height the height of the area to pack into
+     */
+    SkylinePacker(int width, int height) {
+        this.width = width;
+        this.height = height;
+        skyline.add(new Segment(0, 0, width));
+    }
+
+    /**
+     * Finds a place for a rectangle of the given size, and marks that place as taken.
+     *
+     * @param rectWidth  the width of the rectangle
+     * @param rectHeight the height of the rectangle
+     * @return the x and y of the top-left of the rectangle, or null if there is no room for it
+     */
+    int[] insert(int rectWidth, int rectHeight) {
+        int bestIndex = -1;
+        int bestY = 0;
+        int bestTop = Integer.MAX_VALUE;
+        int bestSegmentWidth = Integer.MAX_VALUE;
+        for (int i = 0; i < skyline.size(); i++) {
+            final int y = fit(i, rectWidth, rectHeight);
+            if (y >= 0) {
+                final int top = y + rectHeight;
+                final int segmentWidth = skyline.get(i).width;
+                if (top < bestTop || top == bestTop && segmentWidth < bestSegmentWidth) {
+                    bestIndex = i;
+                    bestY = y;
+                    bestTop = top;
+                    bestSegmentWidth = segmentWidth;
+                }
+            }
+        }
+        if (bestIndex < 0) {
+            return null;
+        }
+
+        final int x = skyline.get(bestIndex).x;
+        addSegment(bestIndex, new Segment(x, bestTop, rectWidth));
+        usedWidth = Math.max(usedWidth, x + rectWidth);
+        usedHeight = Math.max(usedHeight, bestTop);
+        return new int[]{x, bestY};
+    }
+
+    /**
+     * Gets the y that a rectangle would have to be at if its left edge was at the start of the
+     * segment at the given index.
+     *
+     * @return the y, or -1 if the rectangle would not fit there
+     */
+    private int fit(int index, int rectWidth, int rectHeight) {
+        final int x = skyline.get(index).x;
+        if (x + rectWidth > width) {
+            return -1;
+        }
+        int y = 0;
+        int widthLeft = rectWidth;
+        for (int i = index; widthLeft > 0; i++) {
+            final Segment segment = skyline.get(i);
+            y = Math.max(y, segment.y);
+            if (y + rectHeight > height) {
+                return -1;
+            }
+            widthLeft -= segment.width;
+        }
+        return y;
+    }
+
+    /**
+     * Adds a segment to the skyline at the given index, and cuts away whatever part of the
+     * segments after it that it now covers.
+     */
+    private void addSegment(int index, Segment segment) {
+        skyline.add(index, segment);
+        final int right = segment.x + segment.width;
+        for (int i = index + 1; i < skyline.size(); ) {
+            final Segment next = skyline.get(i);
+            if (next.x >= right) {
+                break;
+            }
+            final int covered = right - next.x;
+            if (covered < next.width) {
+                next.x += covered;
+                next.width -= covered;
+                break;
+            }
+            skyline.remove(i);
+        }
+
+        // Join neighbouring segments at the same height
+        for (int i = 0; i < skyline.size() - 1; ) {
+            final Segment current = skyline.get(i);
+            final Segment next = skyline.get(i + 1);
+            if (current.y == next.y) {
+                current.width += next.width;
+                skyline.remove(i + 1);
+            } else {
+                i++;
+            }
+        }
+    }
+
+    /**
+     * Gets how far right anything has been packed.
+     *
+     * @return the x of the right edge of the right-most rectangle
+     */
+    int getUsedWidth() {
+        return usedWidth;
+    }
+
+    /**
+     * Gets how far down anything has been packed.
+     *
+     * @return the y of the bottom edge of the lowest rectangle
+     */
+    int getUsedHeight() {
+        return usedHeight;
+    }
+
+    private static class Segment {
+
+        private int x;
+        private final int y;
+        private int width;
+
+        private Segment(int x, int y, int width) {
+            this.x = x;
+            this.y = y;
+            this.width = width;
+        }
+    }
+}
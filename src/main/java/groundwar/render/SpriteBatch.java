@@ -0,0 +1,420 @@
+package groundwar.render;
+
+import org.lwjgl.BufferUtils;
+import org.lwjgl.opengl.GL11;
+import org.lwjgl.opengl.GL15;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.util.Arrays;
+
+/**
+ * Collects textured quads and draws them all at once, instead of one {@code glBegin}/{@code
+ * glEnd} per quad. Each quad is kept on the CPU until {@link #flush()}, which sorts the quads,
+ * copies them into one vertex buffer object, and draws each run of quads that share a texture with
+ * a single {@code glDrawArrays}. A frame of the board is then a handful of draw calls, rather than
+ * thousands of calls per frame into OpenGL.
+ *
+ * Quads are sorted by layer, then by texture, then by the order they were drawn in. Sorting by
+ * texture changes the order that quads in the same layer are drawn in, so anything that has to be
+ * drawn on top of something with another texture must be in a higher layer (see {@link
+ * #setLayer}). Quads with the same texture are always drawn in order.
+ *
+ * Instead of {@code glTranslatef}, positions are offset by the batch itself (see {@link
+ * #pushTranslation}), so that the offset is baked into each quad when it's drawn.
+ */
+public class SpriteBatch {
+
+    private static final int INITIAL_CAPACITY = 1024; // In quads
+    private static final int VERTICES_PER_QUAD = 4;
+
+    /**
+     * The size of one vertex in the buffer: x, y, u, v as floats, then the color as 4 bytes.
+     */
+    private static final int VERTEX_SIZE = 4 * Float.BYTES + 4;
+    private static final int INTS_PER_VERTEX = VERTEX_SIZE / Integer.BYTES;
+    private static final int INTS_PER_QUAD = VERTICES_PER_QUAD * INTS_PER_VERTEX;
+    private static final int QUAD_SIZE = VERTICES_PER_QUAD * VERTEX_SIZE;
+    private static final int TEXTURE_OFFSET = 2 * Float.BYTES;
+    private static final int COLOR_OFFSET = 4 * Float.BYTES;
+
+    private static final int SEQUENCE_BITS = 32;
+    private static final int TEXTURE_BITS = 20;
+    private static final int MAX_LAYER = (1 << (Long.SIZE - 1 - SEQUENCE_BITS - TEXTURE_BITS)) - 1;
+
+    private final int whiteTexture;
+    private final int vbo;
+
+    /**
+     * Where plain rectangles get their white from: a texture, and the texture coordinates of a
+     * white pixel in it.
+     */
+    private int rectTexture;
+    private float rectU = 0.5f;
+    private float rectV = 0.5f;
+
+    private ByteBuffer vertices;
+    private IntBuffer vertexInts;
+
+    /**
+     * The vertices of the quads drawn since the last flush, in the same layout as the buffer, with
+     * each float stored as its bits. The quads are copied from here into {@link #sorted} in the
+     * order they're drawn in, and from there into the buffer all at once.
+     */
+    private int[] quads = new int[INITIAL_CAPACITY * INTS_PER_QUAD];
+    private int[] sorted = new int[INITIAL_CAPACITY * INTS_PER_QUAD];
+    private int[] textures = new int[INITIAL_CAPACITY];
+    private long[] keys = new long[INITIAL_CAPACITY];
+    private int quadCount;
+
+    private int layer;
+    private float translateX;
+    private float translateY;
+    private float[] translations = new float[32];
+    private int translationDepth;
+
+    private int drawCalls;
+    private int flushedQuads;
+
+    /**
+     * Constructs a new batch. There must be a current OpenGL context.
+     */
+    public SpriteBatch() {
+        // A white pixel, so that plain rectangles are drawn the same way as textures
+        whiteTexture = GL11.glGenTextures();
+        GL11.glBindTexture(GL11.GL_TEXTURE_2D, whiteTexture);
+        final ByteBuffer white = BufferUtils.createByteBuffer(4);
+        white.put((byte) 0xff).put((byte) 0xff).put((byte) 0xff).put((byte) 0xff).flip();
+        GL11.glTexImage2D(GL11.GL_TEXTURE_2D, 0, GL11.GL_RGBA8, 1, 1, 0, GL11.GL_RGBA,
+                          GL11.GL_UNSIGNED_BYTE, white);
+        GL11.glTexParameteri(GL11.GL_TEXTURE_2D, GL11.GL_TEXTURE_MIN_FILTER, GL11.GL_NEAREST);
+        GL11.glTexParameteri(GL11.GL_TEXTURE_2D, GL11.GL_TEXTURE_MAG_FILTER, GL11.GL_NEAREST);
+        rectTexture = whiteTexture;
+
+        vbo = GL15.glGenBuffers();
+        allocateVertices(INITIAL_CAPACITY);
+    }
+
+    private void allocateVertices(int capacity) {
+        vertices = BufferUtils.createByteBuffer(capacity * QUAD_SIZE)
+            .order(ByteOrder.nativeOrder());
+        vertexInts = vertices.asIntBuffer();
+    }
+
+    /**
+     * Sets the layer of the quads drawn from now until the next flush. Quads in higher layers are
+     * drawn on top of quads in lower layers. The layer goes back to 0 after each flush.
+     *
+     * @param layer the layer (in [0, 2047])
+     * @throws IllegalArgumentException if the layer is out of range
+     */
+    public void setLayer(int layer) {
+        if (layer < 0 || layer > MAX_LAYER) {
+            throw new IllegalArgumentException("Layer out of range: " + layer);
+        }
+        this.layer = layer;
+    }
+
+    public int getLayer() {
+        return layer;
+    }
+
+    /**
+     * Offsets everything drawn from now on by the given amount, on top of the current offset,
+     * until {@link #popTranslation()} is called.
+     *
+     * @param x the x offset
+     * @param y the y offset
+     */
+    public void pushTranslation(float x, float y) {
+        if (translationDepth + 2 > translations.length) {
+            translations = Arrays.copyOf(translations, translations.length * 2);
+        }
+        translations[translationDepth++] = translateX;
+        translations[translationDepth++] = translateY;
+        translateX += x;
+        translateY += y;
+    }
+
+    /**
+     * Puts the offset back to what it was before the last call to {@link #pushTranslation}.
+     *
+     * @throws IllegalStateException if there is no translation to pop
+     */
+    public void popTranslation() {
+        if (translationDepth == 0) {
+            throw new IllegalStateException("No translation to pop");
+        }
+        translateY = translations[--translationDepth];
+        translateX = translations[--translationDepth];
+    }
+
+    /**
+     * Draws a rectangle in a plain color.
+     *
+     * @param x      the x-location of the top-left of the rectangle
+     * @param y      the y-location of the top-left of the rectangle
+     * @param width  the width of the rectangle
+     * @param height the height of the rectangle
+     * @param color  the color of the rectangle, in ARGB
+     */
+    public void drawRect(float x, float y, float width, float height, int color) {
+        draw(rectTexture, x, y, width, height, rectU, rectV, rectU, rectV, color);
+    }
+
+    /**
+     * Makes plain rectangles use the given white region, instead of the batch's own white texture.
+     * With the white region on the same page of a {@link TextureAtlas} as everything else,
+     * rectangles don't split up runs of textured quads, so fewer draw calls are needed.
+     *
+     * @param region a region that is all white
+     */
+    public void setWhiteRegion(Texture region) {
+        rectTexture = region.getTextureID();
+        rectU = (region.getU0() + region.getU1()) / 2f;
+        rectV = (region.getV0() + region.getV1()) / 2f;
+    }
+
+    /**
+     * Draws part of a texture.
+     *
+     * @param texture the OpenGL ID of the texture
+     * @param x       the x-location of the top-left of the quad
+     * @param y       the y-location of the top-left of the quad
+     * @param width   the width of the quad
+     * @param height  the height of the quad
+     * @param u0      the left texture coordinate
+     * @param v0      the top texture coordinate
+     * @param u1      the right texture coordinate
+     * @param v1      the bottom texture coordinate
+     * @param color   the color to multiply the texture by, in ARGB
+     */
+    public void draw(int texture, float x, float y, float width, float height,
+                     float u0, float v0, float u1, float v1, int color) {
+        if (quadCount == textures.length) {
+            grow();
+        }
+        final int left = Float.floatToRawIntBits(x + translateX);
+        final int top = Float.floatToRawIntBits(y + translateY);
+        final int right = Float.floatToRawIntBits(x + translateX + width);
+        final int bottom = Float.floatToRawIntBits(y + translateY + height);
+        final int uLeft = Float.floatToRawIntBits(u0);
+        final int vTop = Float.floatToRawIntBits(v0);
+        final int uRight = Float.floatToRawIntBits(u1);
+        final int vBottom = Float.floatToRawIntBits(v1);
+        final int vertexColor = toVertexColor(color);
+
+        int i = quadCount * INTS_PER_QUAD;
+        final int[] q = quads;
+        q[i++] = left;
+        q[i++] = top;
+        q[i++] = uLeft;
+        q[i++] = vTop;
+        q[i++] = vertexColor;
+        q[i++] = right;
+        q[i++] = top;
+        q[i++] = uRight;
+        q[i++] = vTop;
+        q[i++] = vertexColor;
+        q[i++] = right;
+        q[i++] = bottom;
+        q[i++] = uRight;
+        q[i++] = vBottom;
+        q[i++] = vertexColor;
+        q[i++] = left;
+        q[i++] = bottom;
+        q[i++] = uLeft;
+        q[i++] = vBottom;
+        q[i] = vertexColor;
+        textures[quadCount] = texture;
+        keys[quadCount] = getKey(texture, quadCount);
+        quadCount++;
+    }
+
+    /**
+     * Draws quads that were copied out of this batch earlier, with {@link #copyQuads}, in the
+     * current layer. The quads are moved so that the origin they were copied relative to ends up at
+     * the given position, offset like anything else drawn now, and they are all given the same
+     * color.
+     *
+     * @param texture  the OpenGL ID of the texture of the quads
+     * @param vertices the vertices of the quads
+     * @param x        the x-location to move the origin of the quads to
+     * @param y        the y-location to move the origin of the quads to
+     * @param color    the color to multiply the texture by, in ARGB
+     */
+    public void drawQuads(int texture, int[] vertices, float x, float y, int color) {
+        final int count = vertices.length / INTS_PER_QUAD;
+        while (quadCount + count > textures.length) {
+            grow();
+        }
+        final float offsetX = x + translateX;
+        final float offsetY = y + translateY;
+        final int vertexColor = toVertexColor(color);
+        final int[] q = quads;
+        int i = quadCount * INTS_PER_QUAD;
+        for (int v = 0; v < vertices.length; v += INTS_PER_VERTEX, i += INTS_PER_VERTEX) {
+            q[i] = Float.floatToRawIntBits(Float.intBitsToFloat(vertices[v]) + offsetX);
+            q[i + 1] = Float.floatToRawIntBits(Float.intBitsToFloat(vertices[v + 1]) + offsetY);
+            q[i + 2] = vertices[v + 2];
+            q[i + 3] = vertices[v + 3];
+            q[i + 4] = vertexColor;
+        }
+        for (int end = quadCount + count; quadCount < end; quadCount++) {
+            textures[quadCount] = texture;
+            keys[quadCount] = getKey(texture, quadCount);
+        }
+    }
+
+    /**
+     * Copies the vertices of quads that have been drawn since the last flush, so that they can be
+     * drawn again later with {@link #drawQuads}, without working them out again. The positions
+     * are copied relative to the given origin, so that the quads can be drawn anywhere.
+     *
+     * @param from    the index of the first quad to copy, in the order they were drawn (see
+     *                {@link #getQuadCount()})
+     * @param to      the index after the last quad to copy
+     * @param originX the x-location that the quads were drawn relative to
+     * @param originY the y-location that the quads were drawn relative to
+     * @return the vertices of the quads
+     */
+    public int[] copyQuads(int from, int to, float originX, float originY) {
+        final int[] copy = Arrays.copyOfRange(quads, from * INTS_PER_QUAD, to * INTS_PER_QUAD);
+        final float offsetX = originX + translateX;
+        final float offsetY = originY + translateY;
+        for (int v = 0; v < copy.length; v += INTS_PER_VERTEX) {
+            copy[v] = Float.floatToRawIntBits(Float.intBitsToFloat(copy[v]) - offsetX);
+            copy[v + 1] = Float.floatToRawIntBits(Float.intBitsToFloat(copy[v + 1]) - offsetY);
+        }
+        return copy;
+    }
+
+    /**
+     * Gets the amount of quads drawn since the last flush.
+     *
+     * @return the amount of quads
+     */
+    public int getQuadCount() {
+        return quadCount;
+    }
+
+    private long getKey(int texture, int sequence) {
+        return (long) layer << (SEQUENCE_BITS + TEXTURE_BITS)
+               | (long) (texture & ((1 << TEXTURE_BITS) - 1)) << SEQUENCE_BITS
+               | sequence;
+    }
+
+    /**
+     * Converts an ARGB color to the int that puts the bytes of the color in RGBA order, when it's
+     * written to a buffer in the native byte order.
+     */
+    private static int toVertexColor(int argb) {
+        final int rgba = argb << 8 | argb >>> 24;
+        return ByteOrder.nativeOrder() == ByteOrder.BIG_ENDIAN ? rgba : Integer.reverseBytes(rgba);
+    }
+
+    private void grow() {
+        final int capacity = textures.length * 2;
+        quads = Arrays.copyOf(quads, capacity * INTS_PER_QUAD);
+        sorted = new int[capacity * INTS_PER_QUAD];
+        textures = Arrays.copyOf(textures, capacity);
+        keys = Arrays.copyOf(keys, capacity);
+    }
+
+    /**
+     * Draws everything drawn since the last flush, and empties the batch. Blending and textures
+     * are turned on while drawing, and off again afterwards.
+     */
+    public void flush() {
+        layer = 0;
+        if (quadCount == 0) {
+            return;
+        }
+
+        // The sequence numbers are unique, so this puts the quads in a stable order
+        Arrays.sort(keys, 0, quadCount);
+        for (int q = 0; q < quadCount; q++) {
+            System.arraycopy(quads, (int) keys[q] * INTS_PER_QUAD, sorted, q * INTS_PER_QUAD,
+                             INTS_PER_QUAD);
+        }
+        if (vertices.capacity() < quadCount * QUAD_SIZE) {
+            allocateVertices(textures.length);
+        }
+        vertexInts.clear();
+        vertexInts.put(sorted, 0, quadCount * INTS_PER_QUAD);
+        vertices.clear();
+        vertices.limit(quadCount * QUAD_SIZE);
+
+        GL15.glBindBuffer(GL15.GL_ARRAY_BUFFER, vbo);
+        // Give the old contents back to the driver, so it doesn't wait for the last frame's draws
+        GL15.glBufferData(GL15.GL_ARRAY_BUFFER, vertices.capacity(), GL15.GL_STREAM_DRAW);
+        GL15.glBufferSubData(GL15.GL_ARRAY_BUFFER, 0, vertices);
+
+        GL11.glEnable(GL11.GL_BLEND);
+        GL11.glEnable(GL11.GL_TEXTURE_2D);
+        GL11.glEnableClientState(GL11.GL_VERTEX_ARRAY);
+        GL11.glEnableClientState(GL11.GL_TEXTURE_COORD_ARRAY);
+        GL11.glEnableClientState(GL11.GL_COLOR_ARRAY);
+        GL11.glVertexPointer(2, GL11.GL_FLOAT, VERTEX_SIZE, 0L);
+        GL11.glTexCoordPointer(2, GL11.GL_FLOAT, VERTEX_SIZE, TEXTURE_OFFSET);
+        GL11.glColorPointer(4, GL11.GL_UNSIGNED_BYTE, VERTEX_SIZE, COLOR_OFFSET);
+
+        // Draw each run of quads with the same texture at once
+        int start = 0;
+        while (start < quadCount) {
+            final int texture = textures[(int) keys[start]];
+            int end = start + 1;
+            while (end < quadCount && textures[(int) keys[end]] == texture) {
+                end++;
+            }
+            GL11.glBindTexture(GL11.GL_TEXTURE_2D, texture);
+            GL11.glDrawArrays(GL11.GL_QUADS, start * VERTICES_PER_QUAD,
+                              (end - start) * VERTICES_PER_QUAD);
+            drawCalls++;
+            start = end;
+        }
+
+        GL11.glDisableClientState(GL11.GL_COLOR_ARRAY);
+        GL11.glDisableClientState(GL11.GL_TEXTURE_COORD_ARRAY);
+        GL11.glDisableClientState(GL11.GL_VERTEX_ARRAY);
+        GL11.glDisable(GL11.GL_TEXTURE_2D);
+        GL11.glDisable(GL11.GL_BLEND);
+        GL15.glBindBuffer(GL15.GL_ARRAY_BUFFER, 0);
+
+        flushedQuads += quadCount;
+        quadCount = 0;
+    }
+
+    /**
+     * Gets the amount of draw calls made since the stats were last reset.
+     *
+     * @return the amount of draw calls
+     */
+    public int getDrawCalls() {
+        return drawCalls;
+    }
+
+    /**
+     * Gets the amount of quads drawn since the stats were last reset.
+     *
+     * @return the amount of quads
+     */
+    public int getFlushedQuads() {
+        return flushedQuads;
+    }
+
+    public void resetStats() {
+        drawCalls = 0;
+        flushedQuads = 0;
+    }
+
+    /**
+     * Deletes the buffer and texture owned by this batch. Anything not flushed is thrown away.
+     */
+    public void delete() {
+        quadCount = 0;
+        GL15.glDeleteBuffers(vbo);
+        GL11.glDeleteTextures(whiteTexture);
+    }
+}
@@ -0,0 +1,204 @@
+package groundwar.render;
+
+import org.lwjgl.glfw.GLFW;
+import org.lwjgl.opengl.GL;
+import org.lwjgl.opengl.GL11;
+import org.lwjgl.system.MemoryUtil;
+
+import groundwar.board.unit.UnitType;
+import groundwar.util.Colors;
+import groundwar.util.Constants;
+
+/**
+ * Compares drawing a big board through the {@link SpriteBatch} with drawing it the way it was
+ * drawn before, with a {@code glBegin}/{@code glEnd} and a {@code glPushMatrix}/{@code
+ * glTranslatef} for every quad. Each tile of the scene has a background, an outline and a unit,
+ * and every fourth tile also has a health bar, like the tiles of a real game. The scene is drawn
+ * into a hidden window, and {@code glFinish} is called after each frame, so the times include the
+ * work done by the driver. The mean, best and worst frame times are printed for each way, along
+ * with the renderer and OpenGL version, since the times depend a lot on them.
+ *
+ * This needs a display that OpenGL can draw on: without one, GLFW can't make even a hidden window,
+ * and nothing is timed.
+ *
+ * Arguments, all optional: the amount of tiles (default 10000), and the amount of frames to time
+ * each way (default 100).
+ */
+public class SpriteBatchBenchmark {
+
+    private static final int WARMUP_FRAMES = 10;
+    private static final int TILE_SIZE = 40;
+    private static final int HEALTH_BAR_HEIGHT = 4;
+
+    private static int tileCount;
+    private static int columns;
+    private static Renderer renderer;
+    private static Texture[] tileTextures;
+
+    public static void main(String[] args) {
+        tileCount = args.length > 0 ? Integer.parseInt(args[0]) : 10000;
+        final int frames = args.length > 1 ? Integer.parseInt(args[1]) : 100;
+        columns = (int) Math.ceil(Math.sqrt(tileCount));
+
+        if (!GLFW.glfwInit()) {
+            throw new IllegalStateException("Failed to initialize GLFW");
+        }
+        GLFW.glfwWindowHint(GLFW.GLFW_VISIBLE, GLFW.GLFW_FALSE);
+        final long window = GLFW.glfwCreateWindow(1280, 720, "Sprite batch benchmark",
+                                                  MemoryUtil.NULL, MemoryUtil.NULL);
+        if (window == MemoryUtil.NULL) {
+            GLFW.glfwTerminate();
+            throw new IllegalStateException(
+                "Failed to create the GLFW window; this benchmark needs a display with OpenGL");
+        }
+        try {
+            GLFW.glfwMakeContextCurrent(window);
+            GLFW.glfwSwapInterval(0); // Don't wait for the screen
+            GL.createCapabilities();
+            GL11.glOrtho(0, Constants.RES_WIDTH, Constants.RES_HEIGHT, 0, -1, 1);
+            GL11.glBlendFunc(GL11.GL_SRC_ALPHA, GL11.GL_ONE_MINUS_SRC_ALPHA);
+
+            renderer = new Renderer();
+            final String[] names = {Constants.TILE_BG_NAME, Constants.TILE_OUTLINE_NAME,
+                                    UnitType.MARINES.textureName, UnitType.TANK.textureName};
+            tileTextures = new Texture[names.length];
+            for (int i = 0; i < names.length; i++) {
+                tileTextures[i] = renderer.getTexture(names[i]);
+            }
+
+            final long[] immediate = time(frames, false);
+            final long[] batched = time(frames, true);
+            final SpriteBatch batch = renderer.getBatch();
+            System.out.printf("%s, OpenGL %s%n", GL11.glGetString(GL11.GL_RENDERER),
+                              GL11.glGetString(GL11.GL_VERSION));
+            System.out.printf("%d tiles, %d frames each%n", tileCount, frames);
+            printTimes("Immediate mode:", immediate);
+            printTimes("Batched:       ", batched);
+            System.out.printf("Batched is %.1fx faster on average, %d quads in %d draw calls per "
+                              + "frame%n", mean(immediate) / mean(batched),
+                              batch.getFlushedQuads() / frames, batch.getDrawCalls() / frames);
+            renderer.deleteTexturesAndFonts();
+        } finally {
+            GLFW.glfwDestroyWindow(window);
+            GLFW.glfwTerminate();
+        }
+    }
+
+    /**
+     * Draws the scene the given amount of times, after warming up.
+     *
+     * @return the time of each frame, in nanoseconds
+     */
+    private static long[] time(int frames, boolean batched) {
+        for (int i = 0; i < WARMUP_FRAMES; i++) {
+            drawFrame(batched);
+        }
+        renderer.getBatch().resetStats();
+        final long[] times = new long[frames];
+        for (int i = 0; i < frames; i++) {
+            final long start = System.nanoTime();
+            drawFrame(batched);
+            times[i] = System.nanoTime() - start;
+        }
+        return times;
+    }
+
+    private static void printTimes(String label, long[] times) {
+        long best = Long.MAX_VALUE;
+        long worst = 0L;
+        for (long time : times) {
+            best = Math.min(best, time);
+            worst = Math.max(worst, time);
+        }
+        System.out.printf("%s %.3f ms per frame (best %.3f ms, worst %.3f ms)%n", label,
+                          mean(times), best / 1e6, worst / 1e6);
+    }
+
+    /**
+     * Gets the mean of the given frame times, in milliseconds.
+     */
+    private static double mean(long[] times) {
+        long total = 0L;
+        for (long time : times) {
+            total += time;
+        }
+        return total / 1e6 / times.length;
+    }
+
+    private static void drawFrame(boolean batched) {
+        GL11.glClear(GL11.GL_COLOR_BUFFER_BIT);
+        final SpriteBatch batch = renderer.getBatch();
+        if (!batched) {
+            GL11.glEnable(GL11.GL_BLEND);
+            GL11.glEnable(GL11.GL_TEXTURE_2D);
+        }
+        for (int i = 0; i < tileCount; i++) {
+            final int x = i % columns * TILE_SIZE;
+            final int y = i / columns * TILE_SIZE;
+            final Texture unit = tileTextures[2 + i % 2];
+            final int owner = i % 3 == 0 ? Colors.ORANGE : Colors.BLUE;
+            if (batched) {
+                batch.pushTranslation(x, y);
+                batch.setLayer(0);
+                tileTextures[0].draw(0, 0, TILE_SIZE, TILE_SIZE, Colors.TILE_BG);
+                batch.setLayer(1);
+                tileTextures[1].draw(0, 0, TILE_SIZE, TILE_SIZE, Colors.TILE_OUTLINE);
+                batch.setLayer(2);
+                unit.draw(0, 0, TILE_SIZE, TILE_SIZE, owner);
+                if (i % 4 == 0) {
+                    batch.setLayer(3);
+                    batch.drawRect(0, 0, TILE_SIZE, HEALTH_BAR_HEIGHT, Colors.HEALTH_BAR_POS);
+                }
+                batch.popTranslation();
+            } else {
+                GL11.glPushMatrix();
+                GL11.glTranslatef(x, y, 0f);
+                drawImmediate(tileTextures[0], Colors.TILE_BG);
+                drawImmediate(tileTextures[1], Colors.TILE_OUTLINE);
+                drawImmediate(unit, owner);
+                if (i % 4 == 0) {
+                    GL11.glDisable(GL11.GL_TEXTURE_2D);
+                    setColor(Colors.HEALTH_BAR_POS);
+                    GL11.glBegin(GL11.GL_QUADS);
+                    GL11.glVertex2f(0, 0);
+                    GL11.glVertex2f(TILE_SIZE, 0);
+                    GL11.glVertex2f(TILE_SIZE, HEALTH_BAR_HEIGHT);
+                    GL11.glVertex2f(0, HEALTH_BAR_HEIGHT);
+                    GL11.glEnd();
+                    GL11.glEnable(GL11.GL_TEXTURE_2D);
+                }
+                GL11.glPopMatrix();
+            }
+        }
+        if (batched) {
+            batch.flush();
+        } else {
+            GL11.glDisable(GL11.GL_TEXTURE_2D);
+            GL11.glDisable(GL11.GL_BLEND);
+        }
+        GL11.glFinish();
+    }
+
+    /**
+     * Draws one tile-sized quad the way {@link Texture} used to.
+     */
+    private static void drawImmediate(Texture texture, int color) {
+        setColor(color);
+        GL11.glBindTexture(GL11.GL_TEXTURE_2D, texture.getTextureID());
+        GL11.glBegin(GL11.GL_QUADS);
+        GL11.glTexCoord2f(texture.getU0(), texture.getV0());
+        GL11.glVertex2f(0, 0);
+        GL11.glTexCoord2f(texture.getU1(), texture.getV0());
+        GL11.glVertex2f(TILE_SIZE, 0);
+        GL11.glTexCoord2f(texture.getU1(), texture.getV1());
+        GL11.glVertex2f(TILE_SIZE, TILE_SIZE);
+        GL11.glTexCoord2f(texture.getU0(), texture.getV1());
+        GL11.glVertex2f(0, TILE_SIZE);
+        GL11.glEnd();
+    }
+
+    private static void setColor(int color) {
+        GL11.glColor4f((color >> 16 & 0xff) / 255.0f, (color >> 8 & 0xff) / 255.0f,
+                       (color & 0xff) / 255.0f, (color >> 24 & 0xff) / 255.0f);
+    }
+}
@@ -2,12 +2,66 @@ package groundwar.render;
 
 import org.lwjgl.opengl.GL11;
 
+/**
+ * An image that can be drawn. The image is either a whole OpenGL texture, or a region of one, such
+ * as an image in a {@link TextureAtlas}.
+ */
 public class Texture {
 
     private final int textureID;
+    private final SpriteBatch batch;
+    private final float u0;
+    private final float v0;
+    private final float u1;
+    private final float v1;
 
-    public Texture(int textureID) {
+    /**
+     * Constructs a texture that is the whole of the given OpenGL texture.
+     *
+     * @param textureID the ID of the OpenGL texture
+     * @param batch     the batch to draw through
+     */
+    public Texture(int textureID, SpriteBatch batch) {
+        this(textureID, batch, 0f, 0f, 1f, 1f);
+    }
+
+    /**
+     * Constructs a texture that is a region of the given OpenGL texture.
+     *
+     * @param textureID the ID of the OpenGL texture
+     * @param batch     the batch to draw through
+     * @param u0        the left edge of the region, in texture coordinates
+     * @param v0        the top edge of the region, in texture coordinates
+     * @param u1        the right edge of the region, in texture coordinates
+     * @param v1        the bottom edge of the region, in texture coordinates
+     */
+    public Texture(int textureID, SpriteBatch batch, float u0, float v0, float u1, float v1) {
         this.textureID = textureID;
+        this.batch = batch;
+        this.u0 = u0;
+        this.v0 = v0;
+        this.u1 = u1;
+        this.v1 = v1;
+    }
+
+    public int getTextureID() {
+        return textureID;
+    }
+
+    public float getU0() {
+        return u0;
+    }
+
+    public float getV0() {
+        return v0;
+    }
+
+    public float getU1() {
+        return u1;
+    }
+
+    public float getV1() {
+        return v1;
     }
 
     /**
@@ -20,29 +74,13 @@ public class Texture {
      * @param color  the color of the texture
      */
     public void draw(int x, int y, int width, int height, int color) {
-        // Set the color (aren't bitshifts cool?)
-        GL11.glColor4f((color >> 16 & 0xff) / 255.0f, (color >> 8 & 0xff) / 255.0f,
-                       (color & 0xff) / 255.0f, (color >> 24 & 0xff) / 255.0f);
-        GL11.glBindTexture(GL11.GL_TEXTURE_2D, textureID); // Bind the texture
-
-        // Draw a rectangle
-        GL11.glBegin(GL11.GL_QUADS);
-        {
-            GL11.glTexCoord2f(0, 0);
-            GL11.glVertex2f(x, y);
-
-            GL11.glTexCoord2f(1, 0);
-            GL11.glVertex2f(x + width, y);
-
-            GL11.glTexCoord2f(1, 1);
-            GL11.glVertex2f(x + width, y + height);
-
-            GL11.glTexCoord2f(0, 1);
-            GL11.glVertex2f(x, y + height);
-        }
-        GL11.glEnd();
+        batch.draw(textureID, x, y, width, height, u0, v0, u1, v1, color);
     }
 
+    /**
+     * Deletes the OpenGL texture. This shouldn't be called for a region of a {@link TextureAtlas},
+     * since the texture is shared with the rest of the atlas.
+     */
     public void delete() {
         GL11.glDeleteTextures(textureID);
     }
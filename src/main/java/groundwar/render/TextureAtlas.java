@@ -0,0 +1,243 @@
+package groundwar.render;
+
+import org.lwjgl.opengl.GL11;
+
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Packs many images into a few big textures, the pages, so that things drawn with different images
+ * can share one texture, and the {@link SpriteBatch} can draw them all with one draw call instead
+ * of one per image. Each image becomes a {@link Texture} that draws its own region of a page.
+ *
+ * Images are placed with a {@link SkylinePacker}, tallest first. Every image gets a border of
+ * {@link #PADDING} pixels, filled with copies of its edge pixels, so that sampling right at the
+ * edge of a region never picks up a pixel of the image next to it.
+ *
+ * The atlas also has a white pixel, so that plain rectangles can be drawn from the same page as
+ * everything else (see {@link SpriteBatch#setWhiteRegion}).
+ */
+public class TextureAtlas {
+
+    /**
+     * The size of the border around each image, in pixels.
+     */
+    public static final int PADDING = 1;
+
+    /**
+     * The smallest size of a page that is tried.
+     */
+    private static final int MIN_PAGE_SIZE = 256;
+
+    /**
+     * The largest size of a page, even if the graphics card could handle bigger textures.
+     */
+    private static final int MAX_PAGE_SIZE = 2048;
+
+    private final int[] pages;
+    private final Map<String, Texture> regions = new HashMap<>();
+    private final Texture white;
+
+    /**
+     * Packs the given images, and creates the pages. There must be a current OpenGL context. Any
+     * image that is too big to fit on a page by itself is left out.
+     *
+     * @param images the images to pack, by name
+     * @param batch  the batch that the textures draw through
+     */
+    public TextureAtlas(Map<String, BufferedImage> images, SpriteBatch batch) {
+        final int maxPageSize =
+            Math.min(MAX_PAGE_SIZE, GL11.glGetInteger(GL11.GL_MAX_TEXTURE_SIZE));
+
+        final BufferedImage whitePixel = new BufferedImage(1, 1, BufferedImage.TYPE_INT_ARGB);
+        whitePixel.setRGB(0, 0, 0xffffffff);
+        final List<Entry> entries = new ArrayList<>();
+        entries.add(new Entry(null, whitePixel));
+        images.forEach((name, image) -> entries.add(new Entry(name, image)));
+
+        // Tallest first packs tightest; the names keep the layout the same from run to run
+        entries.sort(Comparator.comparingInt((Entry entry) -> -entry.image.getHeight())
+                         .thenComparingInt(entry -> -entry.image.getWidth())
+                         .thenComparing(entry -> entry.name == null ? "" : entry.name));
+
+        // Use the smallest page that fits everything, or as many of the biggest pages as it takes
+        int pageSize = MIN_PAGE_SIZE;
+        List<SkylinePacker> packers = pack(entries, pageSize);
+        while ((packers.size() > 1 || entries.stream().anyMatch(entry -> entry.position == null))
+               && pageSize < maxPageSize) {
+            pageSize = Math.min(pageSize * 2, maxPageSize);
+            packers = pack(entries, pageSize);
+        }
+
+        // Each page only needs to be big enough for what's on it
+        final BufferedImage[] pageImages = new BufferedImage[packers.size()];
+        for (int i = 0; i < pageImages.length; i++) {
+            pageImages[i] = new BufferedImage(ceilPowerOfTwo(packers.get(i).getUsedWidth()),
+                                              ceilPowerOfTwo(packers.get(i).getUsedHeight()),
+                                              BufferedImage.TYPE_INT_ARGB);
+        }
+        for (Entry entry : entries) {
+            if (entry.position == null) {
+                System.err.println("Image too big for the texture atlas: " + entry.name);
+            } else {
+                copyPadded(entry.image, pageImages[entry.page], entry.position[0] + PADDING,
+                           entry.position[1] + PADDING);
+            }
+        }
+        pages = new int[pageImages.length];
+        for (int i = 0; i < pages.length; i++) {
+            pages[i] = Renderer.loadTextureFromImage(pageImages[i]);
+        }
+
+        Texture whiteRegion = null;
+        for (Entry entry : entries) {
+            if (entry.position != null) {
+                final BufferedImage page = pageImages[entry.page];
+                final float x = entry.position[0] + PADDING;
+                final float y = entry.position[1] + PADDING;
+                final Texture texture = new Texture(
+                    pages[entry.page], batch,
+                    x / page.getWidth(), y / page.getHeight(),
+                    (x + entry.image.getWidth()) / page.getWidth(),
+                    (y + entry.image.getHeight()) / page.getHeight());
+                if (entry.name == null) {
+                    whiteRegion = texture;
+                } else {
+                    regions.put(entry.name, texture);
+                }
+            }
+        }
+        white = whiteRegion;
+    }
+
+    /**
+     * Places each entry on a page of the given size, starting new pages as needed.
+     *
+     * @return the packers of the pages
+     */
+    private static List<SkylinePacker> pack(List<Entry> entries, int pageSize) {
+        final List<SkylinePacker> packers = new ArrayList<>();
+        for (Entry entry : entries) {
+            final int width = entry.image.getWidth() + 2 * PADDING;
+            final int height = entry.image.getHeight() + 2 * PADDING;
+            entry.position = null;
+            for (int page = 0; page < packers.size() && entry.position == null; page++) {
+                entry.position = packers.get(page).insert(width, height);
+                entry.page = page;
+            }
+            if (entry.position == null) {
+                // Start a new page
+                final SkylinePacker packer = new SkylinePacker(pageSize, pageSize);
+                entry.position = packer.insert(width, height);
+                entry.page = packers.size();
+                if (entry.position != null) {
+                    packers.add(packer);
+                }
+            }
+        }
+        return packers;
+    }
+
+    /**
+     * Draws the image into the page at the given position, then fills the border around it with
+     * copies of its edge pixels.
+     */
+    private static void copyPadded(BufferedImage image, BufferedImage page, int x, int y) {
+        final int width = image.getWidth();
+        final int height = image.getHeight();
+        final int[] pixels = image.getRGB(0, 0, width, height, null, 0, width);
+        page.setRGB(x, y, width, height, pixels, 0, width);
+
+        final int[] column = new int[height];
+        for (int i = 1; i <= PADDING; i++) {
+            page.setRGB(x, y - i, width, 1, pixels, 0, width); // Top
+            page.setRGB(x, y + height - 1 + i, width, 1, pixels, (height - 1) * width, width);
+            for (int row = 0; row < height; row++) {
+                column[row] = pixels[row * width];
+            }
+            page.setRGB(x - i, y, 1, height, column, 0, 1); // Left
+            for (int row = 0; row < height; row++) {
+                column[row] = pixels[row * width + width - 1];
+            }
+            page.setRGB(x + width - 1 + i, y, 1, height, column, 0, 1); // Right
+        }
+
+        // The corners get the corner pixels
+        for (int dy = 1; dy <= PADDING; dy++) {
+            for (int dx = 1; dx <= PADDING; dx++) {
+                page.setRGB(x - dx, y - dy, pixels[0]);
+                page.setRGB(x + width - 1 + dx, y - dy, pixels[width - 1]);
+                page.setRGB(x - dx, y + height - 1 + dy, pixels[(height - 1) * width]);
+                page.setRGB(x + width - 1 + dx, y + height - 1 + dy, pixels[height * width - 1]);
+            }
+        }
+    }
+
+    private static int ceilPowerOfTwo(int value) {
+        return value <= 1 ? 1 : Integer.highestOneBit(value - 1) << 1;
+    }
+
+    public boolean hasRegion(String name) {
+        return regions.containsKey(name);
+    }
+
+    /**
+     * Gets the textures for all of the images in this atlas.
+     *
+     * @return the textures, by image name (unmodifiable)
+     */
+    public Map<String, Texture> getRegions() {
+        return Collections.unmodifiableMap(regions);
+    }
+
+    /**
+     * Gets the region of the white pixel.
+     *
+     * @return the white pixel
+     */
+    public Texture getWhite() {
+        return white;
+    }
+
+    public int getPageCount() {
+        return pages.length;
+    }
+
+    /**
+     * Checks if the texture with the given ID is one of this atlas's pages.
+     *
+     * @param textureID the ID of the texture
+     * @return true if the texture is a page of this atlas, false otherwise
+     */
+    public boolean isPage(int textureID) {
+        return Arrays.stream(pages).anyMatch(page -> page == textureID);
+    }
+
+    /**
+     * Deletes all of the pages. None of the textures of this atlas can be drawn afterwards.
+     */
+    public void delete() {
+        for (int page : pages) {
+            GL11.glDeleteTextures(page);
+        }
+    }
+
+    private static class Entry {
+
+        private final String name;
+        private final BufferedImage image;
+        private int page;
+        private int[] position;
+
+        private Entry(String name, BufferedImage image) {
+            this.name = name;
+            this.image = image;
+        }
+    }
+}
@@ -16,7 +16,10 @@ import java.io.File;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 
 import groundwar.GroundWar;
@@ -32,6 +35,22 @@ public class TrueTypeFont {
         add(" $+-*/=%\"'#@&_(),.;:?!\\|<>[]§`^~");
     }};
 
+    /**
+     * The size of the glyph arrays, which is enough for every character in {@link #CHARS}.
+     */
+    private static final int GLYPH_COUNT =
+        CHARS.stream().flatMapToInt(String::chars).max().getAsInt() + 1;
+
+    /**
+     * The texture coordinate of a character that isn't in the font image.
+     */
+    private static final float NO_GLYPH = -1f;
+
+    /**
+     * The most pieces of text to keep the layout of, for each font.
+     */
+    private static final int LAYOUT_CACHE_SIZE = 256;
+
     private final Font font;
     private final FontMetrics fontMetrics;
     private final BufferedImage bufferedImage;
@@ -39,8 +58,40 @@ public class TrueTypeFont {
     private final int fontImageWidth;
     private final int fontImageHeight;
     private final float charHeight;
+    private final SpriteBatch batch;
+
+    /**
+     * The width and texture coordinates of each character, by character. Characters that aren't in
+     * the font image have a {@link #NO_GLYPH} left edge.
+     */
+    private final int[] glyphWidths = new int[GLYPH_COUNT];
+    private final float[] glyphU0 = new float[GLYPH_COUNT];
+    private final float[] glyphV0 = new float[GLYPH_COUNT];
+    private final float[] glyphU1 = new float[GLYPH_COUNT];
+    private final float[] glyphV1 = new float[GLYPH_COUNT];
+
+    /**
+     * The quads of recently drawn text, relative to the position the text is drawn at, so that
+     * text that is drawn the same way again is only laid out once, wherever it is drawn and in
+     * whatever color. The least recently drawn text is dropped first.
+     */
+    private final Map<LayoutKey, int[]> layouts =
+        new LinkedHashMap<LayoutKey, int[]>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<LayoutKey, int[]> eldest) {
+                return size() > LAYOUT_CACHE_SIZE;
+            }
+        };
+
+    /**
+     * Reused to look up layouts, so that drawing cached text doesn't create anything.
+     */
+    private final LayoutKey lookupKey = new LayoutKey();
+
+    public TrueTypeFont(String name, float size, SpriteBatch batch)
+        throws IOException, FontFormatException {
+        this.batch = batch;
 
-    public TrueTypeFont(String name, float size) throws IOException, FontFormatException {
         // Load the font from the file
         font = Font.createFont(Font.TRUETYPE_FONT, new File(GroundWar.getResource(
             Constants.FONT_PATH, name).getPath())).deriveFont(size);
@@ -75,37 +126,45 @@ public class TrueTypeFont {
 
         GL11.glTexParameteri(GL11.GL_TEXTURE_2D, GL11.GL_TEXTURE_MIN_FILTER, GL11.GL_LINEAR);
         GL11.glTexParameteri(GL11.GL_TEXTURE_2D, GL11.GL_TEXTURE_MAG_FILTER, GL11.GL_LINEAR);
-    }
 
-    private float getCharX(char c) {
-        final String s = Character.toString(c); // String containing just the character
-        // Find the string in CHARS that contains the character
-        final String originStr = CHARS.stream().filter(e -> e.contains(s)).findFirst().orElse(s);
-        return (float) fontMetrics
-            .getStringBounds(originStr.substring(0, originStr.indexOf(c)), null)
-            .getWidth();
+        buildGlyphTable();
     }
 
-    private float getCharY(char c) {
-        final String s = Character.toString(c); // String containing just the character
-        int lineId;
-        // Find the line containing c
-        for (lineId = 0; lineId < CHARS.size(); lineId++) {
-            if (CHARS.get(lineId).contains(s)) {
-                break;
+    /**
+     * Works out where each character is in the font image, and how wide it is, so that none of it
+     * has to be worked out again while drawing.
+     */
+    private void buildGlyphTable() {
+        Arrays.fill(glyphU0, NO_GLYPH);
+        for (int i = 0; i < glyphWidths.length; i++) {
+            glyphWidths[i] = fontMetrics.charWidth((char) i);
+        }
+        for (int line = 0; line < CHARS.size(); line++) {
+            final String chars = CHARS.get(line);
+            for (int i = 0; i < chars.length(); i++) {
+                final char c = chars.charAt(i);
+                final float x = (float) fontMetrics.getStringBounds(chars.substring(0, i), null)
+                    .getWidth();
+                glyphU0[c] = x / fontImageWidth;
+                glyphV0[c] = charHeight * line / fontImageHeight;
+                glyphU1[c] = (x + glyphWidths[c]) / fontImageWidth;
+                glyphV1[c] = charHeight * (line + 1) / fontImageHeight;
             }
         }
-        return charHeight * lineId;
     }
 
     private float getCharWidth(char c) {
-        return fontMetrics.charWidth(c);
+        return c < glyphWidths.length ? glyphWidths[c] : fontMetrics.charWidth(c);
     }
 
     public float getStringWidth(String s) {
+        return getStringWidth(s, 0, s.length());
+    }
+
+    private float getStringWidth(String s, int start, int end) {
         int width = 0;
-        for (char c : s.toCharArray()) {
-            width += getCharWidth(c);
+        for (int i = start; i < end; i++) {
+            width += getCharWidth(s.charAt(i));
         }
         return width;
     }
@@ -150,7 +209,9 @@ public class TrueTypeFont {
     }
 
     /**
-     * Draw the given text in this font.
+     * Draw the given text in this font. The quads for the text are kept, and if the same text is
+     * drawn with the same alignment again, they are copied into the batch, moved to the new
+     * position and given the new color. Text that follows the mouse is then only laid out once.
      *
      * @param text       the text to draw (non-null)
      * @param x          the x location to draw at
@@ -163,11 +224,39 @@ public class TrueTypeFont {
     public void draw(String text, int x, int y, int color,
                      HorizAlignment horizAlign, VertAlignment vertAlign) {
         Objects.requireNonNull(text);
-        // Set the color (aren't bitshifts cool?)
-        GL11.glColor4f((color >> 16 & 0xff) / 255.0f, (color >> 8 & 0xff) / 255.0f,
-                       (color & 0xff) / 255.0f, (color >> 24 & 0xff) / 255.0f);
-        GL11.glBindTexture(GL11.GL_TEXTURE_2D, fontTextureId);
-        String[] lines = text.split("\n");
+        lookupKey.set(text, horizAlign, vertAlign);
+        final int[] layout = layouts.get(lookupKey);
+        if (layout != null) {
+            batch.drawQuads(fontTextureId, layout, x, y, color);
+            return;
+        }
+
+        final int firstQuad = batch.getQuadCount();
+        layOut(text, x, y, color, horizAlign, vertAlign);
+        layouts.put(lookupKey.copy(), batch.copyQuads(firstQuad, batch.getQuadCount(), x, y));
+    }
+
+    /**
+     * Draws each character of the given text through the batch.
+     *
+     * @see #draw
+     */
+    private void layOut(String text, int x, int y, int color,
+                        HorizAlignment horizAlign, VertAlignment vertAlign) {
+        // Split into lines the way String.split does, which drops empty lines at the end
+        int textEnd = text.length();
+        int lineCount = 1;
+        if (text.indexOf('\n') >= 0) {
+            while (textEnd > 0 && text.charAt(textEnd - 1) == '\n') {
+                textEnd--;
+            }
+            lineCount = textEnd == 0 ? 0 : 1;
+            for (int i = 0; i < textEnd; i++) {
+                if (text.charAt(i) == '\n') {
+                    lineCount++;
+                }
+            }
+        }
 
         int xTmp = x;
         int yTmp = y;
@@ -175,49 +264,39 @@ public class TrueTypeFont {
         // Adjust y for vertical alignment
         switch (vertAlign) {
             case CENTER:
-                yTmp -= charHeight * lines.length / 2;
+                // Rounded the same way wherever the text is, so the layout can be moved
+                yTmp -= (int) Math.ceil(charHeight * lineCount / 2);
                 break;
             case BOTTOM:
-                yTmp -= charHeight * lines.length;
+                yTmp -= charHeight * lineCount;
                 break;
         }
 
-        GL11.glBegin(GL11.GL_QUADS);
-        for (String line : lines) {
+        int lineStart = 0;
+        for (int line = 0; line < lineCount; line++) {
+            int lineEnd = text.indexOf('\n', lineStart);
+            if (lineEnd < 0 || lineEnd > textEnd) {
+                lineEnd = textEnd;
+            }
+
             // Adjust x for horizontal alignment
             switch (horizAlign) {
                 case CENTER:
-                    xTmp = x - (int) getStringWidth(line) / 2;
+                    xTmp = x - (int) getStringWidth(text, lineStart, lineEnd) / 2;
                     break;
                 case RIGHT:
-                    xTmp = x - (int) getStringWidth(line);
+                    xTmp = x - (int) getStringWidth(text, lineStart, lineEnd);
                     break;
             }
 
             // Draw each character
-            for (char c : line.toCharArray()) {
+            for (int i = lineStart; i < lineEnd; i++) {
+                final char c = text.charAt(i);
                 final float width = getCharWidth(c);
-
-                final float cw = 1f / fontImageWidth * width; // Character width
-                final float ch = 1f / fontImageHeight * charHeight; // Character height
-                final float cx = 1f / fontImageWidth * getCharX(c); // Character x-pos in texture
-                final float cy = 1f / fontImageHeight * getCharY(c); // Character y-pos in texture
-
-                // Top-left corner
-                GL11.glTexCoord2f(cx, cy);
-                GL11.glVertex2f(xTmp, yTmp);
-
-                // Top-right corner
-                GL11.glTexCoord2f(cx + cw, cy);
-                GL11.glVertex2f(xTmp + width, yTmp);
-
-                // Bottom-right corner
-                GL11.glTexCoord2f(cx + cw, cy + ch);
-                GL11.glVertex2f(xTmp + width, yTmp + charHeight);
-
-                // Bottom-left corner
-                GL11.glTexCoord2f(cx, cy + ch);
-                GL11.glVertex2f(xTmp, yTmp + charHeight);
+                if (c < glyphU0.length && glyphU0[c] != NO_GLYPH) {
+                    batch.draw(fontTextureId, xTmp, yTmp, width, charHeight,
+                               glyphU0[c], glyphV0[c], glyphU1[c], glyphV1[c], color);
+                }
 
                 // Increase x for the next character
                 xTmp += width;
@@ -226,11 +305,57 @@ public class TrueTypeFont {
             // Reset x and increase y for the next line
             xTmp = x;
             yTmp += charHeight;
+            lineStart = lineEnd + 1;
         }
-        GL11.glEnd();
     }
 
     public void delete() {
         GL11.glDeleteTextures(fontTextureId);
     }
-}
\ No newline at end of file
+
+    /**
+     * Everything that decides where the quads of a piece of text end up, relative to the position
+     * it's drawn at. The size is the font's own.
+     */
+    private static class LayoutKey {
+
+        private String text;
+        private HorizAlignment horizAlign;
+        private VertAlignment vertAlign;
+
+        private void set(String text, HorizAlignment horizAlign, VertAlignment vertAlign) {
+            this.text = text;
+            this.horizAlign = horizAlign;
+            this.vertAlign = vertAlign;
+        }
+
+        private LayoutKey copy() {
+            final LayoutKey key = new LayoutKey();
+            key.set(text, horizAlign, vertAlign);
+            return key;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || !(o instanceof LayoutKey)) {
+                return false;
+            }
+
+            LayoutKey key = (LayoutKey) o;
+
+            return horizAlign == key.horizAlign && vertAlign == key.vertAlign
+                   && text.equals(key.text);
+        }
+
+        @Override
+        public int hashCode() {
+            int result = text.hashCode();
+            result = 31 * result + horizAlign.hashCode();
+            result = 31 * result + vertAlign.hashCode();
+            return result;
+        }
+    }
+}
@@ -1,17 +1,32 @@
 package groundwar.render.screen;
 
 import org.lwjgl.glfw.GLFW;
-import org.lwjgl.opengl.GL11;
-
-import java.util.Collection;
 
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import groundwar.ai.ComputerPlayer;
+import groundwar.ai.Evaluator;
+import groundwar.ai.HintAnalyzer;
+import groundwar.ai.MonteCarlo;
+import groundwar.ai.RaceTablebase;
+import groundwar.ai.TranspositionTable;
+import groundwar.board.Action;
 import groundwar.board.Board;
+import groundwar.board.BoardTopology;
+import groundwar.board.CombatOdds;
 import groundwar.board.Flag;
 import groundwar.board.Player;
 import groundwar.board.PlayerInfo;
 import groundwar.board.tile.Tile;
+import groundwar.board.tile.TileListener;
 import groundwar.board.unit.Unit;
 import groundwar.board.unit.UnitType;
+import groundwar.render.CachedLayer;
 import groundwar.render.ColorTexture;
 import groundwar.render.HorizAlignment;
 import groundwar.render.VertAlignment;
@@ -25,6 +40,38 @@ import groundwar.util.Point;
 public class BoardScreen extends MainScreen {
 
     private static final int TURN_COUNT_Y = 10;
+    private static final int THINKING_Y = 160;
+    private static final int RACE_Y = 220;
+
+    /**
+     * The layers that each part of the board is drawn in, from the bottom up. Each layer holds
+     * that part of every tile, so the whole board takes about one draw call per layer.
+     */
+    private static final int TILE_BG_LAYER = 0;
+    private static final int TILE_OUTLINE_LAYER = 1;
+    private static final int UNIT_LAYER = 2;
+    private static final int UNIT_INFO_LAYER = 3;
+    private static final int FLAG_LAYER = 4;
+    private static final int SELECTION_LAYER = 5;
+    private static final int SPAWNING_LAYER = 6;
+    private static final int MOUSE_OVER_LAYER = 7;
+    private static final int HINT_LAYER = 8;
+    private static final int HUD_LAYER = 9;
+
+    /**
+     * If more than one in this many tiles change color at once, the whole terrain is redrawn,
+     * rather than each changed tile.
+     */
+    private static final int FULL_REDRAW_FRACTION = 4;
+
+    private static final int SCORE_BAR_WIDTH = 800;
+    private static final int SCORE_BAR_HEIGHT = 20;
+    private static final int SCORE_BAR_Y = 125;
+
+    /**
+     * The evaluator score at which the score bar is about 73% full for the player ahead.
+     */
+    private static final float SCORE_BAR_SCALE = 1000f;
     private static final Point ORANGE_UI_POS = new Point(10, 10);
     private static final Point BLUE_UI_POS = new Point(3830, 10);
     private static final int UNIT_HEALTH_WIDTH = (int) (Constants.TILE_WIDTH * 0.6f);
@@ -37,12 +84,90 @@ public class BoardScreen extends MainScreen {
     private static final Point UNIT_INFO_POS = new Point(20, -10);
     private static final int UNIT_INFO_WIDTH = 370;
     private static final int UNIT_INFO_HEIGHT = 200;
+    private static final int UNIT_INFO_ODDS_HEIGHT = 400;
+
+    /**
+     * The position and alignment of the selected unit's info for each player, by ordinal.
+     */
+    private static final Point[] UNIT_SIDEBAR_POS = {new Point(10, 500),
+                                                     new Point(Constants.RES_WIDTH - 10, 500)};
+    private static final HorizAlignment[] UNIT_SIDEBAR_ALIGN = {HorizAlignment.LEFT,
+                                                                HorizAlignment.RIGHT};
 
     private final Board board;
+    private final Evaluator evaluator;
+
+    /**
+     * The flag race tablebases made for this board, which may be none.
+     */
+    private final List<RaceTablebase> tablebases;
     private final TextDisplay mouseOverUnitInfo;
 
+    /**
+     * The computer player controlling each player, by ordinal, or {@code null} for players
+     * controlled by people.
+     */
+    private final ComputerPlayer[] computers = new ComputerPlayer[PlayerInfo.values().length];
+
+    /**
+     * Suggests actions to people while they play, or {@code null} if hints are off.
+     */
+    private HintAnalyzer hints;
+
+    /**
+     * The action suggested for the current position, found once per frame, or {@link
+     * TranspositionTable#NO_ACTION} if there isn't one.
+     */
+    private int hintAction = TranspositionTable.NO_ACTION;
+
+    /**
+     * The texture of each unit type, colored for each player, and the texture of each unit type
+     * while it's being spawned. Textures are created the first time they're needed.
+     */
+    private final ColorTexture[][] unitTextures =
+        new ColorTexture[UnitType.values().length][PlayerInfo.values().length];
+    private final ColorTexture[] spawningTextures = new ColorTexture[UnitType.values().length];
+
+    /**
+     * The tile that the mouse was over during the last frame, and the mouse position it was found
+     * for. The tile is {@code null} if the mouse wasn't over a tile.
+     */
+    private Tile mouseOverTile;
+    private Point mouseOverPos;
+
+    /**
+     * The tiles whose colors have changed since the terrain was last drawn into the cached layer,
+     * and whether each tile is in that list, by index.
+     */
+    private final List<Tile> changedTiles = new ArrayList<>();
+    private final boolean[] tileChanged;
+
+    /**
+     * The indices of a changed tile and its neighbours, for redrawing them in the same order as a
+     * full redraw does.
+     */
+    private final int[] redrawIndices = new int[Constants.NUM_SIDES + 1];
+
+    /**
+     * True if the backgrounds and outlines of the tiles come from the cached layer this frame,
+     * false if they're drawn live with the rest of each tile.
+     */
+    private boolean terrainCached;
+
     public BoardScreen(Board board) {
         this.board = board;
+        evaluator = new Evaluator(board);
+        tablebases = RaceTablebase.loadAll(board);
+        tileChanged = new boolean[board.getTileGrid().size()];
+        board.addTileListener(new TileListener() {
+            @Override
+            public void onColorChange(Tile tile) {
+                if (!tileChanged[tile.getIndex()]) {
+                    tileChanged[tile.getIndex()] = true;
+                    changedTiles.add(tile);
+                }
+            }
+        });
         addGuiElement(mouseOverUnitInfo = new TextDisplay(null, new Point(), 0, 0,
                                                           HorizAlignment.LEFT,
                                                           VertAlignment.BOTTOM));
@@ -51,16 +176,55 @@ public class BoardScreen extends MainScreen {
 
     @Override
     public void draw(Point mousePos) {
-        GL11.glEnable(GL11.GL_BLEND);
-        GL11.glEnable(GL11.GL_TEXTURE_2D);
+        updateComputer();
+        updateHint();
+        drawBoard(mousePos);
 
-        final Collection<Tile> tiles = board.getTiles().values();
+        // If the game is over, go to the victory screen
+        if (board.isGameOver()) {
+            shutDownComputers();
+            setNextScreen(new VictoryScreen(board));
+        }
+    }
 
-        tiles.forEach(tile -> drawTile(tile, mousePos)); // Draw each tile
+    /**
+     * Draws the board and everything around it, without letting the computer players or hints do
+     * anything, so that it can be drawn behind the {@link PauseMenu}.
+     *
+     * @param mousePos the position of the mouse
+     */
+    void drawBoard(Point mousePos) {
+        // Find the tile under the mouse once, for the overlays, the unit info and clicks to share
+        mouseOverTile = board.getTileGrid().getTileAtScreenPos(mousePos);
+        mouseOverPos = mousePos;
+
+        // The terrain only changes now and then, so it's drawn from the cached layer if possible
+        final CachedLayer terrain = renderer().getCachedLayer();
+        terrainCached = terrain.isAvailable();
+        if (terrainCached) {
+            updateTerrain(terrain);
+            renderer().setLayer(TILE_BG_LAYER);
+            terrain.draw();
+        }
+        board.getTiles().values().forEach(this::drawTile); // Draw each tile
+        renderer().setLayer(HUD_LAYER);
 
         // Draw turn counter
         renderer().drawString(Constants.FONT_SIZE_UI, "Turn " + board.getTurnCount(),
                               center.getX(), TURN_COUNT_Y, HorizAlignment.CENTER);
+        drawScoreBar();
+        if (isComputerTurn()) {
+            renderer().drawString(Constants.FONT_SIZE_TILE, "Computer is thinking...",
+                                  center.getX(), THINKING_Y, HorizAlignment.CENTER);
+        } else if (hints != null) {
+            renderer().drawString(Constants.FONT_SIZE_TILE, getHintText(), center.getX(),
+                                  THINKING_Y, HorizAlignment.CENTER);
+        }
+        final String raceText = getRaceText();
+        if (raceText != null) {
+            renderer().drawString(Constants.FONT_SIZE_TILE, raceText, center.getX(), RACE_Y,
+                                  HorizAlignment.CENTER);
+        }
 
         // Draw the players' information
         drawPlayerInfo(board.getPlayer(PlayerInfo.ORANGE), ORANGE_UI_POS, HorizAlignment.LEFT);
@@ -72,70 +236,318 @@ public class BoardScreen extends MainScreen {
         }
 
         // Update mouseOverUnitInfo for the unit that the mouse is over
-        for (Tile tile : tiles) {
-            if (tile.contains(mousePos) && tile.hasUnit()) {
-                final Unit unit = tile.getUnit();
-                mouseOverUnitInfo.setText(unit.getInfoString());
-                mouseOverUnitInfo.setPos(mousePos.plus(UNIT_INFO_POS));
-                mouseOverUnitInfo.setWidth(UNIT_INFO_WIDTH);
-                mouseOverUnitInfo.setHeight(UNIT_INFO_HEIGHT);
-                mouseOverUnitInfo.setTextColor(unit.getOwner().getInfo().primaryColor);
-                mouseOverUnitInfo.setVisible(true);
-                break;
-            }
+        if (mouseOverTile != null && mouseOverTile.hasUnit()) {
+            final Unit unit = mouseOverTile.getUnit();
+            final String odds = getAttackOdds(mouseOverTile);
+            mouseOverUnitInfo.setText(odds == null ? unit.getInfoString()
+                                                   : unit.getInfoString() + '\n' + odds);
+            mouseOverUnitInfo.setPos(mousePos.plus(UNIT_INFO_POS));
+            mouseOverUnitInfo.setWidth(UNIT_INFO_WIDTH);
+            mouseOverUnitInfo.setHeight(odds == null ? UNIT_INFO_HEIGHT : UNIT_INFO_ODDS_HEIGHT);
+            mouseOverUnitInfo.setTextColor(unit.getOwner().getInfo().primaryColor);
+            mouseOverUnitInfo.setVisible(true);
         }
 
-        GL11.glDisable(GL11.GL_TEXTURE_2D);
-        GL11.glDisable(GL11.GL_BLEND);
-
         super.draw(mousePos); // Draw GUI elements
         mouseOverUnitInfo.setVisible(false); // Hide the unit info, to be updated on the next frame
+    }
 
-        // If the game is over, go to the victory screen
+    /**
+     * Shuts down the computer players and hints, along with their threads and tables. This must be
+     * called whenever this screen is left for good.
+     */
+    void shutDownComputers() {
+        for (int i = 0; i < computers.length; i++) {
+            if (computers[i] != null) {
+                computers[i].shutdown();
+                computers[i] = null;
+            }
+        }
+        if (hints != null) {
+            board.removeBoardListener(hints);
+            hints.shutdown();
+            hints = null;
+        }
+    }
+
+    /**
+     * Describes the odds of the selected unit attacking the unit on the given tile.
+     *
+     * @param tile the tile (must have a unit)
+     * @return the odds, or {@code null} if the selected unit can't attack the tile
+     */
+    private String getAttackOdds(Tile tile) {
+        if (!board.hasSelectedTile() || !board.getSelectedTile().hasUnit()
+            || !board.canSelectedAttack(tile)) {
+            return null;
+        }
+        final int index = CombatOdds.indexOf(board.getSelectedTile().getUnit().getType(),
+                                             tile.getUnit().getType(),
+                                             board.getSelectedTile().getUnit().getHealth(),
+                                             tile.getUnit().getHealth());
+        return String.format("Win: %.0f%%\nLose: %.0f%%\nBoth die: %.0f%%",
+                             CombatOdds.getProbability(index, CombatOdds.DEFENDER_DIES) * 100f,
+                             CombatOdds.getProbability(index, CombatOdds.ATTACKER_DIES) * 100f,
+                             CombatOdds.getProbability(index, CombatOdds.BOTH_DIE) * 100f);
+    }
+
+    /**
+     * Saves the record of this game, so that it can be replayed.
+     */
+    private void saveRecord() {
+        final Path path = Paths.get(String.format(Constants.RECORD_PATH,
+                                                  board.getRecord().getSeed()));
+        try {
+            board.getRecord().save(path);
+            System.out.println("Saved game record to " + path.toAbsolutePath());
+        } catch (IOException e) {
+            System.err.println("Error saving game record!");
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Is the current player controlled by a computer?
+     *
+     * @return true if it's a computer player's turn, false otherwise
+     */
+    private boolean isComputerTurn() {
+        return computers[board.getCurrentPlayer().getInfo().ordinal()] != null;
+    }
+
+    /**
+     * If it's a computer player's turn, applies its action if it has decided on one, or gets it
+     * thinking if it hasn't started yet.
+     */
+    private void updateComputer() {
+        final ComputerPlayer computer = computers[board.getCurrentPlayer().getInfo().ordinal()];
+        if (computer != null && !board.isGameOver()) {
+            final int action = computer.pollAction(board);
+            if (action != TranspositionTable.NO_ACTION) {
+                board.applyAction(action);
+                invalidate(); // The computer can start on its next action in the next frame
+            } else if (!computer.isThinking()) {
+                computer.startThinking(board);
+            }
+        }
+    }
+
+    /**
+     * If hints are on and it's a person's turn, makes sure the current position is being analyzed,
+     * and gets the current hint.
+     */
+    private void updateHint() {
+        hintAction = TranspositionTable.NO_ACTION;
+        if (hints != null) {
+            if (isComputerTurn() || board.isGameOver()) {
+                hints.cancel(); // Leave the processors to the computer
+            } else {
+                hints.analyze(board);
+                hintAction = hints.getHint(board);
+            }
+        }
+    }
+
+    /**
+     * Describes the current hint.
+     *
+     * @return the description
+     */
+    private String getHintText() {
+        if (hintAction == TranspositionTable.NO_ACTION) {
+            return "Looking for a hint...";
+        }
+        final String text;
+        switch (Action.getKind(hintAction)) {
+            case Action.END_TURN:
+                text = "Hint: end your turn";
+                break;
+            case Action.SPAWN:
+                text = "Hint: spawn " + Action.getUnitType(hintAction).displayName;
+                break;
+            case Action.MOVE:
+                text = "Hint: move";
+                break;
+            default:
+                text = "Hint: attack";
+                break;
+        }
+        return String.format("%s (search %d)", text, hints.getHintSearches(board));
+    }
+
+    /**
+     * Describes the perfect-play result of the current position, if it's a flag race that one of
+     * the tablebases covers.
+     *
+     * @return the description, or {@code null} if no tablebase covers the position
+     */
+    private String getRaceText() {
         if (board.isGameOver()) {
-            setNextScreen(new VictoryScreen(board));
+            return null;
+        }
+        for (RaceTablebase tablebase : tablebases) {
+            final int result = tablebase.probe(board);
+            if (result == RaceTablebase.NOT_COVERED) {
+                continue;
+            }
+            if (RaceTablebase.isDraw(result)) {
+                return "Flag race: drawn with best play";
+            }
+            final PlayerInfo racer = tablebase.getRacer();
+            String winner = racer.displayName + " gets the flag home";
+            if (!RaceTablebase.isRacerWin(result)) {
+                for (PlayerInfo info : PlayerInfo.values()) {
+                    if (info != racer) {
+                        winner = info.displayName + " can attack the carrier";
+                    }
+                }
+            }
+            final int turns = tablebase.getTurns(result);
+            return String.format("Flag race: %s in %d turn%s", winner, turns,
+                                 turns == 1 ? "" : "s");
         }
+        return null;
     }
 
     /**
-     * Draws the given tile.
+     * Turns hints on or off.
+     */
+    private void toggleHints() {
+        if (hints == null) {
+            hints = new HintAnalyzer();
+            hints.setHintListener(this::invalidate);
+            board.addBoardListener(hints);
+        } else {
+            board.removeBoardListener(hints);
+            hints.shutdown();
+            hints = null;
+        }
+    }
+
+    /**
+     * Switches the current player between being controlled by a person and by a computer.
      *
-     * @param tile     the tile to draw
-     * @param mousePos the position of the mouse
+     * @param monteCarlo true for a computer that uses tree search, false for one that uses
+     *                   alpha-beta search
+     */
+    private void toggleComputer(boolean monteCarlo) {
+        final int player = board.getCurrentPlayer().getInfo().ordinal();
+        if (computers[player] == null) {
+            board.cancelSpawning();
+            board.unselectTile();
+            computers[player] = monteCarlo
+                                ? new ComputerPlayer(Constants.AI_TURN_BUDGET,
+                                                     new MonteCarlo(Constants.AI_THREADS,
+                                                                    Constants.AI_TREE_NODES))
+                                : new ComputerPlayer();
+            computers[player].setDecisionListener(this::invalidate);
+        } else {
+            computers[player].shutdown();
+            computers[player] = null;
+        }
+    }
+
+    /**
+     * Redraws whatever has changed in the terrain since it was last drawn into the cached layer.
+     * Each changed tile is redrawn by itself, along with the parts of its neighbours that overlap
+     * it, unless so many tiles changed that it's quicker to redraw everything. The neighbours come
+     * from the board's topology, so redrawing a tile doesn't look at every other tile.
+     *
+     * @param terrain the cached layer
+     */
+    private void updateTerrain(CachedLayer terrain) {
+        if (terrain.claim(this)
+            || changedTiles.size() * FULL_REDRAW_FRACTION > board.getTileGrid().size()) {
+            terrain.beginRedraw();
+            board.getTiles().values().forEach(this::drawTerrain);
+            terrain.endRedraw();
+        } else {
+            final BoardTopology topology = board.getTopology();
+            for (Tile tile : changedTiles) {
+                final Point pos = tile.getScreenPos();
+                terrain.beginRedraw(pos.getX(), pos.getY(), Constants.TILE_WIDTH,
+                                    Constants.TILE_HEIGHT);
+
+                // Only the tile and its neighbours can overlap it
+                int count = 0;
+                redrawIndices[count++] = tile.getIndex();
+                for (int side = 0; side < Constants.NUM_SIDES; side++) {
+                    final int neighbor = topology.getNeighbor(tile.getIndex(), side);
+                    if (neighbor >= 0) {
+                        redrawIndices[count++] = neighbor;
+                    }
+                }
+                Arrays.sort(redrawIndices, 0, count);
+                for (int i = 0; i < count; i++) {
+                    final Tile other = board.getTileGrid().get(redrawIndices[i]);
+                    final Point otherPos = other.getScreenPos();
+                    if (Math.abs(otherPos.getX() - pos.getX()) < Constants.TILE_WIDTH
+                        && Math.abs(otherPos.getY() - pos.getY()) < Constants.TILE_HEIGHT) {
+                        drawTerrain(other);
+                    }
+                }
+                terrain.endRedraw();
+            }
+        }
+        for (Tile tile : changedTiles) {
+            tileChanged[tile.getIndex()] = false;
+        }
+        changedTiles.clear();
+    }
+
+    /**
+     * Draws the background and outline of the given tile.
+     *
+     * @param tile the tile to draw
      */
-    private void drawTile(Tile tile, Point mousePos) {
-        GL11.glPushMatrix();
-        GL11.glTranslatef(tile.getScreenPos().getX(), tile.getScreenPos().getY(), 0f);
+    private void drawTerrain(Tile tile) {
+        renderer().pushTranslation(tile.getScreenPos().getX(), tile.getScreenPos().getY());
 
         final int width = Constants.TILE_WIDTH;
         final int height = Constants.TILE_HEIGHT;
 
         // Draw the regular background
+        renderer().setLayer(TILE_BG_LAYER);
         renderer()
             .drawTexture(Constants.TILE_BG_NAME, 0, 0, width, height, tile.getBackgroundColor());
 
         // Draw the regular foreground
+        renderer().setLayer(TILE_OUTLINE_LAYER);
         renderer()
             .drawTexture(Constants.TILE_OUTLINE_NAME, 0, 0, width, height, tile.getOutlineColor());
 
+        renderer().popTranslation();
+    }
+
+    /**
+     * Draws the given tile.
+     *
+     * @param tile the tile to draw
+     */
+    private void drawTile(Tile tile) {
+        if (!terrainCached) {
+            drawTerrain(tile);
+        }
+        renderer().pushTranslation(tile.getScreenPos().getX(), tile.getScreenPos().getY());
+
         drawUnit(tile.getUnit()); // Draw the unit on top
         drawFlag(tile.getFlag()); // Draw the flag on top of that
-        drawTileOverlays(tile, mousePos); // Draw the tile overlays on top of everything else
+        drawTileOverlays(tile); // Draw the tile overlays on top of everything else
 
-        GL11.glPopMatrix();
+        renderer().popTranslation();
     }
 
     /**
      * Draw the appropriate overlays for the given tile.
      *
-     * @param tile     the tile to draw
-     * @param mousePos the position of the mouse
+     * @param tile the tile to draw
      */
-    private void drawTileOverlays(Tile tile, Point mousePos) {
+    private void drawTileOverlays(Tile tile) {
         final int width = Constants.TILE_WIDTH;
         final int height = Constants.TILE_HEIGHT;
 
         // Draw selection-related overlays
+        renderer().setLayer(SELECTION_LAYER);
         if (board.isSelected(tile)) { // If this tile is selected
             ColorTexture.selected.draw(0, 0, width, height); // Draw the selected overlay
         } else if (board.hasSelectedTile()) { // Otherwise, if another tile is selected...
@@ -147,18 +559,49 @@ public class BoardScreen extends MainScreen {
         }
 
         // Draw mouse-over overlays
-        if (tile.contains(mousePos)) { // If the mouse is over this tile...
+        if (tile == mouseOverTile) { // If the mouse is over this tile...
             final Unit spawningUnit = board.getSpawningUnit();
             if (spawningUnit != null) { // If a unit is being spawned...
                 // Draw the unit-spawning overlay
-                spawningUnit.getSpawningTexture().draw(0, 0, width, height);
+                renderer().setLayer(SPAWNING_LAYER);
+                getSpawningTexture(spawningUnit.getType()).draw(0, 0, width, height);
+                renderer().setLayer(MOUSE_OVER_LAYER);
                 (tile.isSpawnable(spawningUnit) ? ColorTexture.validSpawning
                                                 : ColorTexture.invalidSpawning)
                     .draw(0, 0, width, height);
             } else {
+                renderer().setLayer(MOUSE_OVER_LAYER);
                 ColorTexture.mouseOver.draw(0, 0, width, height); // Draw the mouse-over overlay
             }
         }
+
+        // Draw the hint overlay on the tiles that the hint acts on
+        if (hintAction != TranspositionTable.NO_ACTION
+            && Action.getKind(hintAction) != Action.END_TURN
+            && (tile.getIndex() == Action.getTarget(hintAction)
+                || Action.getKind(hintAction) != Action.SPAWN
+                   && tile.getIndex() == Action.getSource(hintAction))) {
+            renderer().setLayer(HINT_LAYER);
+            ColorTexture.hint.draw(0, 0, width, height);
+        }
+    }
+
+    /**
+     * Draws a bar under the turn counter showing who is ahead, according to the {@link
+     * Evaluator}. The left part has the color of the left player, and grows as they get further
+     * ahead, and the right part is the same for the right player.
+     */
+    private void drawScoreBar() {
+        final Player left = board.getPlayer(PlayerInfo.ORANGE);
+        final Player right = board.getPlayer(PlayerInfo.BLUE);
+        final int score = evaluator.evaluate(left);
+        final float share = 1f / (1f + (float) Math.exp(-score / SCORE_BAR_SCALE));
+        final int splitPoint = (int) (SCORE_BAR_WIDTH * share);
+        final int x = center.getX() - SCORE_BAR_WIDTH / 2;
+        renderer().drawRect(x, SCORE_BAR_Y, splitPoint, SCORE_BAR_HEIGHT,
+                            left.getInfo().primaryColor);
+        renderer().drawRect(x + splitPoint, SCORE_BAR_Y, SCORE_BAR_WIDTH - splitPoint,
+                            SCORE_BAR_HEIGHT, right.getInfo().primaryColor);
     }
 
     /**
@@ -171,9 +614,11 @@ public class BoardScreen extends MainScreen {
             final int width = Constants.TILE_WIDTH;
             final int height = Constants.TILE_HEIGHT;
 
-            unit.getTexture().draw(0, 0, width, height); // Draw the unit itself
+            renderer().setLayer(UNIT_LAYER);
+            getUnitTexture(unit).draw(0, 0, width, height); // Draw the unit itself
 
             // If the unit belongs to the current player, draw the amount of moves remaining
+            renderer().setLayer(UNIT_INFO_LAYER);
             if (unit.getOwner() == board.getCurrentPlayer()) {
                 renderer().drawString(Constants.FONT_SIZE_TILE,
                                       Integer.toString(unit.getMovesRemaining()),
@@ -182,18 +627,46 @@ public class BoardScreen extends MainScreen {
 
             // Draw the health bar
             final int splitPoint = UNIT_HEALTH_WIDTH * unit.getHealth() / unit.getMaxHealth();
-            GL11.glDisable(GL11.GL_TEXTURE_2D);
             renderer().drawRect(UNIT_HEALTH_POS.getX(), UNIT_HEALTH_POS.getY(),
                                 splitPoint, UNIT_HEALTH_HEIGHT, Colors.HEALTH_BAR_POS);
             renderer().drawRect(UNIT_HEALTH_POS.getX() + splitPoint, UNIT_HEALTH_POS.getY(),
                                 UNIT_HEALTH_WIDTH - splitPoint, UNIT_HEALTH_HEIGHT,
                                 Colors.HEALTH_BAR_NEG);
-            GL11.glEnable(GL11.GL_TEXTURE_2D);
 
             drawFlag(unit.getFlag()); // Draw the flag, if the unit has one
         }
     }
 
+    /**
+     * Gets the texture for the given unit, in its owner's color.
+     *
+     * @param unit the unit
+     * @return the texture
+     */
+    private ColorTexture getUnitTexture(Unit unit) {
+        final PlayerInfo playerInfo = unit.getOwner().getInfo();
+        final ColorTexture[] textures = unitTextures[unit.getType().ordinal()];
+        if (textures[playerInfo.ordinal()] == null) {
+            textures[playerInfo.ordinal()] = new ColorTexture(unit.getTextureName(),
+                                                              playerInfo.primaryColor);
+        }
+        return textures[playerInfo.ordinal()];
+    }
+
+    /**
+     * Gets the texture for a unit of the given type that is being spawned.
+     *
+     * @param unitType the type of the unit
+     * @return the texture
+     */
+    private ColorTexture getSpawningTexture(UnitType unitType) {
+        if (spawningTextures[unitType.ordinal()] == null) {
+            spawningTextures[unitType.ordinal()] = new ColorTexture(unitType.textureName,
+                                                                    Colors.UNIT_SPAWNING);
+        }
+        return spawningTextures[unitType.ordinal()];
+    }
+
     /**
      * Draws the given flag. If {@code flag == null}, nothing happens.
      *
@@ -201,6 +674,7 @@ public class BoardScreen extends MainScreen {
      */
     private void drawFlag(Flag flag) {
         if (flag != null) {
+            renderer().setLayer(FLAG_LAYER);
             renderer().drawTexture(Constants.FLAG_NAME, FLAG_POS.getX(), FLAG_POS.getY(),
                                    FLAG_SIZE, FLAG_SIZE,
                                    flag.getOwner().getInfo().primaryColor);
@@ -232,14 +706,30 @@ public class BoardScreen extends MainScreen {
      * @param unit the unit whose info will be drawn
      */
     private void drawUnitInfoSidebar(Unit unit) {
-        PlayerInfo playerInfo = unit.getOwner().getInfo();
+        final int player = unit.getOwner().getInfo().ordinal();
         renderer().drawString(Constants.FONT_SIZE_UI, unit.getInfoString(),
-                              playerInfo.infoPos.getX(), playerInfo.infoPos.getY(),
-                              0xffffffff, playerInfo.textHorizAlign, VertAlignment.TOP);
+                              UNIT_SIDEBAR_POS[player].getX(), UNIT_SIDEBAR_POS[player].getY(),
+                              0xffffffff, UNIT_SIDEBAR_ALIGN[player], VertAlignment.TOP);
     }
 
     @Override
     public void onKey(KeyEvent event) {
+        if (event.key == GLFW.GLFW_KEY_C) {
+            toggleComputer((event.mods & GLFW.GLFW_MOD_SHIFT) != 0);
+            return;
+        }
+        if (event.key == GLFW.GLFW_KEY_H) {
+            toggleHints();
+            return;
+        }
+        if (event.key == GLFW.GLFW_KEY_S && (event.mods & GLFW.GLFW_MOD_CONTROL) != 0) {
+            saveRecord();
+            return;
+        }
+        if (isComputerTurn() && event.key != GLFW.GLFW_KEY_ESCAPE) {
+            return; // The computer is playing, so ignore everything else
+        }
+
         switch (event.key) {
             case GLFW.GLFW_KEY_M:
                 board.prepareToSpawn(UnitType.MARINES);
@@ -255,23 +745,33 @@ public class BoardScreen extends MainScreen {
                     board.cancelSpawning();
                     board.unselectTile();
                 } else {
+                    if (hints != null) {
+                        hints.cancel(); // Nothing needs a hint while the game is paused
+                    }
                     setNextScreen(new PauseMenu(this));
                 }
                 break;
             case GLFW.GLFW_KEY_SPACE:
                 board.nextTurn();
                 break;
+            case GLFW.GLFW_KEY_Z:
+                if (board.canTakeBack()) {
+                    board.takeBackAction();
+                }
+                break;
         }
     }
 
     @Override
     public void onClick(MouseButtonEvent event) {
         super.onClick(event);
-        for (Tile tile : board.getTiles().values()) {
-            if (tile.contains(event.mousePos)) {
-                board.onTileClicked(tile);
-                break;
-            }
+
+        // Use the tile found during the last frame, unless the mouse has moved since then
+        final Tile tile = event.mousePos.equals(mouseOverPos)
+                          ? mouseOverTile
+                          : board.getTileGrid().getTileAtScreenPos(event.mousePos);
+        if (tile != null && !isComputerTurn()) {
+            board.onTileClicked(tile);
         }
     }
 }
@@ -1,7 +1,5 @@
 package groundwar.render.screen;
 
-import org.lwjgl.opengl.GL11;
-
 import groundwar.util.Colors;
 import groundwar.util.Constants;
 import groundwar.util.Point;
@@ -16,9 +14,7 @@ public class HelpMenu extends MainScreen {
 
     @Override
     public void draw(Point mousePos) {
-        GL11.glEnable(GL11.GL_BLEND);
         renderer().drawRect(0, 0, Constants.RES_WIDTH, Constants.RES_HEIGHT, Colors.MENU_SHADER);
-        GL11.glDisable(GL11.GL_BLEND);
 
         super.draw(mousePos);
     }
@@ -1,7 +1,5 @@
 package groundwar.render.screen;
 
-import org.lwjgl.opengl.GL11;
-
 import groundwar.GroundWar;
 import groundwar.render.HorizAlignment;
 import groundwar.render.VertAlignment;
@@ -31,12 +29,8 @@ public class MainMenuScreen extends MainScreen {
     @Override
     public void draw(Point mousePos) {
         super.draw(mousePos);
-        GL11.glEnable(GL11.GL_BLEND);
-        GL11.glEnable(GL11.GL_TEXTURE_2D);
         renderer().drawString(Constants.FONT_SIZE_TITLE, "Ground War",
                               center.getX(), TITLE_Y, HorizAlignment.CENTER);
-        GL11.glDisable(GL11.GL_TEXTURE_2D);
-        GL11.glDisable(GL11.GL_BLEND);
     }
 
     @Override
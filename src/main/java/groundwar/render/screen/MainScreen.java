@@ -1,7 +1,5 @@
 package groundwar.render.screen;
 
-import org.lwjgl.opengl.GL11;
-
 import java.util.LinkedList;
 import java.util.List;
 
@@ -26,17 +24,14 @@ public abstract class MainScreen implements ScreenElement {
 
     @Override
     public void draw(Point mousePos) {
-        // Draw all the GUI elements
-        GL11.glEnable(GL11.GL_BLEND);
-        GL11.glEnable(GL11.GL_TEXTURE_2D);
+        // Draw all the GUI elements, on top of everything drawn before them
+        renderer().flush();
         guiElements.stream().filter(GuiElement::isVisible).forEach(element -> {
-            GL11.glPushMatrix();
-            GL11.glTranslatef(element.getX(), element.getY(), 0f);
+            renderer().pushTranslation(element.getX(), element.getY());
             element.draw(mousePos);
-            GL11.glPopMatrix();
+            renderer().popTranslation();
         });
-        GL11.glDisable(GL11.GL_TEXTURE_2D);
-        GL11.glDisable(GL11.GL_BLEND);
+        renderer().flush();
     }
 
     protected final void setNextScreen(MainScreen nextScreen) {
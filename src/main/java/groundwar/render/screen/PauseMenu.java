@@ -1,7 +1,6 @@
 package groundwar.render.screen;
 
 import org.lwjgl.glfw.GLFW;
-import org.lwjgl.opengl.GL11;
 
 import groundwar.render.HorizAlignment;
 import groundwar.render.VertAlignment;
@@ -52,11 +51,9 @@ public class PauseMenu extends MainScreen {
 
     @Override
     public void draw(Point mousePos) {
-        boardScreen.draw(new Point());
+        boardScreen.drawBoard(new Point());
 
-        GL11.glEnable(GL11.GL_BLEND);
         renderer().drawRect(0, 0, Constants.RES_WIDTH, Constants.RES_HEIGHT, Colors.MENU_SHADER);
-        GL11.glDisable(GL11.GL_BLEND);
 
         super.draw(mousePos);
     }
@@ -75,8 +72,10 @@ public class PauseMenu extends MainScreen {
         if (element == backToGameButton) {
             returnToGame();
         } else if (element == mainMenuButton) {
+            boardScreen.shutDownComputers();
             setNextScreen(new MainMenuScreen());
         } else if (element == desktopButton) {
+            boardScreen.shutDownComputers();
             setNextScreen(null);
         }
     }
@@ -29,4 +29,14 @@ public interface ScreenElement {
     default Renderer renderer() {
         return GroundWar.groundWar.getRenderer();
     }
+
+    /**
+     * Asks for the screen to be drawn again soon, because this element looks different now. Input
+     * always gets the screen drawn again, so this is only needed for changes that happen on their
+     * own, such as an animation or a result from another thread. An element that is animating
+     * calls this each time it's drawn. Can be called from any thread.
+     */
+    default void invalidate() {
+        GroundWar.groundWar.requestRedraw();
+    }
 }
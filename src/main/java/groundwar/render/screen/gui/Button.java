@@ -34,7 +34,9 @@ public class Button extends GuiElement {
     @Override
     public void draw(Point mousePos) {
         final boolean mouseOver = contains(mousePos);
+        renderer().setLayer(BACKGROUND_LAYER);
         renderer().drawTexture(Constants.BUTTON_NAME, 0, 0, getWidth(), getHeight());
+        renderer().setLayer(TEXT_LAYER);
         renderer().drawString(Constants.FONT_SIZE_UI, text, getWidth() / 2, getHeight() / 2,
                               mouseOver ? Colors.BUTTON_TEXT_HIGHLIGHT : Colors.BUTTON_TEXT_NORMAL,
                               HorizAlignment.CENTER, VertAlignment.CENTER);
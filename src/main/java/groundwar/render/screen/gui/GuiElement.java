@@ -9,6 +9,13 @@ import groundwar.util.Point;
 
 public abstract class GuiElement implements ScreenElement {
 
+    /**
+     * The layers that elements draw their backgrounds and text in, so that text is always drawn on
+     * top of backgrounds (see {@link groundwar.render.SpriteBatch#setLayer}).
+     */
+    protected static final int BACKGROUND_LAYER = 0;
+    protected static final int TEXT_LAYER = 1;
+
     private Point pos;
     private int width;
     private int height;
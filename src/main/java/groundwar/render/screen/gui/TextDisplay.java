@@ -1,7 +1,5 @@
 package groundwar.render.screen.gui;
 
-import org.lwjgl.opengl.GL11;
-
 import groundwar.render.HorizAlignment;
 import groundwar.render.VertAlignment;
 import groundwar.util.Colors;
@@ -44,9 +42,9 @@ public class TextDisplay extends GuiElement {
 
     @Override
     public void draw(Point mousePos) {
-        GL11.glDisable(GL11.GL_TEXTURE_2D);
+        renderer().setLayer(BACKGROUND_LAYER);
         renderer().drawRect(0, 0, getWidth(), getHeight(), Colors.UNIT_INFO_BG);
-        GL11.glEnable(GL11.GL_TEXTURE_2D);
+        renderer().setLayer(TEXT_LAYER);
         renderer().drawString(Constants.FONT_SIZE_TILE, text, TEXT_OFFSET_X, 0, textColor);
     }
 }
@@ -3,17 +3,17 @@ package groundwar.util;
 import java.io.BufferedReader;
 import java.io.BufferedWriter;
 import java.io.File;
-import java.io.FileReader;
 import java.io.FileWriter;
 import java.io.IOException;
-import java.net.URL;
+import java.io.InputStream;
+import java.io.InputStreamReader;
 import java.util.HashMap;
 import java.util.Map;
 
-import groundwar.GroundWar;
 import groundwar.board.Board;
 import groundwar.board.Flag;
 import groundwar.board.PlayerInfo;
+import groundwar.board.TileGrid;
 import groundwar.board.tile.FortTile;
 import groundwar.board.tile.ForwardFortTile;
 import groundwar.board.tile.GoldTile;
@@ -29,14 +29,18 @@ public class BoardHandler {
         this.board = board;
     }
 
-    public Map<Point, Tile> loadBoard() throws IOException {
-        // Load tiles from the file
+    public TileGrid loadBoard() throws IOException {
+        // Load tiles from the file, then put them in a grid
         loadTilesFromFile("board");
+        final TileGrid grid = new TileGrid(tiles.values());
 
         // For each tile, tell it which tiles are adjacent to it
-        tiles.values().forEach(tile -> tile.setAdjacentTiles(getAdjacentTiles(tile)));
+        for (int i = 0; i < grid.size(); i++) {
+            final Tile tile = grid.get(i);
+            tile.setAdjacentTiles(getAdjacentTiles(grid, tile));
+        }
 
-        return tiles;
+        return grid;
     }
 
     private void loadTilesFromFile(String fileName) throws IOException {
@@ -44,8 +48,12 @@ public class BoardHandler {
         String line;
         try {
             // Get a reader for the file
-            final URL resourceUrl = GroundWar.getResource(Constants.BOARD_PATH, fileName);
-            reader = new BufferedReader(new FileReader(resourceUrl.getFile()));
+            final InputStream stream = BoardHandler.class.getResourceAsStream(
+                String.format(Constants.BOARD_PATH, fileName));
+            if (stream == null) {
+                throw new IOException("No board by the name: " + fileName);
+            }
+            reader = new BufferedReader(new InputStreamReader(stream));
             while ((line = reader.readLine()) != null) { // Read each line from the file
                 line = line.replaceAll(" ", ""); // Strip spaces out
                 if (line.length() > 0
@@ -122,17 +130,16 @@ public class BoardHandler {
     /**
      * Gets an array of tiles adjcaent to the given tile.
      *
+     * @param grid the grid holding all tiles
      * @param tile the given tile
      * @return all tiles adjacent to {@param tile}
      */
-    private Tile[] getAdjacentTiles(Tile tile) {
+    private Tile[] getAdjacentTiles(TileGrid grid, Tile tile) {
         final Point p = tile.getPos();
         final Tile[] adjTiles = new Tile[Constants.NUM_SIDES];
         for (Direction dir : Direction.values()) {
-            Point adjPoint = p.plus(dir.delta);
-            if (tiles.containsKey(adjPoint)) {
-                adjTiles[dir.ordinal()] = tiles.get(adjPoint);
-            }
+            adjTiles[dir.ordinal()] = grid.get(p.getX() + dir.delta.getX(),
+                                               p.getY() + dir.delta.getY());
         }
         return adjTiles;
     }
@@ -140,7 +147,8 @@ public class BoardHandler {
     public void saveBoard(Board board) {
         File saveFile = null;
         for (int i = 1; saveFile == null || saveFile.exists(); i++) {
-            saveFile = new File(GroundWar.getResource(Constants.SAVE_PATH, "save" + i).getPath());
+            saveFile = new File(BoardHandler.class.getResource(
+                String.format(Constants.SAVE_PATH, "save" + i)).getPath());
         }
 
         try {
@@ -30,6 +30,7 @@ public class Colors {
     public static final int UNIT_SPAWNING_VALID = 0x9900bb00;
     public static final int UNIT_SPAWNING_INVALID = 0x99bb0000;
     public static final int UNIT_INFO_BG = 0xee444444;
+    public static final int HINT = 0xffffff00;
 
     // Unit colors
     public static final int HEALTH_BAR_POS = 0xff00ff00;
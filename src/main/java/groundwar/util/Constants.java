@@ -25,6 +25,13 @@ public class Constants {
      * @see #RES_WIDTH
      */
     public static final int RES_HEIGHT = 2160;
+    /**
+     * How many times a second the screen is drawn while nothing has asked for it to be drawn
+     * again. Anything that changes on its own, without telling the game loop, shows up at this
+     * rate. 0 means the screen is only drawn when asked. Can be set with the {@code
+     * groundwar.idleFps} system property.
+     */
+    public static final int IDLE_FPS = Integer.getInteger("groundwar.idleFps", 1);
 
     // Board constants
     public static final Point BOARD_CENTER = new Point((RES_WIDTH - TILE_WIDTH) / 2,
@@ -35,12 +42,56 @@ public class Constants {
      * and this value is 0.1, then the randomized value will be in the range [0.9x, 1.1x].
      */
     public static final float DAMAGE_MARGIN = 0.1f;
+    /**
+     * Boards with at most this many tiles store the distance between every pair of tiles in their
+     * {@link groundwar.board.BoardTopology}. The table takes 2 bytes per pair of tiles.
+     */
+    public static final int DISTANCE_TABLE_MAX_TILES = 2048;
+
+    // AI constants
+    /**
+     * The time that a {@link groundwar.ai.ComputerPlayer} can spend thinking each turn, in
+     * milliseconds.
+     */
+    public static final long AI_TURN_BUDGET = 200;
+    /**
+     * The base-2 log of the amount of entries in a computer player's transposition table. Each
+     * entry takes 16 bytes.
+     */
+    public static final int AI_TABLE_SIZE_LOG2 = 20;
+
+    /**
+     * The amount of threads that a {@link groundwar.ai.ComputerPlayer} searches with.
+     */
+    public static final int AI_THREADS = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * The amount of tree nodes that a {@link groundwar.ai.MonteCarlo} search can keep, split
+     * between its threads. Each node takes about 30 bytes.
+     */
+    public static final int AI_TREE_NODES = 1 << 21;
+
+    /**
+     * The time that a {@link groundwar.ai.HintAnalyzer} searches for before giving its first hint
+     * for a position, in milliseconds. Each later search takes twice as long as the one before.
+     */
+    public static final long HINT_FIRST_SEARCH_TIME = 50;
+
+    /**
+     * The total time that a {@link groundwar.ai.HintAnalyzer} spends on one position, in
+     * milliseconds.
+     */
+    public static final long HINT_TIME_LIMIT = 10000;
 
     // File paths
     public static final String BOARD_PATH = "/boards/%s.csv";
-    public static final String TEXTURE_PATH = "/textures/%s.png";
+    public static final String TEXTURE_FOLDER = "/textures";
+    public static final String TEXTURE_PATH = TEXTURE_FOLDER + "/%s.png";
     public static final String FONT_PATH = "/fonts/%s.ttf";
     public static final String SAVE_PATH = "/saves/%s.csv";
+    public static final String RECORD_PATH = "records/game-%016x.txt"; // Relative to the working dir
+    public static final String TABLEBASE_FOLDER = "tablebases"; // Relative to the working dir
+    public static final String TABLEBASE_PATH = TABLEBASE_FOLDER + "/race-%s%s.tb";
 
     // Texture names
     public static final String TILE_BG_NAME = "tile_background";
@@ -1,17 +1,17 @@
 package groundwar.util;
 
-import java.util.Random;
-
 public class Funcs {
 
     /**
-     * Generates a random number in the range [min, max].
+     * Mixes the bits of the given value, so that similar inputs give completely different outputs.
+     * This is the finalizer of the SplitMix64 generator.
      *
-     * @param random the random generator to be used
-     * @param min    the minimum of the number
-     * @param max    the maximum of the number
+     * @param z the value to mix
+     * @return the mixed value
      */
-    public static float randomInRange(Random random, float min, float max) {
-        return random.nextFloat() * (max - min) + min;
+    public static long mix64(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
     }
 }
@@ -0,0 +1,143 @@
+package groundwar.util;
+
+/**
+ * A small, fast random number generator (SplitMix64, the algorithm behind {@link
+ * java.util.SplittableRandom}). Unlike {@link java.util.Random}, it has no locks or atomic
+ * operations, and its state can be read and set, so a board can put its generator back to an
+ * earlier position when an action is undone.
+ *
+ * Each generator remembers its seed, and the state is always the seed plus some amount of steps,
+ * so the amount of numbers drawn so far can be worked out from the state (see {@link
+ * #getDraws()}). Together, the seed and the draw count are enough to put a generator back exactly
+ * where it was, which is what makes games replayable.
+ *
+ * {@link #split()} makes a new generator whose numbers are independent of this one's, for handing
+ * to another thread.
+ */
+public class GameRandom {
+
+    private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+
+    private long seed;
+    private long gamma;
+
+    /**
+     * The inverse of {@link #gamma}, modulo 2<sup>64</sup>, for working out the draw count.
+     */
+    private long gammaInverse;
+    private long state;
+
+    /**
+     * Constructs a new generator with the given seed.
+     *
+     * @param seed the seed
+     */
+    public GameRandom(long seed) {
+        this(seed, GOLDEN_GAMMA);
+    }
+
+    private GameRandom(long seed, long gamma) {
+        this.seed = seed;
+        this.gamma = gamma;
+        gammaInverse = inverse(gamma);
+        state = seed;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * Gets the current state of this generator. Setting a generator to this state will make it
+     * generate the same numbers that this one is about to.
+     *
+     * @return the state
+     */
+    public long getState() {
+        return state;
+    }
+
+    public void setState(long state) {
+        this.state = state;
+    }
+
+    /**
+     * Gets the amount of numbers drawn from this generator since it was seeded. If the state has
+     * been set to something that this generator never reached, this is meaningless.
+     *
+     * @return the amount of draws
+     */
+    public long getDraws() {
+        return (state - seed) * gammaInverse;
+    }
+
+    /**
+     * Puts this generator where it would be after drawing the given amount of numbers since it was
+     * seeded.
+     *
+     * @param draws the amount of draws
+     */
+    public void setDraws(long draws) {
+        state = seed + draws * gamma;
+    }
+
+    /**
+     * Makes this generator the same as the given one, including its seed.
+     *
+     * @param random the generator to copy
+     */
+    public void copyFrom(GameRandom random) {
+        seed = random.seed;
+        gamma = random.gamma;
+        gammaInverse = random.gammaInverse;
+        state = random.state;
+    }
+
+    /**
+     * Makes a new generator from this one, the way {@link java.util.SplittableRandom#split()}
+     * does. The new generator's numbers are independent of this one's, and it shares no state with
+     * it, so it can be given to another thread. This uses up two numbers from this generator.
+     *
+     * @return the new generator
+     */
+    public GameRandom split() {
+        return new GameRandom(nextLong(), mixGamma(state += gamma));
+    }
+
+    public long nextLong() {
+        state += gamma;
+        return Funcs.mix64(state);
+    }
+
+    /**
+     * Generates a random float in the range [0, 1).
+     *
+     * @return the random float
+     */
+    public float nextFloat() {
+        return (nextLong() >>> 40) * 0x1.0p-24f;
+    }
+
+    /**
+     * Makes a gamma for a new generator. The gamma must be odd, and is kept away from values with
+     * too few bit flips, which give poor numbers.
+     */
+    private static long mixGamma(long z) {
+        z = (z ^ (z >>> 33)) * 0xff51afd7ed558ccdL;
+        z = (z ^ (z >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        z = (z ^ (z >>> 33)) | 1L;
+        return Long.bitCount(z ^ (z >>> 1)) < 24 ? z ^ 0xaaaaaaaaaaaaaaaaL : z;
+    }
+
+    /**
+     * Gets the inverse of the given odd number, modulo 2<sup>64</sup>, with Newton's method. Each
+     * step doubles the amount of correct bits, starting from 3.
+     */
+    private static long inverse(long odd) {
+        long inverse = odd;
+        for (int i = 0; i < 5; i++) {
+            inverse *= 2L - odd * inverse;
+        }
+        return inverse;
+    }
+}